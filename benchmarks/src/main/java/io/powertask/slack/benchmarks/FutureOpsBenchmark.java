@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.benchmarks;
+
+import io.powertask.slack.FutureOps;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@link FutureOps} combinators against the old thenCombine based collector.
+ *
+ * <p>The `pending` variants combine futures that are still incomplete and complete them afterwards,
+ * which is what happens when fanning out Slack calls. The `completed` variants only measure the
+ * cost of combining futures that are already done. `boundedTraverse` maps onto completed futures
+ * too, so every slot is freed while the next one is being started.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FutureOpsBenchmark {
+
+  @Param({"10", "1000", "100000"})
+  public int size;
+
+  private List<CompletionStage<Integer>> completed;
+  private List<Integer> inputs;
+
+  @Setup
+  public void setup() {
+    completed = new ArrayList<>(size);
+    inputs = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      completed.add(CompletableFuture.completedFuture(i));
+      inputs.add(i);
+    }
+  }
+
+  @Benchmark
+  @SuppressWarnings("deprecation")
+  public List<Integer> collectorCompleted() {
+    return completed.stream()
+        .collect(FutureOps.completionStageListCollector())
+        .toCompletableFuture()
+        .join();
+  }
+
+  @Benchmark
+  public List<Integer> sequenceCompleted() {
+    return FutureOps.sequence(completed).toCompletableFuture().join();
+  }
+
+  @Benchmark
+  @SuppressWarnings("deprecation")
+  public List<Integer> collectorPending() {
+    List<CompletableFuture<Integer>> pending = pending();
+    CompletionStage<List<Integer>> result =
+        pending.stream().collect(FutureOps.completionStageListCollector());
+    return completeAll(pending, result);
+  }
+
+  @Benchmark
+  public List<Integer> sequencePending() {
+    List<CompletableFuture<Integer>> pending = pending();
+    CompletionStage<List<Integer>> result = FutureOps.sequence(pending);
+    return completeAll(pending, result);
+  }
+
+  @Benchmark
+  public List<Integer> boundedTraverse() {
+    return FutureOps.traverse(inputs, 10, CompletableFuture::completedFuture)
+        .toCompletableFuture()
+        .join();
+  }
+
+  @Benchmark
+  public FutureOps.Settled<Integer> settleAllCompleted() {
+    return FutureOps.settleAll(completed).toCompletableFuture().join();
+  }
+
+  private List<CompletableFuture<Integer>> pending() {
+    List<CompletableFuture<Integer>> pending = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      pending.add(new CompletableFuture<>());
+    }
+    return pending;
+  }
+
+  private static List<Integer> completeAll(
+      List<CompletableFuture<Integer>> pending, CompletionStage<List<Integer>> result) {
+    for (int i = 0; i < pending.size(); i++) {
+      pending.get(i).complete(i);
+    }
+    return result.toCompletableFuture().join();
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.benchmarks;
+
+import static org.camunda.bpm.engine.delegate.TaskListener.*;
+
+import io.powertask.slack.camunda.plugin.TaskListenerPlugin;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.delegate.TaskListener;
+import org.camunda.bpm.engine.impl.bpmn.behavior.UserTaskActivityBehavior;
+import org.camunda.bpm.engine.impl.bpmn.parser.AbstractBpmnParseListener;
+import org.camunda.bpm.engine.impl.bpmn.parser.BpmnParseListener;
+import org.camunda.bpm.engine.impl.cfg.AbstractProcessEnginePlugin;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.cfg.ProcessEnginePlugin;
+import org.camunda.bpm.engine.impl.cfg.StandaloneInMemProcessEngineConfiguration;
+import org.camunda.bpm.engine.impl.el.ExpressionManager;
+import org.camunda.bpm.engine.impl.pvm.process.ActivityImpl;
+import org.camunda.bpm.engine.impl.pvm.process.ScopeImpl;
+import org.camunda.bpm.engine.impl.task.listener.DelegateExpressionTaskListener;
+import org.camunda.bpm.engine.impl.util.xml.Element;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Engine throughput of starting a process that creates a user task and completing that task, with
+ * the task listeners added the way TaskListenerPlugin used to (a delegate expression listener for
+ * all six events) and the way it does now (one listener instance for the four dispatched events).
+ *
+ * <p>The listener itself does nothing, so the difference is the listener overhead in the engine.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskListenerBenchmark {
+
+  @Param({"expression", "singleton"})
+  public String listener;
+
+  private final AtomicLong notified = new AtomicLong();
+  private ProcessEngine processEngine;
+
+  @Setup
+  public void setup() {
+    TaskListener noop = delegateTask -> notified.incrementAndGet();
+    Map<Object, Object> beans = new HashMap<>();
+    beans.put("powertaskListener", noop);
+
+    ProcessEnginePlugin plugin;
+    if (listener.equals("expression")) {
+      plugin = new ExpressionListenerPlugin();
+    } else {
+      TaskListenerPlugin taskListenerPlugin = new TaskListenerPlugin();
+      taskListenerPlugin.setTaskListener(noop);
+      plugin = taskListenerPlugin;
+    }
+
+    ProcessEngineConfigurationImpl configuration = new StandaloneInMemProcessEngineConfiguration();
+    configuration.setJdbcUrl("jdbc:h2:mem:" + listener + ";DB_CLOSE_DELAY=1000");
+    configuration.setHistory(ProcessEngineConfigurationImpl.HISTORY_NONE);
+    configuration.setJobExecutorActivate(false);
+    configuration.setDbMetricsReporterActivate(false);
+    configuration.setBeans(beans);
+    configuration.setProcessEnginePlugins(Collections.singletonList(plugin));
+    processEngine = configuration.buildProcessEngine();
+
+    processEngine
+        .getRepositoryService()
+        .createDeployment()
+        .addModelInstance(
+            "benchmark.bpmn",
+            Bpmn.createExecutableProcess("benchmark")
+                .startEvent()
+                .userTask("task")
+                .endEvent()
+                .done())
+        .deploy();
+  }
+
+  @TearDown
+  public void tearDown() {
+    processEngine.close();
+  }
+
+  @Benchmark
+  public String createAndCompleteTask() {
+    String processInstanceId =
+        processEngine.getRuntimeService().startProcessInstanceByKey("benchmark").getId();
+    String taskId =
+        processEngine
+            .getTaskService()
+            .createTaskQuery()
+            .processInstanceId(processInstanceId)
+            .singleResult()
+            .getId();
+    processEngine.getTaskService().complete(taskId);
+    return taskId;
+  }
+
+  // How TaskListenerPlugin used to add its listeners.
+  static class ExpressionListenerPlugin extends AbstractProcessEnginePlugin {
+    private static final List<String> ALL_EVENT_NAMES =
+        Arrays.asList(
+            EVENTNAME_CREATE,
+            EVENTNAME_ASSIGNMENT,
+            EVENTNAME_COMPLETE,
+            EVENTNAME_UPDATE,
+            EVENTNAME_DELETE,
+            EVENTNAME_TIMEOUT);
+
+    @Override
+    public void preInit(ProcessEngineConfigurationImpl processEngineConfiguration) {
+      ExpressionManager expressionManager =
+          new ExpressionManager(processEngineConfiguration.getBeans());
+      processEngineConfiguration.setExpressionManager(expressionManager);
+      List<BpmnParseListener> preParseListeners = new ArrayList<>();
+      preParseListeners.add(
+          new AbstractBpmnParseListener() {
+            @Override
+            public void parseUserTask(
+                Element userTaskElement, ScopeImpl scope, ActivityImpl activity) {
+              UserTaskActivityBehavior behavior =
+                  (UserTaskActivityBehavior) activity.getActivityBehavior();
+              for (String eventName : ALL_EVENT_NAMES) {
+                behavior
+                    .getTaskDefinition()
+                    .addTaskListener(
+                        eventName,
+                        new DelegateExpressionTaskListener(
+                            expressionManager.createExpression("${powertaskListener}"),
+                            Collections.emptyList()));
+              }
+            }
+          });
+      processEngineConfiguration.setCustomPreBPMNParseListeners(preParseListeners);
+    }
+  }
+}
@@ -14,12 +14,10 @@
 package io.powertask.slack.camunda;
 
 import io.powertask.slack.Form;
-import java.util.stream.Collectors;
 import org.camunda.bpm.engine.form.FormData;
 
 public class CamundaFormMapper {
   public static Form fromFormData(FormData formData) {
-    return () ->
-        formData.getFormFields().stream().map(FormFieldMapper::map).collect(Collectors.toList());
+    return FormSchema.compile(formData).bind(formData);
   }
 }
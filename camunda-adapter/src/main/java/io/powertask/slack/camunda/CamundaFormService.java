@@ -13,36 +13,95 @@
  */
 package io.powertask.slack.camunda;
 
+import io.powertask.slack.BoundedCache;
 import io.powertask.slack.Form;
 import io.powertask.slack.FormService;
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import org.camunda.bpm.engine.form.FormData;
 
 public class CamundaFormService implements FormService {
 
+  public static final int DEFAULT_MAX_SCHEMAS = 1000;
+
   private final org.camunda.bpm.engine.FormService formService;
+  // Keyed by deployment, process definition, element and form key. Definitions never change once
+  // deployed, so entries only go when evicted.
+  private final BoundedCache<String, FormSchema> schemas;
+
+  private final Optional<TaskCache> taskCache;
 
   public CamundaFormService(org.camunda.bpm.engine.FormService formService) {
+    this(formService, DEFAULT_MAX_SCHEMAS);
+  }
+
+  public CamundaFormService(org.camunda.bpm.engine.FormService formService, int maxSchemas) {
+    this(formService, maxSchemas, Optional.empty());
+  }
+
+  public CamundaFormService(
+      org.camunda.bpm.engine.FormService formService, int maxSchemas, TaskCache taskCache) {
+    this(formService, maxSchemas, Optional.of(taskCache));
+  }
+
+  private CamundaFormService(
+      org.camunda.bpm.engine.FormService formService,
+      int maxSchemas,
+      Optional<TaskCache> taskCache) {
     this.formService = formService;
+    this.schemas = new BoundedCache<>(maxSchemas);
+    this.taskCache = taskCache;
   }
 
   @Override
   public Optional<Form> taskForm(String taskId) {
+    return taskCache.isPresent()
+        ? taskCache.get().form(taskId, this::loadTaskForm)
+        : loadTaskForm(taskId);
+  }
+
+  private Optional<Form> loadTaskForm(String taskId) {
     return Optional.ofNullable(formService.getTaskFormData(taskId))
-        .map(CamundaFormMapper::fromFormData);
+        .map(
+            formData ->
+                bind(
+                    formData,
+                    formData.getTask().getProcessDefinitionId(),
+                    formData.getTask().getTaskDefinitionKey()));
   }
 
   @Override
   public Optional<Form> startForm(String processDefinitionId) {
     return Optional.ofNullable(formService.getStartFormData(processDefinitionId))
-        .map(CamundaFormMapper::fromFormData);
+        .map(formData -> bind(formData, processDefinitionId, "start"));
+  }
+
+  public void evictAll() {
+    schemas.invalidateIf(key -> true);
+  }
+
+  private Form bind(FormData formData, String processDefinitionId, String element) {
+    if (processDefinitionId == null) {
+      // Standalone tasks have no definition to cache the schema for.
+      return FormSchema.compile(formData).bind(formData);
+    }
+    String key =
+        formData.getDeploymentId()
+            + "/"
+            + processDefinitionId
+            + "/"
+            + element
+            + "/"
+            + formData.getFormKey();
+    return schemas.computeIfAbsent(key, k -> FormSchema.compile(formData)).bind(formData);
   }
 
   @Override
   public void submitTaskForm(String taskId, Map<String, Object> variables) {
     formService.submitTaskForm(taskId, mapVariableValues(variables));
+    taskCache.ifPresent(cache -> cache.invalidate(taskId));
   }
 
   String submitStartForm(String processDefinitionId, Map<String, Object> variables) {
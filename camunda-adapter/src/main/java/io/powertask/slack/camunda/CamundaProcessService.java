@@ -13,10 +13,12 @@
  */
 package io.powertask.slack.camunda;
 
+import io.powertask.slack.BoundedCache;
 import io.powertask.slack.ImmutableProcess;
 import io.powertask.slack.Process;
 import io.powertask.slack.ProcessService;
 import io.powertask.slack.StartEvent;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -25,25 +27,88 @@ import java.util.stream.Collectors;
 import org.camunda.bpm.engine.ProcessEngine;
 import org.camunda.bpm.engine.repository.ProcessDefinition;
 import org.camunda.bpm.model.bpmn.BpmnModelInstance;
+import org.immutables.value.Value;
 
 public class CamundaProcessService implements ProcessService {
 
+  public static final int DEFAULT_MAX_DEFINITIONS = 500;
+  public static final int DEFAULT_MAX_USERS = 1000;
+  public static final Duration DEFAULT_STARTABLE_TTL = Duration.ofSeconds(30);
+
   private final ProcessEngine processEngine;
   private final CamundaFormService formService;
   private final StartEventMapper startEventMapper;
+  private final long startableTtlNanos;
+
+  // A process definition never changes, so its start event only has to be mapped once.
+  private final BoundedCache<String, StartEvent> startEvents;
+
+  // Which processes a user may start depends on deployments and on authorizations. Deployments
+  // clear this cache, authorization changes are picked up once the entry expires.
+  private final BoundedCache<String, StartableProcesses> startableProcesses;
+
+  @Value.Immutable
+  interface StartableProcesses {
+    @Value.Parameter
+    List<Process> processes();
+
+    @Value.Parameter
+    long loadedAtNanos();
+  }
 
   public CamundaProcessService(
       ProcessEngine processEngine,
       CamundaFormService formService,
       PropertiesResolver propertiesResolver) {
+    this(
+        processEngine,
+        formService,
+        propertiesResolver,
+        DEFAULT_MAX_DEFINITIONS,
+        DEFAULT_MAX_USERS,
+        DEFAULT_STARTABLE_TTL);
+  }
+
+  public CamundaProcessService(
+      ProcessEngine processEngine,
+      CamundaFormService formService,
+      PropertiesResolver propertiesResolver,
+      int maxDefinitions,
+      int maxUsers,
+      Duration startableTtl) {
     this.processEngine = processEngine;
     this.formService = formService;
     this.startEventMapper = new StartEventMapper(propertiesResolver);
+    this.startEvents = new BoundedCache<>(maxDefinitions);
+    this.startableProcesses = new BoundedCache<>(maxUsers);
+    this.startableTtlNanos = startableTtl.toNanos();
   }
 
   @Override
   public List<Process> startableProcesses(String engineUserId) {
+    long now = System.nanoTime();
+    Optional<StartableProcesses> cached = startableProcesses.get(engineUserId);
+    if (cached.isPresent() && now - cached.get().loadedAtNanos() < startableTtlNanos) {
+      return cached.get().processes();
+    }
+    StartableProcesses loaded =
+        ImmutableStartableProcesses.of(queryStartableProcesses(engineUserId), now);
+    startableProcesses.put(engineUserId, loaded);
+    return loaded.processes();
+  }
+
+  /** Drops the cached start events, for when process definitions were removed. */
+  public void evictAll() {
+    startEvents.invalidateIf(key -> true);
+    evictStartableProcesses();
+  }
 
+  /** Drops the cached startable processes, for when process definitions were changed. */
+  public void evictStartableProcesses() {
+    startableProcesses.invalidateIf(key -> true);
+  }
+
+  private List<Process> queryStartableProcesses(String engineUserId) {
     List<ProcessDefinition> processDefinitions =
         processEngine
             .getRepositoryService()
@@ -71,6 +136,10 @@ public class CamundaProcessService implements ProcessService {
 
   @Override
   public StartEvent startEvent(String processDefinitionId) {
+    return startEvents.computeIfAbsent(processDefinitionId, this::mapStartEvent);
+  }
+
+  private StartEvent mapStartEvent(String processDefinitionId) {
     BpmnModelInstance def =
         processEngine.getRepositoryService().getBpmnModelInstance(processDefinitionId);
     Collection<org.camunda.bpm.model.bpmn.instance.StartEvent> startEvents =
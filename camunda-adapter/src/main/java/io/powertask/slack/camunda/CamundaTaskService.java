@@ -13,44 +13,187 @@
  */
 package io.powertask.slack.camunda;
 
+import io.powertask.slack.ImmutableTaskPage;
+import io.powertask.slack.TaskPage;
+import io.powertask.slack.TaskPageRequest;
 import io.powertask.slack.TaskService;
+import io.powertask.slack.VariableSummary;
 import io.powertask.slack.usertasks.Task;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.task.TaskQuery;
 
 public class CamundaTaskService implements TaskService {
 
   private final org.camunda.bpm.engine.TaskService taskService;
   private final TaskMapper taskMapper;
+  private final Optional<TaskCache> taskCache;
+  // Without it, jobs are assumed to be pending.
+  private final Optional<ProcessEngine> processEngine;
 
+  public CamundaTaskService(ProcessEngine processEngine, TaskMapper taskMapper) {
+    this(processEngine.getTaskService(), taskMapper, Optional.empty(), Optional.of(processEngine));
+  }
+
+  public CamundaTaskService(
+      ProcessEngine processEngine, TaskMapper taskMapper, TaskCache taskCache) {
+    this(
+        processEngine.getTaskService(),
+        taskMapper,
+        Optional.of(taskCache),
+        Optional.of(processEngine));
+  }
+
+  /**
+   * @deprecated can't see pending jobs, use {@link #CamundaTaskService(ProcessEngine, TaskMapper)}
+   */
+  @Deprecated
   public CamundaTaskService(org.camunda.bpm.engine.TaskService taskService, TaskMapper taskMapper) {
+    this(taskService, taskMapper, Optional.empty(), Optional.empty());
+  }
+
+  /**
+   * @deprecated can't see pending jobs, use {@link #CamundaTaskService(ProcessEngine, TaskMapper,
+   *     TaskCache)}
+   */
+  @Deprecated
+  public CamundaTaskService(
+      org.camunda.bpm.engine.TaskService taskService, TaskMapper taskMapper, TaskCache taskCache) {
+    this(taskService, taskMapper, Optional.of(taskCache), Optional.empty());
+  }
+
+  private CamundaTaskService(
+      org.camunda.bpm.engine.TaskService taskService,
+      TaskMapper taskMapper,
+      Optional<TaskCache> taskCache,
+      Optional<ProcessEngine> processEngine) {
     this.taskService = taskService;
     this.taskMapper = taskMapper;
+    this.taskCache = taskCache;
+    this.processEngine = processEngine;
   }
 
   @Override
   public Task taskById(String taskId) {
+    return taskCache.isPresent()
+        ? taskCache.get().task(taskId, this::queryTask)
+        : queryTask(taskId);
+  }
+
+  private Task queryTask(String taskId) {
     return taskMapper.fromTask(taskService.createTaskQuery().taskId(taskId).singleResult());
   }
 
   @Override
   public List<Task> tasksByAssignee(String assignee) {
-    return taskService.createTaskQuery().taskAssignee(assignee).list().stream()
-        .map(taskMapper::fromTask)
-        .collect(Collectors.toList());
+    return taskMapper.fromTasks(
+        processTasks(taskService.createTaskQuery().taskAssignee(assignee).list()));
+  }
+
+  @Override
+  public TaskPage tasksByAssignee(String assignee, TaskPageRequest pageRequest) {
+    TaskQuery query = taskService.createTaskQuery().taskAssignee(assignee);
+    long total = query.count();
+    List<Task> tasks =
+        total <= pageRequest.offset()
+            ? Collections.emptyList()
+            : taskMapper.fromTasks(
+                processTasks(
+                    sorted(query, pageRequest)
+                        .listPage(pageRequest.offset(), pageRequest.limit())));
+    return ImmutableTaskPage.builder()
+        .tasks(tasks)
+        .offset(pageRequest.offset())
+        .limit(pageRequest.limit())
+        .total(total)
+        .build();
+  }
+
+  // Standalone tasks can be assigned too, but Powertask can't show them.
+  private static List<org.camunda.bpm.engine.task.Task> processTasks(
+      List<org.camunda.bpm.engine.task.Task> tasks) {
+    return tasks.stream().filter(TaskMapper::isProcessTask).collect(Collectors.toList());
+  }
+
+  private static TaskQuery sorted(TaskQuery query, TaskPageRequest pageRequest) {
+    switch (pageRequest.sort()) {
+      case DUE_DATE:
+        query.orderByDueDate();
+        break;
+      case PRIORITY:
+        query.orderByTaskPriority();
+        break;
+      case NAME:
+        query.orderByTaskName();
+        break;
+      case CREATED:
+      default:
+        query.orderByTaskCreateTime();
+    }
+    if (pageRequest.ascending()) {
+      query.asc();
+    } else {
+      query.desc();
+    }
+    // Tie-breaker, so that pages don't overlap when the sort key is equal.
+    return query.orderByTaskId().asc();
+  }
+
+  @Override
+  public void claim(String taskId, String userId) {
+    taskService.claim(taskId, userId);
   }
 
   @Override
   public Optional<Task> followUpTask(String processInstanceId, String assignee) {
-    return taskService.createTaskQuery().taskAssignee(assignee).processInstanceId(processInstanceId)
-        .list().stream()
-        .map(taskMapper::fromTask)
+    return taskMapper
+        .fromTasks(
+            taskService
+                .createTaskQuery()
+                .taskAssignee(assignee)
+                .processInstanceId(processInstanceId)
+                .list())
+        .stream()
         .findFirst();
   }
 
+  @Override
+  public boolean hasPendingJobs(String rootProcessInstanceId) {
+    if (!processEngine.isPresent()) {
+      return true;
+    }
+    RuntimeService runtimeService = processEngine.get().getRuntimeService();
+    Set<String> processInstanceIds = new HashSet<>();
+    Deque<String> toVisit = new ArrayDeque<>(Collections.singleton(rootProcessInstanceId));
+    while (!toVisit.isEmpty()) {
+      String processInstanceId = toVisit.pop();
+      if (processInstanceIds.add(processInstanceId)) {
+        runtimeService
+            .createProcessInstanceQuery()
+            .superProcessInstanceId(processInstanceId)
+            .list()
+            .forEach(called -> toVisit.add(called.getId()));
+      }
+    }
+    return processEngine
+            .get()
+            .getManagementService()
+            .createJobQuery()
+            .processInstanceIds(processInstanceIds)
+            .executable()
+            .count()
+        > 0;
+  }
+
   @Override
   public Map<String, Object> getVariables(String taskId) {
     return taskService.getVariables(taskId);
@@ -66,13 +209,27 @@ public class CamundaTaskService implements TaskService {
     return Optional.ofNullable(taskService.getVariable(taskId, name));
   }
 
+  @Override
+  public Map<String, VariableSummary> getVariableSummaries(String taskId, int maxLength) {
+    return VariableSummarizer.summarize(taskService.getVariablesTyped(taskId, false), maxLength);
+  }
+
+  @Override
+  public Map<String, VariableSummary> getVariableSummaries(
+      String taskId, Set<String> names, int maxLength) {
+    return VariableSummarizer.summarize(
+        taskService.getVariablesTyped(taskId, names, false), maxLength);
+  }
+
   @Override
   public void setVariables(String taskId, Map<String, Object> variables) {
     taskService.setVariables(taskId, variables);
+    taskCache.ifPresent(cache -> cache.invalidate(taskId));
   }
 
   @Override
   public void setVariable(String taskId, String name, Object value) {
     taskService.setVariable(taskId, name, value);
+    taskCache.ifPresent(cache -> cache.invalidate(taskId));
   }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.camunda.bpm.engine.form.FormFieldValidationConstraint;
+import org.camunda.bpm.engine.impl.form.type.EnumFormType;
+
+/**
+ * The parts of a Camunda form field that are fixed by the process definition. Can be built from the
+ * form data of a task, or from the BPMN at deployment time.
+ */
+public final class FieldDefinition {
+  private final String id;
+  private final String type;
+  private final Map<String, String> properties;
+  private final Map<String, Optional<String>> constraints;
+  private final Map<String, String> enumValues;
+
+  public FieldDefinition(
+      String id,
+      String type,
+      Map<String, String> properties,
+      Map<String, Optional<String>> constraints,
+      Map<String, String> enumValues) {
+    this.id = id;
+    this.type = type;
+    this.properties = Collections.unmodifiableMap(new LinkedHashMap<>(properties));
+    this.constraints = Collections.unmodifiableMap(new LinkedHashMap<>(constraints));
+    this.enumValues = Collections.unmodifiableMap(new LinkedHashMap<>(enumValues));
+  }
+
+  public static FieldDefinition of(org.camunda.bpm.engine.form.FormField formField) {
+    Map<String, Optional<String>> constraints = new LinkedHashMap<>();
+    for (FormFieldValidationConstraint constraint : formField.getValidationConstraints()) {
+      constraints.putIfAbsent(
+          constraint.getName(), Optional.ofNullable((String) constraint.getConfiguration()));
+    }
+    Map<String, String> enumValues =
+        formField.getType() instanceof EnumFormType
+            ? ((EnumFormType) formField.getType()).getValues()
+            : Collections.emptyMap();
+    return new FieldDefinition(
+        formField.getId(),
+        formField.getTypeName(),
+        formField.getProperties(),
+        constraints,
+        enumValues);
+  }
+
+  public String id() {
+    return id;
+  }
+
+  public String type() {
+    return type;
+  }
+
+  public Map<String, String> properties() {
+    return properties;
+  }
+
+  public Map<String, Optional<String>> constraints() {
+    return constraints;
+  }
+
+  public Map<String, String> enumValues() {
+    return enumValues;
+  }
+}
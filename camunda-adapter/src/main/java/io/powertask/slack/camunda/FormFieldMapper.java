@@ -14,7 +14,6 @@
 package io.powertask.slack.camunda;
 
 import io.powertask.slack.FormField;
-import io.powertask.slack.formfields.EnumField;
 import io.powertask.slack.formfields.EnumField.EnumValue;
 import io.powertask.slack.formfields.ImmutableBooleanField;
 import io.powertask.slack.formfields.ImmutableDateField;
@@ -25,9 +24,12 @@ import io.powertask.slack.formfields.ImmutableStringField;
 import io.powertask.slack.formfields.ImmutableUserField;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 import org.camunda.bpm.engine.impl.form.type.BooleanFormType;
 import org.camunda.bpm.engine.impl.form.type.DateFormType;
@@ -56,147 +58,186 @@ public class FormFieldMapper {
   private static final String PROPERTY_SLACK_FALSE_LABEL = "slack-false-label";
   private static final String PROPERTY_SLACK_INPUT_TYPE = "slack-input-type";
 
+  private static final Set<String> SUPPORTED_TYPES =
+      new HashSet<>(
+          Arrays.asList(
+              StringFormType.TYPE_NAME,
+              EnumFormType.TYPE_NAME,
+              LongFormType.TYPE_NAME,
+              BooleanFormType.TYPE_NAME,
+              DateFormType.TYPE_NAME));
+
   private FormFieldMapper() {}
 
+  /** Whether fields of this Camunda form type can be shown in Slack. */
+  public static boolean isSupported(String type) {
+    return SUPPORTED_TYPES.contains(type);
+  }
+
+  /** Binds the label and the current value of a form field to its compiled definition. */
+  public interface CompiledField {
+    FormField<?> bind(org.camunda.bpm.engine.form.FormField formField);
+  }
+
   public static FormField<?> map(org.camunda.bpm.engine.form.FormField formField) {
+    return compile(FieldDefinition.of(formField)).bind(formField);
+  }
 
-    if (formField.getType() instanceof StringFormType) {
-      return buildStringField(formField);
-    } else if (formField.getType() instanceof EnumFormType) {
-      return buildEnumField(formField);
-    } else if (formField.getType() instanceof LongFormType) {
-      return buildLongField(formField);
-    } else if (formField.getType() instanceof BooleanFormType) {
-      return buildBooleanField(formField);
-    } else if (formField.getType() instanceof DateFormType) {
-      return buildDateField(formField);
-    } else {
-      throw new RuntimeException("Unknown FormField type: " + formField.getType());
+  /**
+   * Checks and parses everything about a field that doesn't depend on the task, and throws if the
+   * definition is invalid. The result is a template that only needs the label and value per task.
+   */
+  public static CompiledField compile(FieldDefinition definition) {
+    switch (definition.type()) {
+      case StringFormType.TYPE_NAME:
+        return compileStringField(definition);
+      case EnumFormType.TYPE_NAME:
+        return compileEnumField(definition);
+      case LongFormType.TYPE_NAME:
+        return compileLongField(definition);
+      case BooleanFormType.TYPE_NAME:
+        return compileBooleanField(definition);
+      case DateFormType.TYPE_NAME:
+        return compileDateField(definition);
+      default:
+        throw new RuntimeException("Unknown FormField type: " + definition.type());
     }
   }
 
-  public static FormField<?> buildStringField(org.camunda.bpm.engine.form.FormField formField) {
-    Optional<String> type = getStringProperty(formField, PROPERTY_SLACK_INPUT_TYPE);
+  private static CompiledField compileStringField(FieldDefinition definition) {
+    Optional<String> type = getStringProperty(definition, PROPERTY_SLACK_INPUT_TYPE);
 
     if (type.equals(Optional.empty())) {
-      return ImmutableStringField.builder()
-          .id(formField.getId())
-          .label(formField.getLabel())
-          .value(Optional.ofNullable(((StringValue) formField.getValue()).getValue()))
-          .required(hasConstraint(formField, CONSTRAINT_REQUIRED))
-          .hint(getStringProperty(formField, PROPERTY_SLACK_HINT))
-          .placeholder(getStringProperty(formField, PROPERTY_SLACK_PLACEHOLDER))
-          .multiline(getBooleanProperty(formField, PROPERTY_SLACK_MULTILINE).orElse(false))
-          .minLength(getConstraintValue(formField, CONSTRAINT_MINLENGTH).map(Integer::valueOf))
-          .maxLength(getConstraintValue(formField, CONSTRAINT_MAXLENGTH).map(Integer::valueOf))
-          .build();
+      ImmutableStringField template =
+          ImmutableStringField.builder()
+              .id(definition.id())
+              .label(definition.id())
+              .required(hasConstraint(definition, CONSTRAINT_REQUIRED))
+              .hint(getStringProperty(definition, PROPERTY_SLACK_HINT))
+              .placeholder(getStringProperty(definition, PROPERTY_SLACK_PLACEHOLDER))
+              .multiline(getBooleanProperty(definition, PROPERTY_SLACK_MULTILINE).orElse(false))
+              .minLength(getConstraintValue(definition, CONSTRAINT_MINLENGTH).map(Integer::valueOf))
+              .maxLength(getConstraintValue(definition, CONSTRAINT_MAXLENGTH).map(Integer::valueOf))
+              .build();
+      return formField ->
+          template
+              .withLabel(formField.getLabel())
+              .withValue(Optional.ofNullable(((StringValue) formField.getValue()).getValue()));
     } else if (type.equals(Optional.of("user"))) {
-      return ImmutableUserField.builder()
-          .id(formField.getId())
-          .label(formField.getLabel())
-          .value(Optional.ofNullable(((StringValue) formField.getValue()).getValue()))
-          .required(hasConstraint(formField, CONSTRAINT_REQUIRED))
-          .hint(getStringProperty(formField, PROPERTY_SLACK_HINT))
-          .placeholder(getStringProperty(formField, PROPERTY_SLACK_PLACEHOLDER))
-          .build();
+      ImmutableUserField template =
+          ImmutableUserField.builder()
+              .id(definition.id())
+              .label(definition.id())
+              .required(hasConstraint(definition, CONSTRAINT_REQUIRED))
+              .hint(getStringProperty(definition, PROPERTY_SLACK_HINT))
+              .placeholder(getStringProperty(definition, PROPERTY_SLACK_PLACEHOLDER))
+              .build();
+      return formField ->
+          template
+              .withLabel(formField.getLabel())
+              .withValue(Optional.ofNullable(((StringValue) formField.getValue()).getValue()));
     } else {
       throw new RuntimeException("Unknown " + PROPERTY_SLACK_INPUT_TYPE);
     }
   }
 
-  public static EnumField buildEnumField(org.camunda.bpm.engine.form.FormField formField) {
+  private static CompiledField compileEnumField(FieldDefinition definition) {
     Map<String, EnumValue> values = new HashMap<>();
 
-    ((EnumFormType) formField.getType())
-        .getValues()
+    definition
+        .enumValues()
         .forEach(
             (key, value) -> {
               Optional<String> description =
-                  getStringProperty(formField, PROPERTY_SLACK_DESCRIPTION_PREFIX + key);
+                  getStringProperty(definition, PROPERTY_SLACK_DESCRIPTION_PREFIX + key);
               values.put(
                   key, ImmutableEnumValue.builder().text(value).description(description).build());
             });
 
-    return ImmutableEnumField.builder()
-        .id(formField.getId())
-        .label(formField.getLabel())
-        .value(Optional.ofNullable(((StringValue) formField.getValue()).getValue()))
-        .required(hasConstraint(formField, CONSTRAINT_REQUIRED))
-        .hint(getStringProperty(formField, PROPERTY_SLACK_HINT))
-        .values(values)
-        .build();
+    ImmutableEnumField template =
+        ImmutableEnumField.builder()
+            .id(definition.id())
+            .label(definition.id())
+            .required(hasConstraint(definition, CONSTRAINT_REQUIRED))
+            .hint(getStringProperty(definition, PROPERTY_SLACK_HINT))
+            .values(values)
+            .build();
+    return formField ->
+        template
+            .withLabel(formField.getLabel())
+            .withValue(Optional.ofNullable(((StringValue) formField.getValue()).getValue()));
   }
 
-  public static FormField<?> buildLongField(org.camunda.bpm.engine.form.FormField formField) {
-    return ImmutableLongField.builder()
-        .id(formField.getId())
-        .label(formField.getLabel())
-        .value(Optional.ofNullable(((LongValue) formField.getValue()).getValue()))
-        .required(hasConstraint(formField, CONSTRAINT_REQUIRED))
-        .hint(getStringProperty(formField, PROPERTY_SLACK_HINT))
-        .placeholder(getStringProperty(formField, PROPERTY_SLACK_PLACEHOLDER))
-        .min(getLongConstraint(formField, CONSTRAINT_MIN))
-        .max(
-            getLongConstraint(formField, CONSTRAINT_MAX)
-                .map(l -> l - 1)) // Camunda's 'max' constraint is exclusive.
-        .build();
+  private static CompiledField compileLongField(FieldDefinition definition) {
+    ImmutableLongField template =
+        ImmutableLongField.builder()
+            .id(definition.id())
+            .label(definition.id())
+            .required(hasConstraint(definition, CONSTRAINT_REQUIRED))
+            .hint(getStringProperty(definition, PROPERTY_SLACK_HINT))
+            .placeholder(getStringProperty(definition, PROPERTY_SLACK_PLACEHOLDER))
+            .min(getLongConstraint(definition, CONSTRAINT_MIN))
+            .max(
+                getLongConstraint(definition, CONSTRAINT_MAX)
+                    .map(l -> l - 1)) // Camunda's 'max' constraint is exclusive.
+            .build();
+    return formField ->
+        template
+            .withLabel(formField.getLabel())
+            .withValue(Optional.ofNullable(((LongValue) formField.getValue()).getValue()));
   }
 
-  public static FormField<?> buildBooleanField(org.camunda.bpm.engine.form.FormField formField) {
-    return ImmutableBooleanField.builder()
-        .id(formField.getId())
-        .label(formField.getLabel())
-        .value(Optional.ofNullable(((BooleanValue) formField.getValue()).getValue()))
-        .required(hasConstraint(formField, CONSTRAINT_REQUIRED))
-        .hint(getStringProperty(formField, PROPERTY_SLACK_HINT))
-        .trueLabel(getStringProperty(formField, PROPERTY_SLACK_TRUE_LABEL))
-        .falseLabel(getStringProperty(formField, PROPERTY_SLACK_FALSE_LABEL))
-        .build();
+  private static CompiledField compileBooleanField(FieldDefinition definition) {
+    ImmutableBooleanField template =
+        ImmutableBooleanField.builder()
+            .id(definition.id())
+            .label(definition.id())
+            .required(hasConstraint(definition, CONSTRAINT_REQUIRED))
+            .hint(getStringProperty(definition, PROPERTY_SLACK_HINT))
+            .trueLabel(getStringProperty(definition, PROPERTY_SLACK_TRUE_LABEL))
+            .falseLabel(getStringProperty(definition, PROPERTY_SLACK_FALSE_LABEL))
+            .build();
+    return formField ->
+        template
+            .withLabel(formField.getLabel())
+            .withValue(Optional.ofNullable(((BooleanValue) formField.getValue()).getValue()));
   }
 
-  public static FormField<?> buildDateField(org.camunda.bpm.engine.form.FormField formField) {
-    Optional<LocalDate> value =
-        Optional.ofNullable(((StringValue) formField.getValue()).getValue())
-            .map(stringDate -> LocalDate.parse(stringDate, CAMUNDA_DATE_FORMATTER));
-
-    return ImmutableDateField.builder()
-        .id(formField.getId())
-        .label(formField.getLabel())
-        .value(value)
-        .required(hasConstraint(formField, CONSTRAINT_REQUIRED))
-        .hint(getStringProperty(formField, PROPERTY_SLACK_HINT))
-        .placeholder(getStringProperty(formField, PROPERTY_SLACK_PLACEHOLDER))
-        .build();
+  private static CompiledField compileDateField(FieldDefinition definition) {
+    ImmutableDateField template =
+        ImmutableDateField.builder()
+            .id(definition.id())
+            .label(definition.id())
+            .required(hasConstraint(definition, CONSTRAINT_REQUIRED))
+            .hint(getStringProperty(definition, PROPERTY_SLACK_HINT))
+            .placeholder(getStringProperty(definition, PROPERTY_SLACK_PLACEHOLDER))
+            .build();
+    return formField ->
+        template
+            .withLabel(formField.getLabel())
+            .withValue(
+                Optional.ofNullable(((StringValue) formField.getValue()).getValue())
+                    .map(stringDate -> LocalDate.parse(stringDate, CAMUNDA_DATE_FORMATTER)));
   }
 
-  public static Optional<Optional<String>> getConstraint(
-      org.camunda.bpm.engine.form.FormField formField, String name) {
-    return formField.getValidationConstraints().stream()
-        .filter(
-            formFieldValidationConstraint -> formFieldValidationConstraint.getName().equals(name))
-        .map(
-            formFieldValidationConstraint ->
-                Optional.ofNullable((String) formFieldValidationConstraint.getConfiguration()))
-        .findFirst();
+  public static Optional<Optional<String>> getConstraint(FieldDefinition definition, String name) {
+    return Optional.ofNullable(definition.constraints().get(name));
   }
 
-  public static Optional<String> getConstraintValue(
-      org.camunda.bpm.engine.form.FormField formField, String name) {
-    return getConstraint(formField, name).flatMap(Function.identity());
+  public static Optional<String> getConstraintValue(FieldDefinition definition, String name) {
+    return getConstraint(definition, name).flatMap(Function.identity());
   }
 
   // Contrary to our own 'slack-' prefixed boolean properties, we don't check the config for true or
   // false, merely the existence of the constraint is sufficient. This aligns with Camunda's Task
   // List.
-  public static boolean hasConstraint(
-      org.camunda.bpm.engine.form.FormField formField, String name) {
-    return getConstraint(formField, name).isPresent();
+  public static boolean hasConstraint(FieldDefinition definition, String name) {
+    return getConstraint(definition, name).isPresent();
   }
 
-  // TODO, document throwing behaviour
-  public static Optional<Long> getLongConstraint(
-      org.camunda.bpm.engine.form.FormField formField, String name) {
-    return getConstraint(formField, name)
+  // Throws if the constraint is present without a configuration, or if it isn't a number.
+  public static Optional<Long> getLongConstraint(FieldDefinition definition, String name) {
+    return getConstraint(definition, name)
         .map(
             value ->
                 value
@@ -207,19 +248,17 @@ public class FormFieldMapper {
                                 "Configuration for constraint " + name + " missing!")));
   }
 
-  public static Optional<String> getStringProperty(
-      org.camunda.bpm.engine.form.FormField formField, String name) {
-    if (!formField.getProperties().containsKey(name)) {
+  public static Optional<String> getStringProperty(FieldDefinition definition, String name) {
+    if (!definition.properties().containsKey(name)) {
       return Optional.empty();
     } else {
-      return Optional.ofNullable(formField.getProperties().get(name))
+      return Optional.ofNullable(definition.properties().get(name))
           .map(Optional::of) // This looks odd, but we want to throw on null value!
           .orElseThrow(() -> new RuntimeException("Property " + name + " is null!"));
     }
   }
 
-  public static Optional<Boolean> getBooleanProperty(
-      org.camunda.bpm.engine.form.FormField formField, String name) {
-    return getStringProperty(formField, name).map(value -> value.equals("true"));
+  public static Optional<Boolean> getBooleanProperty(FieldDefinition definition, String name) {
+    return getStringProperty(definition, name).map(value -> value.equals("true"));
   }
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda;
+
+import io.powertask.slack.Form;
+import io.powertask.slack.FormField;
+import io.powertask.slack.camunda.FormFieldMapper.CompiledField;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.camunda.bpm.engine.form.FormData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The compiled fields of a form. Only the labels and values of the fields are bound per task, the
+ * rest is parsed once per process definition.
+ */
+public class FormSchema {
+
+  private static final Logger logger = LoggerFactory.getLogger(FormSchema.class);
+
+  private final Map<String, CompiledField> fields;
+
+  private FormSchema(Map<String, CompiledField> fields) {
+    this.fields = fields;
+  }
+
+  /**
+   * Compiles the fields of a form. Fields of a type Powertask doesn't support, such as custom form
+   * types, are skipped here and only fail when a task with them is shown.
+   */
+  public static FormSchema compile(List<FieldDefinition> definitions) {
+    Map<String, CompiledField> fields = new LinkedHashMap<>();
+    for (FieldDefinition definition : definitions) {
+      if (!FormFieldMapper.isSupported(definition.type())) {
+        logger.warn(
+            "Form field "
+                + definition.id()
+                + " has unsupported type "
+                + definition.type()
+                + ", not compiling it.");
+        continue;
+      }
+      fields.put(definition.id(), FormFieldMapper.compile(definition));
+    }
+    return new FormSchema(Collections.unmodifiableMap(fields));
+  }
+
+  public static FormSchema compile(FormData formData) {
+    List<FieldDefinition> definitions = new ArrayList<>();
+    for (org.camunda.bpm.engine.form.FormField formField : formData.getFormFields()) {
+      definitions.add(FieldDefinition.of(formField));
+    }
+    return compile(definitions);
+  }
+
+  public Form bind(FormData formData) {
+    List<FormField<?>> bound = new ArrayList<>(formData.getFormFields().size());
+    for (org.camunda.bpm.engine.form.FormField formField : formData.getFormFields()) {
+      CompiledField field = fields.get(formField.getId());
+      bound.add(field != null ? field.bind(formField) : FormFieldMapper.map(formField));
+    }
+    List<FormField<?>> unmodifiable = Collections.unmodifiableList(bound);
+    return () -> unmodifiable;
+  }
+}
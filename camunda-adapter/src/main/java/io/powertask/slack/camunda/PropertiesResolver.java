@@ -13,49 +13,94 @@
  */
 package io.powertask.slack.camunda;
 
+import io.powertask.slack.BoundedCache;
 import java.util.Collections;
-import java.util.List;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 import org.camunda.bpm.engine.RepositoryService;
 import org.camunda.bpm.model.bpmn.BpmnModelInstance;
 import org.camunda.bpm.model.bpmn.instance.BaseElement;
 import org.camunda.bpm.model.bpmn.instance.ExtensionElements;
 import org.camunda.bpm.model.bpmn.instance.camunda.CamundaProperties;
 import org.camunda.bpm.model.bpmn.instance.camunda.CamundaProperty;
+import org.camunda.bpm.model.xml.instance.ModelElementInstance;
 
+/**
+ * Resolves the `camunda:property` extension properties of BPMN elements.
+ *
+ * <p>The properties of all elements of a process definition are indexed the first time any of them
+ * is requested, so the model is only loaded and walked once per definition. Process definitions are
+ * immutable, so the index never goes stale, but it should be evicted when definitions are removed;
+ * see {@link io.powertask.slack.camunda.plugin.DefinitionChangePlugin}.
+ */
 public class PropertiesResolver {
 
+  public static final int DEFAULT_MAX_DEFINITIONS = 500;
+
   protected final RepositoryService repositoryService;
+  // processDefinitionId -> elementId -> property name -> value
+  private final BoundedCache<String, Map<String, Map<String, Optional<String>>>> index;
 
   public PropertiesResolver(RepositoryService repositoryService) {
+    this(repositoryService, DEFAULT_MAX_DEFINITIONS);
+  }
+
+  public PropertiesResolver(RepositoryService repositoryService, int maxDefinitions) {
     this.repositoryService = repositoryService;
+    this.index = new BoundedCache<>(maxDefinitions);
   }
 
   public Map<String, Optional<String>> getProperties(
       String processDefinitionId, String processDefinitionElementId) {
+    if (processDefinitionId == null) {
+      // Standalone tasks have no definition, and so no properties.
+      return Collections.emptyMap();
+    }
+    return index
+        .computeIfAbsent(processDefinitionId, this::buildIndex)
+        .getOrDefault(processDefinitionElementId, Collections.emptyMap());
+  }
+
+  public void evict(String processDefinitionId) {
+    index.invalidate(processDefinitionId);
+  }
+
+  public void evictAll() {
+    index.invalidateIf(processDefinitionId -> true);
+  }
+
+  private Map<String, Map<String, Optional<String>>> buildIndex(String processDefinitionId) {
     BpmnModelInstance bpmnModelInstance =
         repositoryService.getBpmnModelInstance(processDefinitionId);
 
-    BaseElement bpmnElement = bpmnModelInstance.getModelElementById(processDefinitionElementId);
-
-    ExtensionElements extensionElements = bpmnElement.getExtensionElements();
-    if (extensionElements == null) {
-      return Collections.emptyMap();
+    Map<String, Map<String, Optional<String>>> propertiesByElement = new HashMap<>();
+    for (CamundaProperties properties :
+        bpmnModelInstance.getModelElementsByType(CamundaProperties.class)) {
+      // Only the properties directly in an element's extension elements, not the ones nested in
+      // for example form fields.
+      ModelElementInstance extensionElements = properties.getParentElement();
+      if (!(extensionElements instanceof ExtensionElements)
+          || !(extensionElements.getParentElement() instanceof BaseElement)) {
+        continue;
+      }
+      String elementId = ((BaseElement) extensionElements.getParentElement()).getId();
+      if (elementId == null) {
+        continue;
+      }
+      Map<String, Optional<String>> elementProperties =
+          propertiesByElement.computeIfAbsent(elementId, id -> new LinkedHashMap<>());
+      for (CamundaProperty property : properties.getCamundaProperties()) {
+        // The first occurrence of a property wins.
+        elementProperties.putIfAbsent(
+            property.getCamundaName(), Optional.ofNullable(property.getCamundaValue()));
+      }
     }
 
-    List<CamundaProperties> propertiesSets =
-        extensionElements.getElementsQuery().filterByType(CamundaProperties.class).list();
-
-    return propertiesSets.stream()
-        .flatMap(set -> set.getCamundaProperties().stream())
-        .collect(
-            Collectors.toMap(
-                CamundaProperty::getCamundaName,
-                camundaProperty -> Optional.ofNullable(camundaProperty.getCamundaValue()),
-                (v1, v2) -> v1));
+    propertiesByElement.replaceAll((elementId, p) -> Collections.unmodifiableMap(p));
+    return propertiesByElement;
   }
 
   Optional<String> getProperty(
@@ -16,8 +16,11 @@ package io.powertask.slack.camunda;
 import static io.powertask.slack.camunda.TaskMapper.PROPERTY_SLACK_DESCRIPTION;
 import static io.powertask.slack.camunda.TaskMapper.PROPERTY_SLACK_TITLE;
 
+import io.powertask.slack.ImmutableStartEvent;
 import io.powertask.slack.StartEvent;
 import java.util.Optional;
+import org.camunda.bpm.model.bpmn.instance.ExtensionElements;
+import org.camunda.bpm.model.bpmn.instance.camunda.CamundaFormData;
 
 public class StartEventMapper {
 
@@ -29,35 +32,29 @@ public class StartEventMapper {
 
   public StartEvent of(
       org.camunda.bpm.model.bpmn.instance.StartEvent startEvent, String processDefinitionId) {
-    return new StartEvent() {
-
-      @Override
-      public String name() {
-        return Optional.ofNullable(startEvent.getName()).orElse("Nameless start event");
-      }
-
-      @Override
-      public String processDefinitionId() {
-        return processDefinitionId;
-      }
-
-      @Override
-      public String title() {
-        return propertiesResolver
-            .getProperty(processDefinitionId, startEvent.getId(), PROPERTY_SLACK_TITLE)
-            .orElse(name());
-      }
-
-      @Override
-      public Optional<String> description() {
-        return propertiesResolver.getProperty(
-            processDefinitionId, startEvent.getId(), PROPERTY_SLACK_DESCRIPTION);
-      }
+    String name = Optional.ofNullable(startEvent.getName()).orElse("Nameless start event");
+    return ImmutableStartEvent.builder()
+        .name(name)
+        .processDefinitionId(processDefinitionId)
+        .title(
+            propertiesResolver
+                .getProperty(processDefinitionId, startEvent.getId(), PROPERTY_SLACK_TITLE)
+                .orElse(name))
+        .description(
+            propertiesResolver.getProperty(
+                processDefinitionId, startEvent.getId(), PROPERTY_SLACK_DESCRIPTION))
+        .initiatorVariableName(Optional.ofNullable(startEvent.getCamundaInitiator()))
+        .hasForm(hasForm(startEvent))
+        .build();
+  }
 
-      @Override
-      public Optional<String> initiatorVariableName() {
-        return Optional.ofNullable(startEvent.getCamundaInitiator());
-      }
-    };
+  private static boolean hasForm(org.camunda.bpm.model.bpmn.instance.StartEvent startEvent) {
+    if (startEvent.getCamundaFormKey() != null || startEvent.getCamundaFormHandlerClass() != null) {
+      return true;
+    }
+    ExtensionElements extensionElements = startEvent.getExtensionElements();
+    return extensionElements != null
+        && extensionElements.getElementsQuery().filterByType(CamundaFormData.class).list().stream()
+            .anyMatch(formData -> !formData.getCamundaFormFields().isEmpty());
   }
 }
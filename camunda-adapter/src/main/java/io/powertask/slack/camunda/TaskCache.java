@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda;
+
+import io.powertask.slack.BoundedCache;
+import io.powertask.slack.Form;
+import io.powertask.slack.usertasks.Task;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Task snapshots and bound task forms, for the Slack interactions that look up the same task a few
+ * times within seconds.
+ *
+ * <p>Entries are invalidated by task events, see {@link
+ * io.powertask.slack.camunda.plugin.TaskCacheParseListener}, and by changes made through the
+ * Powertask services. Variables can also be changed by the process without the task noticing, so
+ * entries expire after a while as well.
+ */
+public class TaskCache {
+
+  public static final int DEFAULT_MAX_TASKS = 1000;
+  public static final Duration DEFAULT_MAX_AGE = Duration.ofSeconds(30);
+
+  private final BoundedCache<String, Entry<Task>> tasks;
+  private final BoundedCache<String, Entry<Optional<Form>>> forms;
+  private final long maxAgeNanos;
+
+  // Incremented on every invalidation. A value that was loaded while an invalidation happened may
+  // already be outdated, so it isn't stored.
+  private final AtomicLong generation = new AtomicLong();
+
+  private static final class Entry<T> {
+    private final T value;
+    private final long loadedAtNanos;
+
+    private Entry(T value, long loadedAtNanos) {
+      this.value = value;
+      this.loadedAtNanos = loadedAtNanos;
+    }
+  }
+
+  public TaskCache() {
+    this(DEFAULT_MAX_TASKS, DEFAULT_MAX_AGE);
+  }
+
+  public TaskCache(int maxTasks, Duration maxAge) {
+    this.tasks = new BoundedCache<>(maxTasks);
+    this.forms = new BoundedCache<>(maxTasks);
+    this.maxAgeNanos = maxAge.toNanos();
+  }
+
+  Task task(String taskId, Function<String, Task> load) {
+    return get(tasks, taskId, load);
+  }
+
+  Optional<Form> form(String taskId, Function<String, Optional<Form>> load) {
+    return get(forms, taskId, load);
+  }
+
+  public void invalidate(String taskId) {
+    generation.incrementAndGet();
+    tasks.invalidate(taskId);
+    forms.invalidate(taskId);
+  }
+
+  public void invalidateAll() {
+    generation.incrementAndGet();
+    tasks.invalidateIf(key -> true);
+    forms.invalidateIf(key -> true);
+  }
+
+  private <T> T get(BoundedCache<String, Entry<T>> cache, String taskId, Function<String, T> load) {
+    long now = System.nanoTime();
+    Optional<Entry<T>> cached = cache.get(taskId);
+    if (cached.isPresent() && now - cached.get().loadedAtNanos < maxAgeNanos) {
+      return cached.get().value;
+    }
+    long loadGeneration = generation.get();
+    T value = load.apply(taskId);
+    if (generation.get() == loadGeneration) {
+      cache.put(taskId, new Entry<>(value, now));
+    }
+    return value;
+  }
+}
@@ -13,14 +13,33 @@
  */
 package io.powertask.slack.camunda;
 
+import io.powertask.slack.usertasks.ImmutableTask;
 import io.powertask.slack.usertasks.Task;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.camunda.bpm.engine.RuntimeService;
 import org.camunda.bpm.engine.delegate.DelegateTask;
-
+import org.camunda.bpm.engine.impl.persistence.entity.ExecutionEntity;
+import org.camunda.bpm.engine.runtime.VariableInstance;
+import org.camunda.bpm.engine.task.IdentityLink;
+import org.camunda.bpm.engine.task.IdentityLinkType;
+
+/**
+ * Maps Camunda tasks to immutable {@link Task} snapshots. Everything a task needs is resolved while
+ * mapping, so the result holds no references to engine entities and can be used after the
+ * transaction has ended.
+ */
 public class TaskMapper {
 
   private final PropertiesResolver propertiesResolver;
@@ -37,138 +56,182 @@ public class TaskMapper {
     this.runtimeService = runtimeService;
   }
 
+  // A single task is looked up to act on it, so this also resolves its root process instance, which
+  // lists of tasks leave at the task's own process instance.
   Task fromTask(org.camunda.bpm.engine.task.Task task) {
-    return new Task() {
-
-      @Override
-      public String assignee() {
-        return task.getAssignee();
-      }
-
-      @Override
-      public String id() {
-        return task.getId();
-      }
-
-      @Override
-      public String name() {
-        return task.getName();
-      }
-
-      @Override
-      public String title() {
-        return propertiesResolver
-            .getProperty(
-                task.getProcessDefinitionId(), task.getTaskDefinitionKey(), PROPERTY_SLACK_TITLE)
-            .orElse(task.getName());
-      }
-
-      @Override
-      public Optional<String> description() {
-        return propertiesResolver.getProperty(
-            task.getProcessDefinitionId(), task.getTaskDefinitionKey(), PROPERTY_SLACK_DESCRIPTION);
-      }
-
-      @Override
-      public String processDefinitionId() {
-        return task.getProcessDefinitionId();
-      }
-
-      @Override
-      public String processInstanceId() {
-        return task.getProcessInstanceId();
-      }
+    Task mapped = fromTasks(Collections.singletonList(task)).get(0);
+    ExecutionEntity processInstance =
+        (ExecutionEntity)
+            runtimeService
+                .createProcessInstanceQuery()
+                .processInstanceId(task.getProcessInstanceId())
+                .singleResult();
+    return processInstance == null
+        ? mapped
+        : ImmutableTask.copyOf(mapped)
+            .withRootProcessInstanceId(processInstance.getRootProcessInstanceId());
+  }
 
-      @Override
-      public Optional<String> errorMessage() {
-        return Optional.ofNullable(
-            (String)
-                runtimeService.getVariable(task.getExecutionId(), VARIABLE_TASK_ERROR_MESSAGE));
-      }
+  /**
+   * Maps a list of tasks, fetching the error messages of all of them with a single variable query.
+   * Like {@link #fromTask}, this throws for standalone tasks, that aren't part of a process; see
+   * {@link #isProcessTask}.
+   */
+  List<Task> fromTasks(List<org.camunda.bpm.engine.task.Task> tasks) {
+    for (org.camunda.bpm.engine.task.Task task : tasks) {
+      if (!isProcessTask(task)) {
+        throw new IllegalArgumentException("Task " + task.getId() + " is not part of a process");
+      }
+    }
+    Map<String, String> errorMessages = errorMessages(tasks);
+
+    List<Task> mapped = new ArrayList<>(tasks.size());
+    for (org.camunda.bpm.engine.task.Task task : tasks) {
+      Optional<String> errorMessage = Optional.ofNullable(errorMessages.get(task.getId()));
+      mapped.add(
+          build(
+                  task.getId(),
+                  task.getName(),
+                  task.getProcessDefinitionId(),
+                  task.getProcessInstanceId(),
+                  task.getTaskDefinitionKey(),
+                  errorMessage)
+              .assignee(Optional.ofNullable(task.getAssignee()))
+              // Identity links aren't part of query results; candidates are only known for tasks
+              // that come from task events.
+              .build());
+    }
+    return mapped;
+  }
 
-      @Override
-      public Optional<Optional<List<String>>> showVariables() {
-        return propertiesResolver
-            .getPropertyWithOptionalValue(
-                task.getProcessDefinitionId(),
-                task.getTaskDefinitionKey(),
-                PROPERTY_SLACK_SHOW_VARIABLES)
-            .map(
-                v ->
-                    v.map(
-                        s ->
-                            Arrays.stream(s.split(","))
-                                .map(String::trim)
-                                .collect(Collectors.toList())));
-      }
-    };
+  /** Only tasks that are part of a process can be mapped; standalone tasks have no definition. */
+  static boolean isProcessTask(org.camunda.bpm.engine.task.Task task) {
+    return task.getProcessInstanceId() != null;
   }
 
   public Task fromDelegateTask(DelegateTask delegateTask) {
-    return new Task() {
-      @Override
-      public String assignee() {
-        return delegateTask.getAssignee();
-      }
-
-      @Override
-      public String id() {
-        return delegateTask.getId();
-      }
-
-      @Override
-      public String name() {
-        return delegateTask.getName();
-      }
-
-      @Override
-      public String title() {
-        return propertiesResolver
-            .getProperty(
-                delegateTask.getProcessDefinitionId(),
-                delegateTask.getTaskDefinitionKey(),
-                PROPERTY_SLACK_TITLE)
-            .orElse(delegateTask.getName());
-      }
-
-      @Override
-      public Optional<String> description() {
-        return propertiesResolver.getProperty(
+    List<IdentityLink> candidates =
+        delegateTask.getCandidates().stream()
+            .filter(link -> IdentityLinkType.CANDIDATE.equals(link.getType()))
+            .collect(Collectors.toList());
+    String rootProcessInstanceId =
+        delegateTask.getExecution() instanceof ExecutionEntity
+            ? ((ExecutionEntity) delegateTask.getExecution()).getRootProcessInstanceId()
+            : delegateTask.getProcessInstanceId();
+
+    return build(
+            delegateTask.getId(),
+            delegateTask.getName(),
             delegateTask.getProcessDefinitionId(),
+            delegateTask.getProcessInstanceId(),
             delegateTask.getTaskDefinitionKey(),
-            PROPERTY_SLACK_DESCRIPTION);
-      }
+            // Within the transaction, the variable is read from the entities the engine already
+            // has loaded.
+            Optional.ofNullable((String) delegateTask.getVariable(VARIABLE_TASK_ERROR_MESSAGE)))
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .assignee(Optional.ofNullable(delegateTask.getAssignee()))
+        .candidateUsers(distinct(candidates, IdentityLink::getUserId))
+        .candidateGroups(distinct(candidates, IdentityLink::getGroupId))
+        .build();
+  }
 
-      @Override
-      public String processDefinitionId() {
-        return delegateTask.getProcessDefinitionId();
-      }
+  /**
+   * Same as {@link #fromDelegateTask}, which already returns a detached copy. Kept for callers that
+   * want to make explicit that the task outlives the transaction.
+   */
+  public Task snapshot(DelegateTask delegateTask) {
+    return fromDelegateTask(delegateTask);
+  }
 
-      @Override
-      public String processInstanceId() {
-        return delegateTask.getProcessInstanceId();
-      }
+  private ImmutableTask.Builder build(
+      String id,
+      String name,
+      String processDefinitionId,
+      String processInstanceId,
+      String taskDefinitionKey,
+      Optional<String> errorMessage) {
+    Map<String, Optional<String>> properties =
+        propertiesResolver.getProperties(processDefinitionId, taskDefinitionKey);
+    // Unnamed tasks are shown by their key.
+    String nameOrKey = Optional.ofNullable(name).orElse(taskDefinitionKey);
+
+    return ImmutableTask.builder()
+        .id(id)
+        .name(nameOrKey)
+        .title(property(properties, PROPERTY_SLACK_TITLE).orElse(nameOrKey))
+        .description(property(properties, PROPERTY_SLACK_DESCRIPTION))
+        .processDefinitionId(processDefinitionId)
+        .processInstanceId(processInstanceId)
+        .taskDefinitionKey(taskDefinitionKey)
+        .errorMessage(errorMessage)
+        .showVariables(
+            Optional.ofNullable(properties.get(PROPERTY_SLACK_SHOW_VARIABLES))
+                .map(
+                    v ->
+                        v.map(
+                            s ->
+                                Arrays.stream(s.split(","))
+                                    .map(String::trim)
+                                    .collect(Collectors.toList()))));
+  }
 
-      @Override
-      public Optional<String> errorMessage() {
-        return Optional.ofNullable((String) delegateTask.getVariable(VARIABLE_TASK_ERROR_MESSAGE));
-      }
+  private static Optional<String> property(Map<String, Optional<String>> properties, String name) {
+    return Optional.ofNullable(properties.get(name)).flatMap(Function.identity());
+  }
 
-      @Override
-      public Optional<Optional<List<String>>> showVariables() {
-        return propertiesResolver
-            .getPropertyWithOptionalValue(
-                delegateTask.getProcessDefinitionId(),
-                delegateTask.getTaskDefinitionKey(),
-                PROPERTY_SLACK_SHOW_VARIABLES)
-            .map(
-                v ->
-                    v.map(
-                        s ->
-                            Arrays.stream(s.split(","))
-                                .map(String::trim)
-                                .collect(Collectors.toList())));
-      }
-    };
+  private static List<String> distinct(
+      List<IdentityLink> links, Function<IdentityLink, String> id) {
+    return links.stream().map(id).filter(Objects::nonNull).distinct().collect(Collectors.toList());
+  }
+
+  // The error message is set through the task, so it normally ends up on the process instance.
+  // Like in a normal variable lookup, the variable closest to the task's execution wins. The query
+  // returns the variables of all executions, but not how they're nested; for a task whose process
+  // instance has the variable on an execution other than its own or the root, the lookup is left to
+  // the engine. Keyed by task id.
+  private Map<String, String> errorMessages(List<org.camunda.bpm.engine.task.Task> tasks) {
+    if (tasks.isEmpty()) {
+      return Collections.emptyMap();
+    }
+    Set<String> processInstanceIds = new LinkedHashSet<>();
+    for (org.camunda.bpm.engine.task.Task task : tasks) {
+      processInstanceIds.add(task.getProcessInstanceId());
+    }
+
+    Map<String, String> byExecution = new HashMap<>();
+    Set<String> nested = new HashSet<>();
+    for (VariableInstance variable :
+        runtimeService
+            .createVariableInstanceQuery()
+            .variableName(VARIABLE_TASK_ERROR_MESSAGE)
+            .processInstanceIdIn(processInstanceIds.toArray(new String[0]))
+            .disableCustomObjectDeserialization()
+            .list()) {
+      // Task local variables belong to one task only, and the error message is never set locally.
+      if (variable.getTaskId() == null && variable.getValue() instanceof String) {
+        byExecution.put(variable.getExecutionId(), (String) variable.getValue());
+        if (!variable.getExecutionId().equals(variable.getProcessInstanceId())) {
+          nested.add(variable.getProcessInstanceId());
+        }
+      }
+    }
+
+    Map<String, String> errorMessages = new HashMap<>();
+    for (org.camunda.bpm.engine.task.Task task : tasks) {
+      String errorMessage;
+      if (task.getExecutionId() != null && byExecution.containsKey(task.getExecutionId())) {
+        errorMessage = byExecution.get(task.getExecutionId());
+      } else if (task.getExecutionId() != null && nested.contains(task.getProcessInstanceId())) {
+        Object value =
+            runtimeService.getVariable(task.getExecutionId(), VARIABLE_TASK_ERROR_MESSAGE);
+        errorMessage = value instanceof String ? (String) value : null;
+      } else {
+        errorMessage = byExecution.get(task.getProcessInstanceId());
+      }
+      if (errorMessage != null) {
+        errorMessages.put(task.getId(), errorMessage);
+      }
+    }
+    return errorMessages;
   }
 }
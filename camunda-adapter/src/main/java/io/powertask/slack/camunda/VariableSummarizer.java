@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda;
+
+import io.powertask.slack.ImmutableVariableSummary;
+import io.powertask.slack.VariableSummary;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.camunda.bpm.engine.variable.VariableMap;
+import org.camunda.bpm.engine.variable.Variables.SerializationDataFormats;
+import org.camunda.bpm.engine.variable.type.ValueType;
+import org.camunda.bpm.engine.variable.value.FileValue;
+import org.camunda.bpm.engine.variable.value.ObjectValue;
+import org.camunda.bpm.engine.variable.value.SerializableValue;
+import org.camunda.bpm.engine.variable.value.TypedValue;
+
+// Turns variables that were fetched without deserializing them into display text.
+class VariableSummarizer {
+
+  private VariableSummarizer() {}
+
+  static Map<String, VariableSummary> summarize(VariableMap variables, int maxLength) {
+    if (maxLength < 1) {
+      throw new IllegalArgumentException("maxLength must be at least 1");
+    }
+    Map<String, VariableSummary> summaries = new LinkedHashMap<>();
+    for (String name : variables.keySet()) {
+      TypedValue value = variables.getValueTyped(name);
+      summaries.put(name, summarize(value, maxLength));
+    }
+    return summaries;
+  }
+
+  static VariableSummary summarize(TypedValue value, int maxLength) {
+    String type = value.getType() == null ? "untyped" : value.getType().getName();
+
+    if (value instanceof SerializableValue) {
+      SerializableValue serializable = (SerializableValue) value;
+      // Serialized Java objects are binary, other formats like JSON and XML are readable.
+      if (SerializationDataFormats.JAVA.getName().equals(serializable.getSerializationDataFormat())
+          || serializable.getValueSerialized() == null) {
+        return described(type, "<" + objectTypeName(serializable) + ">");
+      }
+      return text(type, serializable.getValueSerialized(), maxLength);
+    } else if (value instanceof FileValue) {
+      return described(type, "<file " + ((FileValue) value).getFilename() + ">");
+    } else if (ValueType.BYTES.equals(value.getType())) {
+      byte[] bytes = (byte[]) value.getValue();
+      return described(type, "<" + (bytes == null ? 0 : bytes.length) + " bytes>");
+    }
+    return text(type, String.valueOf(value.getValue()), maxLength);
+  }
+
+  private static String objectTypeName(SerializableValue value) {
+    if (value instanceof ObjectValue && ((ObjectValue) value).getObjectTypeName() != null) {
+      return ((ObjectValue) value).getObjectTypeName();
+    }
+    return "serialized " + value.getType().getName();
+  }
+
+  private static VariableSummary described(String type, String description) {
+    return ImmutableVariableSummary.builder().type(type).text(description).truncated(false).build();
+  }
+
+  private static VariableSummary text(String type, String text, int maxLength) {
+    if (text.length() <= maxLength) {
+      return ImmutableVariableSummary.builder().type(type).text(text).truncated(false).build();
+    }
+    int end = maxLength;
+    // Don't split a surrogate pair.
+    if (Character.isHighSurrogate(text.charAt(end - 1))) {
+      end--;
+    }
+    return ImmutableVariableSummary.builder()
+        .type(type)
+        .text(text.substring(0, end))
+        .truncated(true)
+        .build();
+  }
+}
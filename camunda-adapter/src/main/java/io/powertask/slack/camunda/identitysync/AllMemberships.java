@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda.identitysync;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import org.camunda.bpm.engine.IdentityService;
+import org.camunda.bpm.engine.impl.ServiceImpl;
+import org.camunda.bpm.engine.impl.identity.db.DbReadOnlyIdentityServiceProvider;
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+
+/**
+ * Reads the memberships of all groups from the engine.
+ *
+ * <p>The identity service can only list the members of one group at a time. With the engine's own
+ * database identity provider, the membership table is read with a single query instead.
+ */
+class AllMemberships {
+
+  private static final int FETCH_SIZE = 1000;
+
+  private AllMemberships() {}
+
+  /** Passes each membership of one of the given groups to {@code membership}, as user and group. */
+  static void load(
+      IdentityService identityService,
+      Set<String> groupIds,
+      BiConsumer<String, String> membership) {
+    boolean loaded =
+        identityService instanceof ServiceImpl
+            && ((ServiceImpl) identityService)
+                .getCommandExecutor()
+                .execute(new LoadMembershipsCmd(groupIds, membership));
+    if (!loaded) {
+      groupIds.forEach(
+          groupId ->
+              identityService
+                  .createUserQuery()
+                  .memberOfGroup(groupId)
+                  .list()
+                  .forEach(user -> membership.accept(user.getId(), groupId)));
+    }
+  }
+
+  // Returns false, without loading anything, when the identity provider is LDAP or a custom one.
+  private static class LoadMembershipsCmd implements Command<Boolean> {
+
+    private final Set<String> groupIds;
+    private final BiConsumer<String, String> membership;
+
+    LoadMembershipsCmd(Set<String> groupIds, BiConsumer<String, String> membership) {
+      this.groupIds = groupIds;
+      this.membership = membership;
+    }
+
+    @Override
+    public Boolean execute(CommandContext commandContext) {
+      if (!(commandContext.getReadOnlyIdentityProvider()
+          instanceof DbReadOnlyIdentityServiceProvider)) {
+        return false;
+      }
+      String table =
+          commandContext.getProcessEngineConfiguration().getDatabaseTablePrefix()
+              + "ACT_ID_MEMBERSHIP";
+      Connection connection = commandContext.getDbSqlSession().getSqlSession().getConnection();
+      try (PreparedStatement statement =
+          connection.prepareStatement("SELECT USER_ID_, GROUP_ID_ FROM " + table)) {
+        statement.setFetchSize(FETCH_SIZE);
+        try (ResultSet resultSet = statement.executeQuery()) {
+          while (resultSet.next()) {
+            String groupId = resultSet.getString(2);
+            if (groupIds.contains(groupId)) {
+              membership.accept(resultSet.getString(1), groupId);
+            }
+          }
+        }
+      } catch (SQLException e) {
+        throw new RuntimeException("Failed to read the group memberships", e);
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda.identitysync;
+
+import com.slack.api.methods.Methods;
+import com.slack.api.methods.MethodsClient;
+import com.slack.api.methods.response.conversations.ConversationsListResponse;
+import com.slack.api.methods.response.conversations.ConversationsMembersResponse;
+import com.slack.api.model.ConversationType;
+import com.slack.api.model.User;
+import io.powertask.slack.FutureOps;
+import io.powertask.slack.camunda.identitysync.IdentitySync.Group;
+import io.powertask.slack.camunda.identitysync.IdentitySyncConfiguration.GroupMode;
+import io.powertask.slack.scheduling.NotificationScheduler;
+import io.powertask.slack.scheduling.SlackPager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+/**
+ * Reads users, groups and group members from Slack for {@link IdentitySync}.
+ *
+ * <p>Every listing is followed through all its pages. Calls go through a {@link SlackPager}, so
+ * they're paced per method tier and retried when rate limited; they run on the given executor,
+ * whose size bounds how many are in flight at once. Member listings are started for a bounded
+ * number of groups at a time, so a sync doesn't fill the scheduler's queue, which it shares with
+ * task notifications.
+ */
+class DirectoryFetcher {
+
+  private final MethodsClient methodsClient;
+  private final SlackPager pager;
+  private final int maxGroupsInFlight;
+
+  DirectoryFetcher(
+      MethodsClient methodsClient,
+      NotificationScheduler scheduler,
+      Executor executor,
+      int maxGroupsInFlight) {
+    this.methodsClient = methodsClient;
+    this.pager = new SlackPager(methodsClient, scheduler, executor);
+    this.maxGroupsInFlight = maxGroupsInFlight;
+  }
+
+  Set<User> users() {
+    return join(pager.users()).stream()
+        .filter(IdentitySync::isSyncedUser)
+        .collect(Collectors.toSet());
+  }
+
+  Set<Group> channels() {
+    return join(
+            pager.pages(
+                Methods.CONVERSATIONS_LIST,
+                cursor ->
+                    methodsClient.conversationsList(
+                        req ->
+                            req.types(
+                                    Arrays.asList(
+                                        ConversationType.PRIVATE_CHANNEL,
+                                        ConversationType.PUBLIC_CHANNEL))
+                                .cursor(cursor)
+                                .limit(SlackPager.PAGE_SIZE)),
+                ConversationsListResponse::getResponseMetadata))
+        .stream()
+        .flatMap(response -> response.getChannels().stream())
+        .filter(conversation -> !conversation.isGeneral())
+        .map(conversation -> new Group(conversation.getId(), conversation.getNameNormalized()))
+        .collect(Collectors.toSet());
+  }
+
+  Set<Group> usergroups() {
+    // usergroups.list isn't paginated.
+    return join(pager.call(Methods.USERGROUPS_LIST, () -> methodsClient.usergroupsList(req -> req)))
+        .getUsergroups().stream()
+        .map(group -> new Group(group.getId(), group.getName()))
+        .collect(Collectors.toSet());
+  }
+
+  Set<String> members(String groupId, GroupMode groupMode) {
+    return join(membersAsync(groupId, groupMode));
+  }
+
+  /** Fetches the members of all the given groups, a bounded number of groups at a time. */
+  Map<String, Set<String>> members(Collection<String> groupIds, GroupMode groupMode) {
+    List<String> groupIdList = new ArrayList<>(groupIds);
+    List<Set<String>> groupMembers =
+        join(
+            FutureOps.traverse(
+                    groupIdList, maxGroupsInFlight, groupId -> membersAsync(groupId, groupMode))
+                .toCompletableFuture());
+
+    Map<String, Set<String>> members = new HashMap<>();
+    for (int i = 0; i < groupIdList.size(); i++) {
+      members.put(groupIdList.get(i), groupMembers.get(i));
+    }
+    return members;
+  }
+
+  private CompletableFuture<Set<String>> membersAsync(String groupId, GroupMode groupMode) {
+    switch (groupMode) {
+      case GROUPS:
+        // usergroups.users.list isn't paginated either.
+        return pager
+            .call(
+                Methods.USERGROUPS_USERS_LIST,
+                () -> methodsClient.usergroupsUsersList(req -> req.usergroup(groupId)))
+            .thenApply(response -> new HashSet<>(response.getUsers()));
+      case CHANNELS:
+        return pager
+            .pages(
+                Methods.CONVERSATIONS_MEMBERS,
+                cursor ->
+                    methodsClient.conversationsMembers(
+                        req -> req.channel(groupId).cursor(cursor).limit(SlackPager.PAGE_SIZE)),
+                ConversationsMembersResponse::getResponseMetadata)
+            .thenApply(
+                responses ->
+                    responses.stream()
+                        .flatMap(response -> response.getMembers().stream())
+                        .collect(Collectors.toSet()));
+    }
+    throw new RuntimeException("Unexpected Group Mode!");
+  }
+
+  private static <T> T join(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda.identitysync;
+
+import static io.powertask.slack.camunda.identitysync.IdentitySync.CAMUNDA_ADMIN_GROUP;
+import static io.powertask.slack.camunda.identitysync.IdentitySync.SYNCED_GROUP_TYPE;
+
+import com.slack.api.model.User;
+import io.powertask.slack.camunda.identitysync.IdentitySync.Name;
+import io.powertask.slack.camunda.identitysync.IdentitySyncConfiguration.AdminMode;
+import java.util.Collection;
+import java.util.Collections;
+import org.camunda.bpm.engine.IdentityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Applies single changes from Slack events to the Camunda identity service, leaving the affected
+ * users, groups and memberships the way a full {@link IdentitySync} run would. Unlike a full sync,
+ * it also updates the name and email of users that already exist.
+ *
+ * <p>Changes that refer to users or groups that haven't been synced yet are skipped; the next full
+ * sync picks those up.
+ */
+class IdentityDeltas {
+
+  private static final Logger logger = LoggerFactory.getLogger(IdentityDeltas.class);
+
+  private final IdentitySyncConfiguration configuration;
+  private final IdentityService identityService;
+
+  IdentityDeltas(IdentitySyncConfiguration configuration, IdentityService identityService) {
+    this.configuration = configuration;
+    this.identityService = identityService;
+  }
+
+  void userChanged(User user) {
+    if (!IdentitySync.isSyncedUser(user)) {
+      // A full sync drops users that are no longer synced, such as deactivated ones.
+      if (userExists(user.getId())) {
+        logger.info("User " + user.getId() + " is no longer synced, deleted.");
+        identityService.deleteUser(user.getId());
+      }
+      return;
+    }
+
+    org.camunda.bpm.engine.identity.User engineUser =
+        identityService.createUserQuery().userId(user.getId()).singleResult();
+    if (engineUser == null) {
+      engineUser = identityService.newUser(user.getId());
+      logger.info("New user " + user.getId() + " (" + user.getProfile().getEmail() + ") inserted.");
+    } else {
+      logger.debug("User " + user.getId() + " (" + user.getProfile().getEmail() + ") updated.");
+    }
+    Name name = new Name(user.getRealName());
+    engineUser.setFirstName(name.getFirstName());
+    engineUser.setLastName(name.getLastName());
+    engineUser.setEmail(user.getProfile().getEmail());
+    identityService.saveUser(engineUser);
+
+    if (configuration.getAdminMode() == AdminMode.SLACK_ADMIN) {
+      if (user.isAdmin()) {
+        addMember(CAMUNDA_ADMIN_GROUP, user.getId());
+      } else {
+        removeMember(CAMUNDA_ADMIN_GROUP, user.getId());
+      }
+    }
+  }
+
+  void groupCreated(String groupId, String name, Collection<String> members) {
+    if (!groupExists(groupId)) {
+      org.camunda.bpm.engine.identity.Group group = identityService.newGroup(groupId);
+      group.setName(name);
+      group.setType(SYNCED_GROUP_TYPE);
+      logger.info("New group " + groupId + " (" + name + ") inserted!");
+      identityService.saveGroup(group);
+    }
+    membersChanged(groupId, members, Collections.emptyList());
+  }
+
+  void membersChanged(String groupId, Collection<String> added, Collection<String> removed) {
+    added.forEach(userId -> memberJoined(groupId, userId));
+    removed.forEach(userId -> memberLeft(groupId, userId));
+  }
+
+  void memberJoined(String groupId, String userId) {
+    addMember(groupId, userId);
+    if (isAdminGroup(groupId)) {
+      addMember(CAMUNDA_ADMIN_GROUP, userId);
+    }
+  }
+
+  void memberLeft(String groupId, String userId) {
+    removeMember(groupId, userId);
+    if (isAdminGroup(groupId)) {
+      removeMember(CAMUNDA_ADMIN_GROUP, userId);
+    }
+  }
+
+  private boolean isAdminGroup(String groupId) {
+    return configuration.getAdminMode() == AdminMode.GROUP
+        && groupId.equals(configuration.getAdminGroupId());
+  }
+
+  private void addMember(String groupId, String userId) {
+    if (groupExists(groupId) && userExists(userId) && !isMember(groupId, userId)) {
+      logger.info("Adding user " + userId + " to group " + groupId);
+      identityService.createMembership(userId, groupId);
+    }
+  }
+
+  private void removeMember(String groupId, String userId) {
+    if (isMember(groupId, userId)) {
+      logger.info("Removing user " + userId + " from group " + groupId);
+      identityService.deleteMembership(userId, groupId);
+    }
+  }
+
+  private boolean userExists(String userId) {
+    return identityService.createUserQuery().userId(userId).count() > 0;
+  }
+
+  private boolean groupExists(String groupId) {
+    return identityService.createGroupQuery().groupId(groupId).count() > 0;
+  }
+
+  private boolean isMember(String groupId, String userId) {
+    return identityService.createUserQuery().userId(userId).memberOfGroup(groupId).count() > 0;
+  }
+}
@@ -13,21 +13,28 @@
  */
 package io.powertask.slack.camunda.identitysync;
 
-import static io.powertask.slack.SlackApiOps.requireOk;
-
 import com.slack.api.methods.MethodsClient;
-import com.slack.api.methods.response.users.UsersListResponse;
-import com.slack.api.model.ConversationType;
 import com.slack.api.model.User;
+import com.slack.api.model.event.MemberJoinedChannelEvent;
+import com.slack.api.model.event.MemberLeftChannelEvent;
+import com.slack.api.model.event.SubteamCreatedEvent;
+import com.slack.api.model.event.SubteamMembersChangedEvent;
+import com.slack.api.model.event.TeamJoinEvent;
+import com.slack.api.model.event.UserChangeEvent;
+import io.powertask.slack.SlackEvents;
 import io.powertask.slack.camunda.identitysync.IdentitySyncConfiguration.AdminMode;
-import java.util.Arrays;
-import java.util.HashSet;
+import io.powertask.slack.scheduling.NotificationScheduler;
+import java.time.Duration;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -38,13 +45,21 @@ import org.slf4j.LoggerFactory;
 
 public class IdentitySync {
 
-  private static final String CAMUNDA_ADMIN_GROUP = "camunda-admin";
+  static final String CAMUNDA_ADMIN_GROUP = "camunda-admin";
+  static final String SYNCED_GROUP_TYPE = "Synced from Slack";
 
   private final IdentitySyncConfiguration configuration;
   private final ScheduledExecutorService executorService;
 
   private ScheduledFuture<?> scheduledFuture;
 
+  private static final ThreadFactory FETCH_THREADS =
+      runnable -> {
+        Thread thread = new Thread(runnable, "powertask-identity-sync-fetch");
+        thread.setDaemon(true);
+        return thread;
+      };
+
   @Data
   static class Group {
     private final String id;
@@ -72,46 +87,153 @@ public class IdentitySync {
 
   private static final Logger logger = LoggerFactory.getLogger(IdentitySync.class);
 
-  private final MethodsClient methodsClient;
+  private final DirectoryFetcher fetcher;
+  private final ExecutorService fetchExecutor;
   private final IdentityService identityService;
+  private final IdentityDeltas deltas;
 
   public IdentitySync(
       IdentitySyncConfiguration configuration,
       MethodsClient methodsClient,
       IdentityService identityService) {
-    this(Executors.newScheduledThreadPool(1), configuration, methodsClient, identityService);
+    this(configuration, methodsClient, new NotificationScheduler(), identityService);
   }
 
   public IdentitySync(
-      ScheduledExecutorService executorService,
       IdentitySyncConfiguration configuration,
       MethodsClient methodsClient,
+      NotificationScheduler scheduler,
+      IdentityService identityService) {
+    this(
+        configuration,
+        methodsClient,
+        scheduler,
+        identityService,
+        Executors.newFixedThreadPool(configuration.getFetchConcurrency(), FETCH_THREADS));
+  }
+
+  private IdentitySync(
+      IdentitySyncConfiguration configuration,
+      MethodsClient methodsClient,
+      NotificationScheduler scheduler,
+      IdentityService identityService,
+      ExecutorService fetchExecutor) {
+    this(
+        Executors.newScheduledThreadPool(1),
+        configuration,
+        new DirectoryFetcher(
+            methodsClient, scheduler, fetchExecutor, configuration.getFetchConcurrency()),
+        fetchExecutor,
+        identityService);
+  }
+
+  IdentitySync(
+      ScheduledExecutorService executorService,
+      IdentitySyncConfiguration configuration,
+      DirectoryFetcher fetcher,
+      ExecutorService fetchExecutor,
       IdentityService identityService) {
 
     this.executorService = executorService;
     this.configuration = configuration;
-    this.methodsClient = methodsClient;
+    this.fetcher = fetcher;
+    this.fetchExecutor = fetchExecutor;
     this.identityService = identityService;
+    this.deltas = new IdentityDeltas(configuration, identityService);
   }
 
   public synchronized void start() {
     if (scheduledFuture != null) {
       throw new IllegalStateException("Sync already started!");
     }
+    if (fetchExecutor.isShutdown()) {
+      throw new IllegalStateException("Sync was stopped!");
+    }
 
     // We want the first sync to be synchronous
     sync();
+    Duration interval =
+        configuration.isIncremental()
+            ? configuration.getReconciliationInterval()
+            : configuration.getSyncInterval();
     scheduledFuture =
         executorService.scheduleWithFixedDelay(
-            this::sync,
-            configuration.getSyncInterval().getSeconds(),
-            configuration.getSyncInterval().getSeconds(),
-            TimeUnit.SECONDS);
+            this::scheduledSync, interval.getSeconds(), interval.getSeconds(), TimeUnit.SECONDS);
+  }
+
+  // An exception escaping a scheduled run would cancel all later runs.
+  private void scheduledSync() {
+    try {
+      sync();
+    } catch (RuntimeException e) {
+      logger.error("Identity sync failed, the next run will retry", e);
+    }
   }
 
+  /**
+   * Applies changes to users, groups and memberships as soon as Slack reports them. Only the events
+   * the Slack app is subscribed to are received; in channel mode, membership events only arrive for
+   * channels the app is a member of.
+   *
+   * <p>Changes are applied on the sync executor, so they never run concurrently with a full sync.
+   */
+  public void subscribe(SlackEvents events) {
+    events.subscribe(
+        TeamJoinEvent.class, event -> apply(() -> deltas.userChanged(event.getUser())));
+    events.subscribe(
+        UserChangeEvent.class, event -> apply(() -> deltas.userChanged(event.getUser())));
+
+    switch (configuration.getGroupMode()) {
+      case CHANNELS:
+        events.subscribe(
+            MemberJoinedChannelEvent.class,
+            event -> apply(() -> deltas.memberJoined(event.getChannel(), event.getUser())));
+        events.subscribe(
+            MemberLeftChannelEvent.class,
+            event -> apply(() -> deltas.memberLeft(event.getChannel(), event.getUser())));
+        break;
+      case GROUPS:
+        events.subscribe(
+            SubteamCreatedEvent.class,
+            event ->
+                apply(
+                    () ->
+                        deltas.groupCreated(
+                            event.getSubteam().getId(),
+                            event.getSubteam().getName(),
+                            Optional.ofNullable(event.getSubteam().getUsers())
+                                .orElse(Collections.emptyList()))));
+        events.subscribe(
+            SubteamMembersChangedEvent.class,
+            event ->
+                apply(
+                    () ->
+                        deltas.membersChanged(
+                            event.getSubteamId(),
+                            Optional.ofNullable(event.getAddedUsers())
+                                .orElse(Collections.emptyList()),
+                            Optional.ofNullable(event.getRemovedUsers())
+                                .orElse(Collections.emptyList()))));
+        break;
+    }
+  }
+
+  private void apply(Runnable delta) {
+    executorService.execute(
+        () -> {
+          try {
+            delta.run();
+          } catch (RuntimeException e) {
+            logger.error("Failed to apply identity change, the next full sync will retry", e);
+          }
+        });
+  }
+
+  /** Stops the periodic sync for good; it can't be started again. */
   public synchronized boolean stop() {
     boolean out = scheduledFuture.cancel(false);
     scheduledFuture = null;
+    fetchExecutor.shutdown();
     return out;
   }
 
@@ -129,7 +251,7 @@ public class IdentitySync {
           "Slack group " + configuration.getAdminGroupId() + " is the configured admin group.");
     }
 
-    Set<User> allUsers = allUsers();
+    Set<User> allUsers = fetcher.users();
     syncUsers(allUsers);
 
     Set<String> adminIds = getCamundaAdminUserIds(allUsers);
@@ -138,17 +260,19 @@ public class IdentitySync {
     groups.add(new Group(CAMUNDA_ADMIN_GROUP, "Camunda Admins"));
     syncGroups(groups);
 
-    syncGroupMemberships(groups, adminIds);
+    syncGroupMemberships(
+        groups, adminIds, allUsers.stream().map(User::getId).collect(Collectors.toSet()));
     logger.info("Identity sync completed.");
   }
 
   private Set<String> getCamundaAdminUserIds(Set<User> allUsers) {
     switch (configuration.getAdminMode()) {
       case GROUP:
-        return getGroupMembers(
+        return fetcher.members(
             Objects.requireNonNull(
                 configuration.getAdminGroupId(),
-                "adminGroupId must not be null if identity sync group mode is Group."));
+                "adminGroupId must not be null if identity sync group mode is Group."),
+            configuration.getGroupMode());
       case SLACK_ADMIN:
         return allUsers.stream().filter(User::isAdmin).map(User::getId).collect(Collectors.toSet());
     }
@@ -204,7 +328,7 @@ public class IdentitySync {
           if (!existingGroups.containsKey(group.id)) {
             org.camunda.bpm.engine.identity.Group newGroup = identityService.newGroup(group.id);
             newGroup.setName(group.name);
-            newGroup.setType("Synced from Slack");
+            newGroup.setType(SYNCED_GROUP_TYPE);
             logger.info("New group " + group.id + " (" + group.name + ") inserted!");
             identityService.saveGroup(newGroup);
           } else {
@@ -221,74 +345,42 @@ public class IdentitySync {
         });
   }
 
-  private void syncGroupMemberships(Set<Group> groups, Set<String> admins) {
-    groups.forEach(
-        group -> {
-          Set<String> existingMembers =
-              identityService.createUserQuery().memberOfGroup(group.id).list().stream()
-                  .map(org.camunda.bpm.engine.identity.User::getId)
-                  .collect(Collectors.toSet());
-
-          Set<String> groupMembers;
-          if (group.id.equals(CAMUNDA_ADMIN_GROUP)) {
-            groupMembers = admins;
-          } else {
-            groupMembers = getGroupMembers(group.id);
-          }
-
-          groupMembers.forEach(
-              userId -> {
-                if (!existingMembers.contains(userId)) {
-                  logger.info("Adding user " + userId + " to group " + group.id);
-                  identityService.createMembership(userId, group.id);
-                } else {
-                  existingMembers.remove(userId);
-                }
-              });
-
-          existingMembers.forEach(
-              userId -> {
-                logger.info("Removing user " + userId + " from group " + group.id);
-                identityService.deleteMembership(userId, group.id);
-              });
+  private void syncGroupMemberships(
+      Set<Group> groups, Set<String> admins, Set<String> syncedUserIds) {
+    Set<String> groupIds = groups.stream().map(Group::getId).collect(Collectors.toSet());
+    MembershipDiff diff = new MembershipDiff();
+    AllMemberships.load(
+        identityService, groupIds, (userId, groupId) -> diff.addExisting(groupId, userId));
+
+    Map<String, Set<String>> allMembers =
+        fetcher.members(
+            groupIds.stream()
+                .filter(groupId -> !groupId.equals(CAMUNDA_ADMIN_GROUP))
+                .collect(Collectors.toList()),
+            configuration.getGroupMode());
+    allMembers.put(CAMUNDA_ADMIN_GROUP, admins);
+    allMembers.forEach(
+        (groupId, groupMembers) -> {
+          // Channels can have bots as members, which aren't synced as users.
+          groupMembers.retainAll(syncedUserIds);
+          diff.addDesired(groupId, groupMembers);
         });
-  }
 
-  private Set<String> getGroupMembers(String groupId) {
-    switch (configuration.getGroupMode()) {
-      case GROUPS:
-        return new HashSet<>(
-            requireOk(() -> methodsClient.usergroupsUsersList(req -> req.usergroup(groupId)))
-                .getUsers());
-      case CHANNELS:
-        return new HashSet<>(
-            requireOk(() -> methodsClient.conversationsMembers(req -> req.channel(groupId)))
-                .getMembers());
-    }
-    throw new RuntimeException("Unexpected Group Mode!");
+    diff.apply(
+        groupIds,
+        (userId, groupId) -> {
+          logger.info("Adding user " + userId + " to group " + groupId);
+          identityService.createMembership(userId, groupId);
+        },
+        (userId, groupId) -> {
+          logger.info("Removing user " + userId + " from group " + groupId);
+          identityService.deleteMembership(userId, groupId);
+        });
   }
 
-  private Set<User> allUsers() {
-    Set<User> allUsers = new HashSet<>();
-    String cursor = null;
-    do {
-      String c = cursor;
-      UsersListResponse response =
-          requireOk(() -> methodsClient.usersList(req -> req.cursor(c).limit(200)));
-      allUsers.addAll(
-          response.getMembers().stream()
-              .filter(user -> !user.isBot())
-              .filter(
-                  user ->
-                      !user.getName()
-                          .equals(
-                              "slackbot")) // For some reason slackbot doesn't have the isBot bit
-              // set.
-              .collect(Collectors.toSet()));
-      cursor = response.getResponseMetadata().getNextCursor();
-    } while (!cursor.equals(""));
-
-    return allUsers;
+  static boolean isSyncedUser(User user) {
+    // For some reason slackbot doesn't have the isBot bit set.
+    return !user.isBot() && !user.isDeleted() && !"slackbot".equals(user.getName());
   }
 
   private Set<Group> allGroups() {
@@ -297,10 +389,10 @@ public class IdentitySync {
 
     switch (configuration.getGroupMode()) {
       case CHANNELS:
-        groups = allSlackChannelsAsGroups();
+        groups = fetcher.channels();
         break;
       case GROUPS:
-        groups = allSlackGroupsAsGroups();
+        groups = fetcher.usergroups();
         break;
       default:
         throw new RuntimeException("Unexpected Group Mode");
@@ -309,25 +401,4 @@ public class IdentitySync {
     groups.add(new Group(CAMUNDA_ADMIN_GROUP, "Camunda Admins"));
     return groups;
   }
-
-  private Set<Group> allSlackChannelsAsGroups() {
-    return requireOk(
-            () ->
-                methodsClient.conversationsList(
-                    req ->
-                        req.types(
-                            Arrays.asList(
-                                ConversationType.PRIVATE_CHANNEL,
-                                ConversationType.PUBLIC_CHANNEL))))
-        .getChannels().stream()
-        .filter(conversation -> !conversation.isGeneral())
-        .map(conversation -> new Group(conversation.getId(), conversation.getNameNormalized()))
-        .collect(Collectors.toSet());
-  }
-
-  private Set<Group> allSlackGroupsAsGroups() {
-    return requireOk(() -> methodsClient.usergroupsList(req -> req)).getUsergroups().stream()
-        .map(group -> new Group(group.getId(), group.getName()))
-        .collect(Collectors.toSet());
-  }
 }
@@ -24,6 +24,24 @@ public interface IdentitySyncConfiguration {
 
   String getAdminGroupId(); // Only used when GroupMode = GROUP
 
+  /**
+   * Whether changes are applied from Slack events as they happen, see {@link
+   * IdentitySync#subscribe}. Full syncs then run every reconciliation interval instead of every
+   * sync interval.
+   */
+  default boolean isIncremental() {
+    return false;
+  }
+
+  default Duration getReconciliationInterval() {
+    return Duration.ofDays(1);
+  }
+
+  /** How many Slack calls a sync may have in flight at once. */
+  default int getFetchConcurrency() {
+    return 4;
+  }
+
   enum AdminMode {
     GROUP,
     SLACK_ADMIN
@@ -0,0 +1,80 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda.identitysync;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * The difference between the group memberships in the engine and the ones in Slack.
+ *
+ * <p>User ids are interned to small integers, so the members of a group are kept as a {@link
+ * BitSet} and the difference is computed with bit operations rather than per-user lookups.
+ */
+class MembershipDiff {
+
+  private final Map<String, Integer> userIndices = new HashMap<>();
+  private final List<String> userIds = new ArrayList<>();
+  private final Map<String, BitSet> existing = new HashMap<>();
+  private final Map<String, BitSet> desired = new HashMap<>();
+
+  void addExisting(String groupId, String userId) {
+    members(existing, groupId).set(userIndex(userId));
+  }
+
+  void addDesired(String groupId, Collection<String> userIds) {
+    BitSet members = members(desired, groupId);
+    userIds.forEach(userId -> members.set(userIndex(userId)));
+  }
+
+  /**
+   * Calls {@code create} for each membership that is only desired, and {@code delete} for each
+   * membership that only exists, in the given groups. Both get the user id and group id.
+   */
+  void apply(
+      Collection<String> groupIds,
+      BiConsumer<String, String> create,
+      BiConsumer<String, String> delete) {
+    for (String groupId : groupIds) {
+      BitSet existingMembers = existing.getOrDefault(groupId, new BitSet());
+      BitSet desiredMembers = desired.getOrDefault(groupId, new BitSet());
+
+      BitSet added = (BitSet) desiredMembers.clone();
+      added.andNot(existingMembers);
+      added.stream().forEach(user -> create.accept(userIds.get(user), groupId));
+
+      BitSet removed = (BitSet) existingMembers.clone();
+      removed.andNot(desiredMembers);
+      removed.stream().forEach(user -> delete.accept(userIds.get(user), groupId));
+    }
+  }
+
+  private int userIndex(String userId) {
+    return userIndices.computeIfAbsent(
+        userId,
+        id -> {
+          userIds.add(id);
+          return userIds.size() - 1;
+        });
+  }
+
+  private static BitSet members(Map<String, BitSet> memberships, String groupId) {
+    return memberships.computeIfAbsent(groupId, id -> new BitSet());
+  }
+}
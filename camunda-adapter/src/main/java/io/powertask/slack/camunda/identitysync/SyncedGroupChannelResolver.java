@@ -0,0 +1,50 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda.identitysync;
+
+import io.powertask.slack.camunda.identitysync.IdentitySyncConfiguration.GroupMode;
+import io.powertask.slack.identity.GroupChannelResolver;
+import java.util.Optional;
+import org.camunda.bpm.engine.IdentityService;
+
+/**
+ * In {@link GroupMode#CHANNELS} mode, the groups synced by {@link IdentitySync} have the id of the
+ * Slack channel they were synced from.
+ */
+public class SyncedGroupChannelResolver implements GroupChannelResolver {
+
+  private final IdentitySyncConfiguration configuration;
+  private final IdentityService identityService;
+
+  public SyncedGroupChannelResolver(
+      IdentitySyncConfiguration configuration, IdentityService identityService) {
+    this.configuration = configuration;
+    this.identityService = identityService;
+  }
+
+  @Override
+  public Optional<String> toSlackChannelId(String engineGroupId) {
+    if (configuration.getGroupMode() != GroupMode.CHANNELS
+        || engineGroupId.equals(IdentitySync.CAMUNDA_ADMIN_GROUP)) {
+      return Optional.empty();
+    }
+    long count =
+        identityService
+            .createGroupQuery()
+            .groupId(engineGroupId)
+            .groupType(IdentitySync.SYNCED_GROUP_TYPE)
+            .count();
+    return count > 0 ? Optional.of(engineGroupId) : Optional.empty();
+  }
+}
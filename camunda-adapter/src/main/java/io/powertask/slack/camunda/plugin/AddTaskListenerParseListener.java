@@ -13,36 +13,41 @@
  */
 package io.powertask.slack.camunda.plugin;
 
+import static io.powertask.slack.camunda.plugin.ListenerActivation.PROPERTY_SLACK_ENABLED;
+import static io.powertask.slack.camunda.plugin.ParseSupport.getExtensionProperty;
 import static org.camunda.bpm.engine.delegate.TaskListener.*;
 
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import org.camunda.bpm.engine.delegate.TaskListener;
 import org.camunda.bpm.engine.impl.bpmn.behavior.UserTaskActivityBehavior;
 import org.camunda.bpm.engine.impl.bpmn.parser.AbstractBpmnParseListener;
-import org.camunda.bpm.engine.impl.el.ExpressionManager;
+import org.camunda.bpm.engine.impl.persistence.entity.ProcessDefinitionEntity;
 import org.camunda.bpm.engine.impl.pvm.delegate.ActivityBehavior;
 import org.camunda.bpm.engine.impl.pvm.process.ActivityImpl;
 import org.camunda.bpm.engine.impl.pvm.process.ScopeImpl;
 import org.camunda.bpm.engine.impl.task.TaskDefinition;
-import org.camunda.bpm.engine.impl.task.listener.DelegateExpressionTaskListener;
 import org.camunda.bpm.engine.impl.util.xml.Element;
 
 public class AddTaskListenerParseListener extends AbstractBpmnParseListener {
 
-  private final ExpressionManager expressionManager;
+  // Only the events UserTaskDispatcherListener acts on; update and timeout events never reach it.
+  static final List<String> DISPATCHED_EVENT_NAMES =
+      Arrays.asList(EVENTNAME_CREATE, EVENTNAME_ASSIGNMENT, EVENTNAME_COMPLETE, EVENTNAME_DELETE);
 
-  private final List<String> ALL_EVENT_NAMES =
-      Arrays.asList(
-          EVENTNAME_CREATE,
-          EVENTNAME_ASSIGNMENT,
-          EVENTNAME_COMPLETE,
-          EVENTNAME_UPDATE,
-          EVENTNAME_DELETE,
-          EVENTNAME_TIMEOUT);
+  private static final String DEFERRED_TASKS = "powertaskDeferredTaskListeners";
 
-  public AddTaskListenerParseListener(ExpressionManager expressionManager) {
-    this.expressionManager = expressionManager;
+  private final TaskListener taskListener;
+  private final ListenerActivation activation;
+
+  public AddTaskListenerParseListener(TaskListener taskListener) {
+    this(taskListener, ListenerActivation.ALL);
+  }
+
+  public AddTaskListenerParseListener(TaskListener taskListener, ListenerActivation activation) {
+    this.taskListener = taskListener;
+    this.activation = activation;
   }
 
   @Override
@@ -52,15 +57,24 @@ public class AddTaskListenerParseListener extends AbstractBpmnParseListener {
       UserTaskActivityBehavior userTaskActivityBehavior =
           (UserTaskActivityBehavior) activityBehavior;
       TaskDefinition taskDefinition = userTaskActivityBehavior.getTaskDefinition();
+      Optional<String> taskSlackEnabled =
+          getExtensionProperty(userTaskElement, PROPERTY_SLACK_ENABLED);
 
-      for (String eventName : ALL_EVENT_NAMES) {
-        taskDefinition.addTaskListener(
-            eventName,
-            // TODO, this doesn't cache. Maybe we can do this in a different - faster - way?
-            new DelegateExpressionTaskListener(
-                expressionManager.createExpression("${powertaskListener}"),
-                Collections.emptyList()));
-      }
+      ParseSupport.defer(
+          activity,
+          DEFERRED_TASKS,
+          (processKey, processSlackEnabled) -> {
+            if (activation.isEnabled(processKey, processSlackEnabled, taskSlackEnabled)) {
+              for (String eventName : DISPATCHED_EVENT_NAMES) {
+                taskDefinition.addTaskListener(eventName, taskListener);
+              }
+            }
+          });
     }
   }
+
+  @Override
+  public void parseProcess(Element processElement, ProcessDefinitionEntity processDefinition) {
+    ParseSupport.applyDeferred(processElement, processDefinition, DEFERRED_TASKS);
+  }
 }
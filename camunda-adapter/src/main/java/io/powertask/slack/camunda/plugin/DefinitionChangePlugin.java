@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda.plugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.camunda.bpm.engine.impl.cfg.AbstractProcessEnginePlugin;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.cmd.AbstractDeleteProcessDefinitionCmd;
+import org.camunda.bpm.engine.impl.cmd.AbstractSetProcessDefinitionStateCmd;
+import org.camunda.bpm.engine.impl.cmd.DeleteDeploymentCmd;
+import org.camunda.bpm.engine.impl.cmd.DeleteProcessDefinitionsByIdsCmd;
+import org.camunda.bpm.engine.impl.cmd.DeployCmd;
+import org.camunda.bpm.engine.impl.interceptor.Command;
+import org.camunda.bpm.engine.impl.interceptor.CommandInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Notifies listeners after process definitions have changed, so caches of process definition data
+ * can be evicted. Removal listeners run after a deployment or process definition has been removed.
+ * Change listeners also run after a deployment, and after definitions have been suspended or
+ * activated.
+ *
+ * <p>Camunda has no listener for this, so it's done with a command interceptor that runs outside
+ * the transaction. The commands don't expose which definitions they touched, so listeners are
+ * expected to drop everything they have cached.
+ */
+public class DefinitionChangePlugin extends AbstractProcessEnginePlugin {
+
+  private static final Logger logger = LoggerFactory.getLogger(DefinitionChangePlugin.class);
+
+  private final List<Runnable> removalListeners = new CopyOnWriteArrayList<>();
+  private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+  public void addRemovalListener(Runnable listener) {
+    removalListeners.add(listener);
+  }
+
+  public void addChangeListener(Runnable listener) {
+    changeListeners.add(listener);
+  }
+
+  @Override
+  public void preInit(ProcessEngineConfigurationImpl processEngineConfiguration) {
+    List<CommandInterceptor> interceptors =
+        processEngineConfiguration.getCustomPreCommandInterceptorsTxRequired();
+    if (interceptors == null) {
+      interceptors = new ArrayList<>();
+      processEngineConfiguration.setCustomPreCommandInterceptorsTxRequired(interceptors);
+    }
+    interceptors.add(new ChangeInterceptor());
+  }
+
+  private class ChangeInterceptor extends CommandInterceptor {
+    @Override
+    public <T> T execute(Command<T> command) {
+      boolean removal = isRemoval(command);
+      if (!removal && !isChange(command)) {
+        return next.execute(command);
+      }
+      try {
+        return next.execute(command);
+      } finally {
+        // Also when the command failed, it may have touched some definitions before that.
+        if (removal) {
+          notifyAll(removalListeners);
+        }
+        notifyAll(changeListeners);
+      }
+    }
+
+    private void notifyAll(List<Runnable> listeners) {
+      for (Runnable listener : listeners) {
+        try {
+          listener.run();
+        } catch (RuntimeException e) {
+          logger.warn("Definition change listener failed", e);
+        }
+      }
+    }
+
+    private boolean isRemoval(Command<?> command) {
+      return command instanceof DeleteDeploymentCmd
+          || command instanceof DeleteProcessDefinitionsByIdsCmd
+          || command instanceof AbstractDeleteProcessDefinitionCmd;
+    }
+
+    private boolean isChange(Command<?> command) {
+      return command instanceof DeployCmd
+          || command instanceof AbstractSetProcessDefinitionStateCmd;
+    }
+  }
+}
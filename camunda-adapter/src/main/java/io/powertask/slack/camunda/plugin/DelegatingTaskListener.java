@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda.plugin;
+
+import org.camunda.bpm.engine.delegate.DelegateTask;
+import org.camunda.bpm.engine.delegate.Expression;
+import org.camunda.bpm.engine.delegate.TaskListener;
+
+// The one listener instance that is added to every user task.
+//
+// The actual listener depends on engine services, so it can only be created after the engine and
+// is set later. If it isn't set, the `powertaskListener` bean is looked up on the first event and
+// kept, instead of resolving the expression on every event.
+class DelegatingTaskListener implements TaskListener {
+
+  private volatile TaskListener delegate;
+  private volatile Expression fallbackExpression;
+
+  void setDelegate(TaskListener delegate) {
+    this.delegate = delegate;
+  }
+
+  void setFallbackExpression(Expression fallbackExpression) {
+    this.fallbackExpression = fallbackExpression;
+  }
+
+  @Override
+  public void notify(DelegateTask delegateTask) {
+    TaskListener target = delegate;
+    if (target == null) {
+      target = resolve(delegateTask);
+    }
+    target.notify(delegateTask);
+  }
+
+  private TaskListener resolve(DelegateTask delegateTask) {
+    if (fallbackExpression == null) {
+      throw new RuntimeException("No Powertask task listener set");
+    }
+    Object bean = fallbackExpression.getValue(delegateTask);
+    if (!(bean instanceof TaskListener)) {
+      throw new RuntimeException(
+          "Expression " + fallbackExpression.getExpressionText() + " is not a TaskListener");
+    }
+    delegate = (TaskListener) bean;
+    return delegate;
+  }
+}
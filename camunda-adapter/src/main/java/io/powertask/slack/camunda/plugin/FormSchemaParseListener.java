@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda.plugin;
+
+import static io.powertask.slack.camunda.plugin.ListenerActivation.PROPERTY_SLACK_ENABLED;
+import static io.powertask.slack.camunda.plugin.ParseSupport.getExtensionProperty;
+import static org.camunda.bpm.engine.impl.bpmn.parser.BpmnParse.CAMUNDA_BPMN_EXTENSIONS_NS;
+
+import io.powertask.slack.camunda.FieldDefinition;
+import io.powertask.slack.camunda.FormSchema;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.camunda.bpm.engine.impl.bpmn.parser.AbstractBpmnParseListener;
+import org.camunda.bpm.engine.impl.persistence.entity.ProcessDefinitionEntity;
+import org.camunda.bpm.engine.impl.pvm.process.ActivityImpl;
+import org.camunda.bpm.engine.impl.pvm.process.ScopeImpl;
+import org.camunda.bpm.engine.impl.util.xml.Element;
+
+/**
+ * Compiles the form fields of user tasks and start events while they are deployed, so a malformed
+ * constraint or `slack-*` property fails the deployment instead of the first render in Slack.
+ * Elements that Powertask isn't active for aren't checked.
+ */
+public class FormSchemaParseListener extends AbstractBpmnParseListener {
+
+  private static final String DEFERRED_FORMS = "powertaskDeferredForms";
+
+  private final ListenerActivation activation;
+
+  public FormSchemaParseListener() {
+    this(ListenerActivation.ALL);
+  }
+
+  public FormSchemaParseListener(ListenerActivation activation) {
+    this.activation = activation;
+  }
+
+  @Override
+  public void parseUserTask(Element userTaskElement, ScopeImpl scope, ActivityImpl activity) {
+    deferCompile(userTaskElement, activity);
+  }
+
+  @Override
+  public void parseStartEvent(
+      Element startEventElement, ScopeImpl scope, ActivityImpl startEventActivity) {
+    deferCompile(startEventElement, startEventActivity);
+  }
+
+  @Override
+  public void parseProcess(Element processElement, ProcessDefinitionEntity processDefinition) {
+    ParseSupport.applyDeferred(processElement, processDefinition, DEFERRED_FORMS);
+  }
+
+  private void deferCompile(Element element, ActivityImpl activity) {
+    Optional<String> slackEnabled = getExtensionProperty(element, PROPERTY_SLACK_ENABLED);
+    ParseSupport.defer(
+        activity,
+        DEFERRED_FORMS,
+        (processKey, processSlackEnabled) -> {
+          if (activation.isEnabled(processKey, processSlackEnabled, slackEnabled)) {
+            compile(element);
+          }
+        });
+  }
+
+  private void compile(Element element) {
+    Element extensionElements = element.element("extensionElements");
+    if (extensionElements == null) {
+      return;
+    }
+    Element formData = extensionElements.elementNS(CAMUNDA_BPMN_EXTENSIONS_NS, "formData");
+    if (formData == null) {
+      return;
+    }
+
+    List<FieldDefinition> definitions = new ArrayList<>();
+    for (Element formField : formData.elementsNS(CAMUNDA_BPMN_EXTENSIONS_NS, "formField")) {
+      // Fields without a type are reported by Camunda itself.
+      if (formField.attribute("type") != null) {
+        definitions.add(toDefinition(formField));
+      }
+    }
+
+    try {
+      FormSchema.compile(definitions);
+    } catch (RuntimeException e) {
+      throw new RuntimeException(
+          "Invalid form on element " + element.attribute("id") + ": " + e.getMessage(), e);
+    }
+  }
+
+  private FieldDefinition toDefinition(Element formField) {
+    Map<String, String> properties = new LinkedHashMap<>();
+    Element propertiesElement = formField.elementNS(CAMUNDA_BPMN_EXTENSIONS_NS, "properties");
+    if (propertiesElement != null) {
+      for (Element property :
+          propertiesElement.elementsNS(CAMUNDA_BPMN_EXTENSIONS_NS, "property")) {
+        properties.put(property.attribute("id"), property.attribute("value"));
+      }
+    }
+
+    Map<String, Optional<String>> constraints = new LinkedHashMap<>();
+    Element validation = formField.elementNS(CAMUNDA_BPMN_EXTENSIONS_NS, "validation");
+    if (validation != null) {
+      for (Element constraint : validation.elementsNS(CAMUNDA_BPMN_EXTENSIONS_NS, "constraint")) {
+        constraints.putIfAbsent(
+            constraint.attribute("name"), Optional.ofNullable(constraint.attribute("config")));
+      }
+    }
+
+    Map<String, String> enumValues = new LinkedHashMap<>();
+    for (Element value : formField.elementsNS(CAMUNDA_BPMN_EXTENSIONS_NS, "value")) {
+      enumValues.put(value.attribute("id"), value.attribute("name"));
+    }
+
+    return new FieldDefinition(
+        formField.attribute("id"),
+        formField.attribute("type"),
+        properties,
+        constraints,
+        enumValues);
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda.plugin;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Decides which user tasks get the Powertask task listener, at deployment time. Tasks that don't
+ * get it are never seen by Powertask and add no overhead to the engine.
+ *
+ * <p>In order of precedence:
+ *
+ * <ol>
+ *   <li>A `slack-enabled` extension property on the user task.
+ *   <li>A `slack-enabled` extension property on the process.
+ *   <li>The excluded process keys.
+ *   <li>The included process keys, if any are given.
+ *   <li>Enabled by default or not.
+ * </ol>
+ */
+public class ListenerActivation {
+
+  public static final String PROPERTY_SLACK_ENABLED = "slack-enabled";
+
+  /** All user tasks get the listener, unless they have `slack-enabled` set to false. */
+  public static final ListenerActivation ALL =
+      new ListenerActivation(true, Collections.emptySet(), Collections.emptySet());
+
+  private final boolean enabledByDefault;
+  private final Set<String> includedProcessKeys;
+  private final Set<String> excludedProcessKeys;
+
+  public ListenerActivation(
+      boolean enabledByDefault,
+      Collection<String> includedProcessKeys,
+      Collection<String> excludedProcessKeys) {
+    this.enabledByDefault = enabledByDefault;
+    this.includedProcessKeys = Collections.unmodifiableSet(new HashSet<>(includedProcessKeys));
+    this.excludedProcessKeys = Collections.unmodifiableSet(new HashSet<>(excludedProcessKeys));
+  }
+
+  public boolean isEnabled(
+      String processKey, Optional<String> processSlackEnabled, Optional<String> taskSlackEnabled) {
+    if (taskSlackEnabled.isPresent()) {
+      return taskSlackEnabled.get().equals("true");
+    } else if (processSlackEnabled.isPresent()) {
+      return processSlackEnabled.get().equals("true");
+    } else if (excludedProcessKeys.contains(processKey)) {
+      return false;
+    } else if (!includedProcessKeys.isEmpty()) {
+      return includedProcessKeys.contains(processKey);
+    } else {
+      return enabledByDefault;
+    }
+  }
+}
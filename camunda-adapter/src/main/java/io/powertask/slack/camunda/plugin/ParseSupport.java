@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda.plugin;
+
+import static io.powertask.slack.camunda.plugin.ListenerActivation.PROPERTY_SLACK_ENABLED;
+import static org.camunda.bpm.engine.impl.bpmn.parser.BpmnParse.CAMUNDA_BPMN_EXTENSIONS_NS;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.camunda.bpm.engine.impl.persistence.entity.ProcessDefinitionEntity;
+import org.camunda.bpm.engine.impl.pvm.process.ActivityImpl;
+import org.camunda.bpm.engine.impl.pvm.process.ProcessDefinitionImpl;
+import org.camunda.bpm.engine.impl.util.xml.Element;
+
+// Helpers for parse listeners that need to know whether Powertask is active for an element.
+//
+// Parse listeners see user tasks before the process they're in, and elements don't know their
+// parent, so the decision has to wait until parseProcess. Until then, the work is kept on the
+// process definition that is being parsed.
+class ParseSupport {
+
+  private ParseSupport() {}
+
+  static Optional<String> getExtensionProperty(Element element, String name) {
+    Element extensionElements = element.element("extensionElements");
+    if (extensionElements == null) {
+      return Optional.empty();
+    }
+    for (Element properties :
+        extensionElements.elementsNS(CAMUNDA_BPMN_EXTENSIONS_NS, "properties")) {
+      for (Element property : properties.elementsNS(CAMUNDA_BPMN_EXTENSIONS_NS, "property")) {
+        if (name.equals(property.attribute("name"))) {
+          return Optional.ofNullable(property.attribute("value"));
+        }
+      }
+    }
+    return Optional.empty();
+  }
+
+  interface Deferred {
+    void apply(String processKey, Optional<String> processSlackEnabled);
+  }
+
+  @SuppressWarnings("unchecked")
+  static void defer(ActivityImpl activity, String key, Deferred work) {
+    ProcessDefinitionImpl processDefinition = activity.getProcessDefinition();
+    List<Deferred> deferred = (List<Deferred>) processDefinition.getProperty(key);
+    if (deferred == null) {
+      deferred = new ArrayList<>();
+      processDefinition.setProperty(key, deferred);
+    }
+    deferred.add(work);
+  }
+
+  @SuppressWarnings("unchecked")
+  static void applyDeferred(
+      Element processElement, ProcessDefinitionEntity processDefinition, String key) {
+    List<Deferred> deferred = (List<Deferred>) processDefinition.getProperty(key);
+    if (deferred == null) {
+      return;
+    }
+    processDefinition.setProperty(key, null);
+    Optional<String> processSlackEnabled =
+        getExtensionProperty(processElement, PROPERTY_SLACK_ENABLED);
+    for (Deferred work : deferred) {
+      work.apply(processDefinition.getKey(), processSlackEnabled);
+    }
+  }
+}
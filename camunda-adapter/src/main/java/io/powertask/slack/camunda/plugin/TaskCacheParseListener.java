@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda.plugin;
+
+import static io.powertask.slack.camunda.plugin.ListenerActivation.PROPERTY_SLACK_ENABLED;
+import static io.powertask.slack.camunda.plugin.ParseSupport.getExtensionProperty;
+import static org.camunda.bpm.engine.delegate.TaskListener.*;
+
+import io.powertask.slack.camunda.TaskCache;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import org.camunda.bpm.engine.delegate.TaskListener;
+import org.camunda.bpm.engine.impl.bpmn.behavior.UserTaskActivityBehavior;
+import org.camunda.bpm.engine.impl.bpmn.parser.AbstractBpmnParseListener;
+import org.camunda.bpm.engine.impl.cfg.TransactionState;
+import org.camunda.bpm.engine.impl.context.Context;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
+import org.camunda.bpm.engine.impl.persistence.entity.ProcessDefinitionEntity;
+import org.camunda.bpm.engine.impl.pvm.process.ActivityImpl;
+import org.camunda.bpm.engine.impl.pvm.process.ScopeImpl;
+import org.camunda.bpm.engine.impl.task.TaskDefinition;
+import org.camunda.bpm.engine.impl.util.xml.Element;
+
+/**
+ * Evicts tasks from the {@link TaskCache} when they change. Like the Powertask task listener, it is
+ * only added to the user tasks that the {@link ListenerActivation} enables; cached snapshots of
+ * other tasks only expire.
+ */
+public class TaskCacheParseListener extends AbstractBpmnParseListener {
+
+  static final List<String> INVALIDATING_EVENT_NAMES =
+      Arrays.asList(EVENTNAME_UPDATE, EVENTNAME_ASSIGNMENT, EVENTNAME_COMPLETE, EVENTNAME_DELETE);
+
+  private static final String DEFERRED_TASKS = "powertaskDeferredTaskCacheListeners";
+
+  private final TaskListener invalidationListener;
+  private final ListenerActivation activation;
+
+  public TaskCacheParseListener(TaskCache taskCache) {
+    this(taskCache, ListenerActivation.ALL);
+  }
+
+  public TaskCacheParseListener(TaskCache taskCache, ListenerActivation activation) {
+    this.activation = activation;
+    this.invalidationListener =
+        delegateTask -> {
+          String taskId = delegateTask.getId();
+          taskCache.invalidate(taskId);
+          // Another thread may have read the task again before the transaction committed.
+          CommandContext commandContext = Context.getCommandContext();
+          if (commandContext != null) {
+            commandContext
+                .getTransactionContext()
+                .addTransactionListener(
+                    TransactionState.COMMITTED, ctx -> taskCache.invalidate(taskId));
+          }
+        };
+  }
+
+  @Override
+  public void parseUserTask(Element userTaskElement, ScopeImpl scope, ActivityImpl activity) {
+    if (activity.getActivityBehavior() instanceof UserTaskActivityBehavior) {
+      TaskDefinition taskDefinition =
+          ((UserTaskActivityBehavior) activity.getActivityBehavior()).getTaskDefinition();
+      Optional<String> taskSlackEnabled =
+          getExtensionProperty(userTaskElement, PROPERTY_SLACK_ENABLED);
+
+      ParseSupport.defer(
+          activity,
+          DEFERRED_TASKS,
+          (processKey, processSlackEnabled) -> {
+            if (activation.isEnabled(processKey, processSlackEnabled, taskSlackEnabled)) {
+              for (String eventName : INVALIDATING_EVENT_NAMES) {
+                taskDefinition.addTaskListener(eventName, invalidationListener);
+              }
+            }
+          });
+    }
+  }
+
+  @Override
+  public void parseProcess(Element processElement, ProcessDefinitionEntity processDefinition) {
+    ParseSupport.applyDeferred(processElement, processDefinition, DEFERRED_TASKS);
+  }
+}
@@ -13,8 +13,11 @@
  */
 package io.powertask.slack.camunda.plugin;
 
+import io.powertask.slack.camunda.TaskCache;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import org.camunda.bpm.engine.delegate.TaskListener;
 import org.camunda.bpm.engine.impl.bpmn.parser.BpmnParseListener;
 import org.camunda.bpm.engine.impl.cfg.AbstractProcessEnginePlugin;
 import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
@@ -22,6 +25,35 @@ import org.camunda.bpm.engine.impl.el.ExpressionManager;
 
 public class TaskListenerPlugin extends AbstractProcessEnginePlugin {
 
+  static final String LISTENER_EXPRESSION = "${powertaskListener}";
+
+  private final DelegatingTaskListener taskListener = new DelegatingTaskListener();
+  private final ListenerActivation activation;
+  private final Optional<TaskCache> taskCache;
+
+  public TaskListenerPlugin() {
+    this(ListenerActivation.ALL);
+  }
+
+  public TaskListenerPlugin(ListenerActivation activation) {
+    this.activation = activation;
+    this.taskCache = Optional.empty();
+  }
+
+  /** Also evicts changed tasks from the given cache. */
+  public TaskListenerPlugin(ListenerActivation activation, TaskCache taskCache) {
+    this.activation = activation;
+    this.taskCache = Optional.of(taskCache);
+  }
+
+  /**
+   * Sets the listener that receives the task events. When not set, the `powertaskListener` bean is
+   * looked up on the first event.
+   */
+  public void setTaskListener(TaskListener listener) {
+    taskListener.setDelegate(listener);
+  }
+
   @Override
   //
   // Problem:
@@ -32,6 +64,8 @@ public class TaskListenerPlugin extends AbstractProcessEnginePlugin {
   //
   public void preInit(ProcessEngineConfigurationImpl processEngineConfiguration) {
     setupExpressionManager(processEngineConfiguration);
+    taskListener.setFallbackExpression(
+        processEngineConfiguration.getExpressionManager().createExpression(LISTENER_EXPRESSION));
     addPreParseListeners(processEngineConfiguration);
   }
 
@@ -49,7 +83,10 @@ public class TaskListenerPlugin extends AbstractProcessEnginePlugin {
       preParseListeners = new ArrayList<>();
       processEngineConfiguration.setCustomPreBPMNParseListeners(preParseListeners);
     }
-    preParseListeners.add(
-        new AddTaskListenerParseListener(processEngineConfiguration.getExpressionManager()));
+    preParseListeners.add(new AddTaskListenerParseListener(taskListener, activation));
+    preParseListeners.add(new FormSchemaParseListener(activation));
+    if (taskCache.isPresent()) {
+      preParseListeners.add(new TaskCacheParseListener(taskCache.get(), activation));
+    }
   }
 }
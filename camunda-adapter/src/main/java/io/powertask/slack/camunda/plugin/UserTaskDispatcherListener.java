@@ -13,34 +13,130 @@
  */
 package io.powertask.slack.camunda.plugin;
 
+import io.powertask.slack.StripedExecutor;
 import io.powertask.slack.camunda.TaskMapper;
+import io.powertask.slack.usertasks.Task;
 import io.powertask.slack.usertasks.UserTaskDispatcher;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import org.camunda.bpm.engine.delegate.DelegateTask;
 import org.camunda.bpm.engine.delegate.TaskListener;
+import org.camunda.bpm.engine.impl.cfg.TransactionState;
+import org.camunda.bpm.engine.impl.context.Context;
+import org.camunda.bpm.engine.impl.interceptor.CommandContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 // Wrapper for UserTaskDispatcher to make it a TaskListener.
+//
+// By default, the dispatcher is called inline, within the engine transaction. When an executor is
+// given, only a detached snapshot of the task is taken inline, and the Slack work is handed to the
+// executor once the transaction has committed, so the engine doesn't wait for Slack or for user
+// resolving. The executor is keyed by task id, so the events of one task are handled in order.
 public class UserTaskDispatcherListener implements TaskListener {
 
   private static final Logger logger = LoggerFactory.getLogger(UserTaskDispatcherListener.class);
 
   private final UserTaskDispatcher userTaskDispatcher;
   private final TaskMapper taskMapper;
+  private final Optional<StripedExecutor> postCommitExecutor;
+  private final LongAdder rejectedEvents = new LongAdder();
 
   public UserTaskDispatcherListener(TaskMapper taskMapper, UserTaskDispatcher userTaskDispatcher) {
     this.taskMapper = taskMapper;
     this.userTaskDispatcher = userTaskDispatcher;
+    this.postCommitExecutor = Optional.empty();
+  }
+
+  public UserTaskDispatcherListener(
+      TaskMapper taskMapper,
+      UserTaskDispatcher userTaskDispatcher,
+      StripedExecutor postCommitExecutor) {
+    this.taskMapper = taskMapper;
+    this.userTaskDispatcher = userTaskDispatcher;
+    this.postCommitExecutor = Optional.of(postCommitExecutor);
   }
 
   @Override
   public void notify(DelegateTask delegateTask) {
-    if (delegateTask.getEventName().equals(TaskListener.EVENTNAME_ASSIGNMENT)) {
+    if (delegateTask.getEventName().equals(TaskListener.EVENTNAME_CREATE)) {
+      if (delegateTask.getAssignee() == null && !delegateTask.getCandidates().isEmpty()) {
+        logger.debug("Task {} created for candidates", delegateTask.getId());
+        dispatch(delegateTask, userTaskDispatcher::notifyTaskCreation);
+      }
+    } else if (delegateTask.getEventName().equals(TaskListener.EVENTNAME_ASSIGNMENT)) {
       logger.debug("Task {} assigned to {}", delegateTask.getId(), delegateTask.getAssignee());
-      userTaskDispatcher.notifyTaskAssignment(taskMapper.fromDelegateTask(delegateTask));
+      dispatch(delegateTask, userTaskDispatcher::notifyTaskAssignment);
     } else if (delegateTask.getEventName().equals(TaskListener.EVENTNAME_COMPLETE)) {
-      logger.debug("Task {} assigned to {}", delegateTask.getId(), delegateTask.getAssignee());
-      userTaskDispatcher.notifyTaskCompletion(taskMapper.fromDelegateTask(delegateTask));
+      logger.debug("Task {} completed by {}", delegateTask.getId(), delegateTask.getAssignee());
+      dispatchEnd(delegateTask, userTaskDispatcher::notifyTaskCompletion);
+    } else if (delegateTask.getEventName().equals(TaskListener.EVENTNAME_DELETE)) {
+      logger.debug("Task {} deleted: {}", delegateTask.getId(), delegateTask.getDeleteReason());
+      dispatchEnd(delegateTask, userTaskDispatcher::notifyTaskDeletion);
+    }
+  }
+
+  // The legacy refs variable is read inline, while the task's variables can still be reached.
+  private void dispatchEnd(DelegateTask delegateTask, Consumer<Task> notify) {
+    Object legacyRefs = delegateTask.getVariable(UserTaskDispatcher.LEGACY_MESSAGE_REFS_VARIABLE);
+    dispatch(
+        delegateTask,
+        task -> {
+          if (legacyRefs instanceof String) {
+            userTaskDispatcher.restoreLegacyMessageRefs(task.id(), (String) legacyRefs);
+          }
+          notify.accept(task);
+        });
+  }
+
+  private void dispatch(DelegateTask delegateTask, Consumer<Task> notify) {
+    // The mapped task is a detached snapshot, so it can be handed to another thread.
+    Task task = taskMapper.fromDelegateTask(delegateTask);
+    if (postCommitExecutor.isPresent()) {
+      String event = delegateTask.getEventName() + " of task " + task.id();
+      afterCommit(task.id(), event, () -> notify.accept(task));
+    } else {
+      notify.accept(task);
+    }
+  }
+
+  /** How many events were dropped because the post-commit executor was full. */
+  public long rejectedEvents() {
+    return rejectedEvents.sum();
+  }
+
+  private void afterCommit(String taskId, String event, Runnable work) {
+    CommandContext commandContext = Context.getCommandContext();
+    if (commandContext == null) {
+      execute(taskId, event, work);
+    } else {
+      // Nothing is sent if the transaction rolls back, so we never announce tasks that don't exist.
+      commandContext
+          .getTransactionContext()
+          .addTransactionListener(TransactionState.COMMITTED, ctx -> execute(taskId, event, work));
+    }
+  }
+
+  private void execute(String taskId, String event, Runnable work) {
+    try {
+      postCommitExecutor
+          .get()
+          .execute(
+              taskId,
+              () -> {
+                try {
+                  work.run();
+                } catch (RuntimeException e) {
+                  logger.warn("Failed to dispatch " + event + " to Slack", e);
+                }
+              });
+    } catch (RejectedExecutionException e) {
+      // The queue is full, or the executor is shutting down. The engine thread must not do the
+      // Slack work itself, so this event is dropped.
+      rejectedEvents.increment();
+      logger.warn("Dispatch executor rejected " + event + ", not notifying Slack: " + e);
     }
   }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.powertask.slack.FormField;
+import io.powertask.slack.formfields.ImmutableLongField;
+import io.powertask.slack.formfields.ImmutableStringField;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.camunda.bpm.engine.impl.form.FormFieldImpl;
+import org.camunda.bpm.engine.impl.form.TaskFormDataImpl;
+import org.camunda.bpm.engine.impl.form.type.AbstractFormFieldType;
+import org.camunda.bpm.engine.impl.form.type.LongFormType;
+import org.camunda.bpm.engine.impl.form.type.StringFormType;
+import org.camunda.bpm.engine.variable.impl.value.PrimitiveTypeValueImpl;
+import org.camunda.bpm.engine.variable.value.TypedValue;
+import org.junit.jupiter.api.Test;
+
+class FormSchemaTest {
+
+  @Test
+  void bindsLabelsAndValuesToCompiledFields() {
+    FormSchema schema =
+        FormSchema.compile(
+            Arrays.asList(
+                definition("name", "string", Collections.singletonMap("maxlength", "30")),
+                definition("amount", "long", Collections.singletonMap("max", "100"))));
+
+    TaskFormDataImpl formData = new TaskFormDataImpl();
+    formData.setFormFields(
+        Arrays.asList(
+            field(
+                "name",
+                "Name",
+                new StringFormType(),
+                new PrimitiveTypeValueImpl.StringValueImpl("Alice")),
+            field(
+                "amount",
+                "Amount",
+                new LongFormType(),
+                new PrimitiveTypeValueImpl.LongValueImpl(5L))));
+    List<FormField<?>> fields = schema.bind(formData).fields();
+
+    assertEquals(
+        ImmutableStringField.builder()
+            .id("name")
+            .label("Name")
+            .value("Alice")
+            .required(false)
+            .multiline(false)
+            .maxLength(30)
+            .build(),
+        fields.get(0));
+    assertEquals(
+        ImmutableLongField.builder()
+            .id("amount")
+            .label("Amount")
+            .value(5L)
+            .required(false)
+            .max(99L)
+            .build(),
+        fields.get(1));
+  }
+
+  @Test
+  void skipsUnsupportedTypes() {
+    FormSchema.compile(
+        Arrays.asList(
+            definition("name", "string", Collections.emptyMap()),
+            definition("attachment", "file", Collections.emptyMap())));
+  }
+
+  @Test
+  void rejectsInvalidConstraints() {
+    assertThrows(
+        NumberFormatException.class,
+        () ->
+            FormSchema.compile(
+                Collections.singletonList(
+                    definition("name", "string", Collections.singletonMap("minlength", "ten")))));
+  }
+
+  private static FieldDefinition definition(
+      String id, String type, Map<String, String> constraints) {
+    Map<String, Optional<String>> optionalConstraints = new LinkedHashMap<>();
+    constraints.forEach((name, config) -> optionalConstraints.put(name, Optional.of(config)));
+    return new FieldDefinition(
+        id, type, Collections.emptyMap(), optionalConstraints, Collections.emptyMap());
+  }
+
+  private static FormFieldImpl field(
+      String id, String label, AbstractFormFieldType type, TypedValue value) {
+    FormFieldImpl formField = new FormFieldImpl();
+    formField.setId(id);
+    formField.setLabel(label);
+    formField.setType(type);
+    formField.setValue(value);
+    return formField;
+  }
+}
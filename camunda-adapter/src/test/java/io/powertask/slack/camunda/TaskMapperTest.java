@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.powertask.slack.usertasks.Task;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.RuntimeService;
+import org.camunda.bpm.engine.TaskService;
+import org.camunda.bpm.engine.impl.cfg.StandaloneInMemProcessEngineConfiguration;
+import org.camunda.bpm.engine.impl.persistence.entity.ExecutionEntity;
+import org.camunda.bpm.model.bpmn.Bpmn;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TaskMapperTest {
+
+  private ProcessEngine processEngine;
+  private RuntimeService runtimeService;
+  private TaskService taskService;
+  private TaskMapper taskMapper;
+
+  @BeforeEach
+  void startEngine() {
+    StandaloneInMemProcessEngineConfiguration configuration =
+        new StandaloneInMemProcessEngineConfiguration();
+    configuration.setJdbcUrl("jdbc:h2:mem:task-mapper;DB_CLOSE_DELAY=-1");
+    configuration.setDatabaseSchemaUpdate("create-drop");
+    configuration.setJobExecutorActivate(false);
+    configuration.setHistory("none");
+    processEngine = configuration.buildProcessEngine();
+    runtimeService = processEngine.getRuntimeService();
+    taskService = processEngine.getTaskService();
+    taskMapper =
+        new TaskMapper(
+            new PropertiesResolver(processEngine.getRepositoryService()), runtimeService);
+
+    // Two parallel tasks in a subprocess, so each task runs in a child of the subprocess scope.
+    processEngine
+        .getRepositoryService()
+        .createDeployment()
+        .addModelInstance(
+            "process.bpmn",
+            Bpmn.createExecutableProcess("process")
+                .startEvent()
+                .subProcess()
+                .embeddedSubProcess()
+                .startEvent()
+                .parallelGateway("fork")
+                .userTask("first")
+                .endEvent()
+                .moveToNode("fork")
+                .userTask("second")
+                .endEvent()
+                .subProcessDone()
+                .endEvent()
+                .done())
+        .deploy();
+  }
+
+  @AfterEach
+  void stopEngine() {
+    processEngine.close();
+  }
+
+  @Test
+  void errorMessageClosestToTheTaskWins() {
+    String processInstanceId = start("root message");
+    String otherProcessInstanceId = start("other message");
+    org.camunda.bpm.engine.task.Task first =
+        taskService
+            .createTaskQuery()
+            .processInstanceId(processInstanceId)
+            .taskDefinitionKey("first")
+            .singleResult();
+    String scopeExecutionId =
+        ((ExecutionEntity)
+                runtimeService
+                    .createExecutionQuery()
+                    .executionId(first.getExecutionId())
+                    .singleResult())
+            .getParentId();
+    runtimeService.setVariableLocal(
+        scopeExecutionId, TaskMapper.VARIABLE_TASK_ERROR_MESSAGE, "scope message");
+
+    List<Task> tasks = taskMapper.fromTasks(taskService.createTaskQuery().list());
+
+    assertEquals(4, tasks.size());
+    for (Task task : tasks) {
+      String expected =
+          task.processInstanceId().equals(otherProcessInstanceId)
+              ? "other message"
+              : "scope message";
+      assertEquals(Optional.of(expected), task.errorMessage());
+    }
+  }
+
+  @Test
+  void rejectsStandaloneTasksLikeSingleTasks() {
+    org.camunda.bpm.engine.task.Task standalone = taskService.newTask();
+    taskService.saveTask(standalone);
+    org.camunda.bpm.engine.task.Task saved =
+        taskService.createTaskQuery().taskId(standalone.getId()).singleResult();
+
+    assertThrows(IllegalArgumentException.class, () -> taskMapper.fromTask(saved));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> taskMapper.fromTasks(Collections.singletonList(saved)));
+  }
+
+  private String start(String errorMessage) {
+    return runtimeService
+        .startProcessInstanceByKey(
+            "process",
+            Collections.singletonMap(TaskMapper.VARIABLE_TASK_ERROR_MESSAGE, errorMessage))
+        .getId();
+  }
+}
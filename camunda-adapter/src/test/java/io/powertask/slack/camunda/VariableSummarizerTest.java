@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.powertask.slack.VariableSummary;
+import org.camunda.bpm.engine.variable.Variables;
+import org.camunda.bpm.engine.variable.Variables.SerializationDataFormats;
+import org.junit.jupiter.api.Test;
+
+class VariableSummarizerTest {
+
+  @Test
+  void shortValuesAreKept() {
+    VariableSummary summary = VariableSummarizer.summarize(Variables.longValue(42L), 10);
+
+    assertEquals("long", summary.type());
+    assertEquals("42", summary.displayText());
+    assertFalse(summary.truncated());
+  }
+
+  @Test
+  void longTextIsCutOff() {
+    VariableSummary summary = VariableSummarizer.summarize(Variables.stringValue("abcdefgh"), 5);
+
+    assertEquals("abcde", summary.text());
+    assertTrue(summary.truncated());
+    assertEquals("abcde…", summary.displayText());
+  }
+
+  @Test
+  void serializedJavaObjectsAreDescribed() {
+    VariableSummary summary =
+        VariableSummarizer.summarize(
+            Variables.serializedObjectValue("rO0ABXQAA2Zvbw==")
+                .serializationDataFormat(SerializationDataFormats.JAVA)
+                .objectTypeName("com.example.Order")
+                .create(),
+            100);
+
+    assertEquals("<com.example.Order>", summary.text());
+  }
+
+  @Test
+  void serializedJsonIsShownAsText() {
+    VariableSummary summary =
+        VariableSummarizer.summarize(
+            Variables.serializedObjectValue("{\"items\":[1,2,3]}")
+                .serializationDataFormat(SerializationDataFormats.JSON)
+                .objectTypeName("com.example.Order")
+                .create(),
+            10);
+
+    assertEquals("{\"items\":[", summary.text());
+    assertTrue(summary.truncated());
+  }
+
+  @Test
+  void bytesAreDescribed() {
+    assertEquals(
+        "<3 bytes>",
+        VariableSummarizer.summarize(Variables.byteArrayValue(new byte[3]), 100).text());
+  }
+}
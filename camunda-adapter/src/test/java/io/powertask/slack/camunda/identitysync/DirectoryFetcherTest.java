@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda.identitysync;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.slack.api.RequestConfigurator;
+import com.slack.api.methods.MethodsClient;
+import com.slack.api.methods.request.conversations.ConversationsMembersRequest;
+import com.slack.api.methods.request.conversations.ConversationsMembersRequest.ConversationsMembersRequestBuilder;
+import com.slack.api.methods.request.users.UsersListRequest;
+import com.slack.api.methods.request.users.UsersListRequest.UsersListRequestBuilder;
+import com.slack.api.methods.response.conversations.ConversationsMembersResponse;
+import com.slack.api.methods.response.users.UsersListResponse;
+import com.slack.api.model.ResponseMetadata;
+import com.slack.api.model.User;
+import io.powertask.slack.camunda.identitysync.IdentitySyncConfiguration.GroupMode;
+import io.powertask.slack.scheduling.NotificationScheduler;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class DirectoryFetcherTest {
+
+  private static final int PAGES = 2;
+
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+  private final AtomicInteger calls = new AtomicInteger();
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+
+  @AfterEach
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void followsAllPagesOfUsers() {
+    Set<String> users = fetcher().users().stream().map(User::getId).collect(Collectors.toSet());
+
+    assertEquals(new HashSet<>(Arrays.asList("U0", "U1")), users);
+    assertEquals(PAGES, calls.get());
+  }
+
+  @Test
+  void fetchesMembersOfAllChannelsWithBoundedConcurrency() {
+    List<String> channels = Arrays.asList("C0", "C1", "C2", "C3");
+    Map<String, Set<String>> members = fetcher().members(channels, GroupMode.CHANNELS);
+
+    assertEquals(channels.size(), members.size());
+    assertEquals(new HashSet<>(Arrays.asList("C2-U0", "C2-U1")), members.get("C2"));
+    assertEquals(channels.size() * PAGES, calls.get());
+    assertTrue(maxInFlight.get() <= 2, "At most 2 calls in flight, got " + maxInFlight.get());
+  }
+
+  @Test
+  void startsBoundedNumberOfGroupsAtOnce() {
+    // Fetching all channels at once would overflow this queue.
+    NotificationScheduler scheduler =
+        new NotificationScheduler(4, NotificationScheduler.OverflowPolicy.REJECT, 0);
+    try {
+      List<String> channels =
+          IntStream.range(0, 20).mapToObj(i -> "C" + i).collect(Collectors.toList());
+      Map<String, Set<String>> members =
+          new DirectoryFetcher(methodsClient(), scheduler, executor, 2)
+              .members(channels, GroupMode.CHANNELS);
+
+      assertEquals(channels.size(), members.size());
+    } finally {
+      scheduler.close();
+    }
+  }
+
+  private DirectoryFetcher fetcher() {
+    return new DirectoryFetcher(methodsClient(), new NotificationScheduler(), executor, 2);
+  }
+
+  // Every listing has PAGES pages of one entry each; the cursor is the page number.
+  @SuppressWarnings("unchecked")
+  private MethodsClient methodsClient() {
+    return (MethodsClient)
+        Proxy.newProxyInstance(
+            MethodsClient.class.getClassLoader(),
+            new Class<?>[] {MethodsClient.class},
+            (proxy, method, args) -> {
+              if (args == null || !(args[0] instanceof RequestConfigurator)) {
+                throw new UnsupportedOperationException(method.getName());
+              }
+              RequestConfigurator<Object> configurator = (RequestConfigurator<Object>) args[0];
+              switch (method.getName()) {
+                case "usersList":
+                  {
+                    UsersListRequest request =
+                        ((UsersListRequestBuilder)
+                                configurator.configure(UsersListRequest.builder()))
+                            .build();
+                    int page = enter(request.getCursor());
+                    User user = new User();
+                    user.setId("U" + page);
+                    UsersListResponse response = new UsersListResponse();
+                    response.setOk(true);
+                    response.setMembers(Collections.singletonList(user));
+                    response.setResponseMetadata(next(page));
+                    return response;
+                  }
+                case "conversationsMembers":
+                  {
+                    ConversationsMembersRequest request =
+                        ((ConversationsMembersRequestBuilder)
+                                configurator.configure(ConversationsMembersRequest.builder()))
+                            .build();
+                    int page = enter(request.getCursor());
+                    ConversationsMembersResponse response = new ConversationsMembersResponse();
+                    response.setOk(true);
+                    response.setMembers(
+                        Collections.singletonList(request.getChannel() + "-U" + page));
+                    response.setResponseMetadata(next(page));
+                    return response;
+                  }
+                default:
+                  throw new UnsupportedOperationException(method.getName());
+              }
+            });
+  }
+
+  private int enter(String cursor) throws InterruptedException {
+    calls.incrementAndGet();
+    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+    try {
+      Thread.sleep(10);
+    } finally {
+      inFlight.decrementAndGet();
+    }
+    return cursor == null || cursor.isEmpty() ? 0 : Integer.parseInt(cursor);
+  }
+
+  private static ResponseMetadata next(int page) {
+    ResponseMetadata metadata = new ResponseMetadata();
+    metadata.setNextCursor(page < PAGES - 1 ? String.valueOf(page + 1) : "");
+    return metadata;
+  }
+}
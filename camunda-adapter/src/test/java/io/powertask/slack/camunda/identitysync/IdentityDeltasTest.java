@@ -0,0 +1,165 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda.identitysync;
+
+import static io.powertask.slack.camunda.identitysync.IdentitySync.CAMUNDA_ADMIN_GROUP;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.slack.api.model.User;
+import io.powertask.slack.camunda.identitysync.IdentitySyncConfiguration.AdminMode;
+import io.powertask.slack.camunda.identitysync.IdentitySyncConfiguration.GroupMode;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import org.camunda.bpm.engine.IdentityService;
+import org.camunda.bpm.engine.ProcessEngine;
+import org.camunda.bpm.engine.impl.cfg.StandaloneInMemProcessEngineConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IdentityDeltasTest {
+
+  private ProcessEngine processEngine;
+  private IdentityService identityService;
+
+  @BeforeEach
+  void startEngine() {
+    StandaloneInMemProcessEngineConfiguration configuration =
+        new StandaloneInMemProcessEngineConfiguration();
+    configuration.setJdbcUrl("jdbc:h2:mem:identity-deltas;DB_CLOSE_DELAY=-1");
+    configuration.setDatabaseSchemaUpdate("create-drop");
+    configuration.setJobExecutorActivate(false);
+    configuration.setHistory("none");
+    processEngine = configuration.buildProcessEngine();
+    identityService = processEngine.getIdentityService();
+    identityService.saveGroup(identityService.newGroup(CAMUNDA_ADMIN_GROUP));
+  }
+
+  @AfterEach
+  void stopEngine() {
+    processEngine.close();
+  }
+
+  @Test
+  void insertsAndUpdatesUsers() {
+    IdentityDeltas deltas = deltas(AdminMode.GROUP);
+    User alice = user("U1", "Alice Smith", "alice@example.com");
+    deltas.userChanged(alice);
+    alice.getProfile().setEmail("alice@example.org");
+    deltas.userChanged(alice);
+
+    org.camunda.bpm.engine.identity.User user =
+        identityService.createUserQuery().userId("U1").singleResult();
+    assertEquals("Alice", user.getFirstName());
+    assertEquals("Smith", user.getLastName());
+    assertEquals("alice@example.org", user.getEmail());
+  }
+
+  @Test
+  void deletesDeactivatedUsersLikeTheFullSync() {
+    IdentityDeltas deltas = deltas(AdminMode.GROUP);
+    User alice = user("U1", "Alice Smith", "alice@example.com");
+    deltas.userChanged(alice);
+
+    alice.setDeleted(true);
+    assertFalse(IdentitySync.isSyncedUser(alice));
+    deltas.userChanged(alice);
+
+    assertNull(identityService.createUserQuery().userId("U1").singleResult());
+  }
+
+  @Test
+  void skipsBots() {
+    User bot = user("B1", "Bot", "bot@example.com");
+    bot.setBot(true);
+    deltas(AdminMode.GROUP).userChanged(bot);
+
+    assertEquals(0, identityService.createUserQuery().count());
+  }
+
+  @Test
+  void mirrorsTheAdminGroupAndSkipsUnknownUsers() {
+    IdentityDeltas deltas = deltas(AdminMode.GROUP);
+    deltas.userChanged(user("U1", "Alice Smith", "alice@example.com"));
+    deltas.userChanged(user("U2", "Bob", "bob@example.com"));
+
+    deltas.groupCreated("S1", "Admins", Arrays.asList("U1", "U9"));
+    deltas.memberJoined("S1", "U2");
+    assertEquals(2, identityService.createUserQuery().memberOfGroup("S1").count());
+    assertEquals(2, identityService.createUserQuery().memberOfGroup(CAMUNDA_ADMIN_GROUP).count());
+
+    deltas.membersChanged("S1", Collections.emptyList(), Collections.singletonList("U1"));
+    assertEquals(1, identityService.createUserQuery().memberOfGroup("S1").count());
+    assertEquals(
+        "U2",
+        identityService
+            .createUserQuery()
+            .memberOfGroup(CAMUNDA_ADMIN_GROUP)
+            .singleResult()
+            .getId());
+  }
+
+  @Test
+  void followsSlackAdmins() {
+    IdentityDeltas deltas = deltas(AdminMode.SLACK_ADMIN);
+    User alice = user("U1", "Alice Smith", "alice@example.com");
+    alice.setAdmin(true);
+    deltas.userChanged(alice);
+    assertEquals(1, identityService.createUserQuery().memberOfGroup(CAMUNDA_ADMIN_GROUP).count());
+
+    alice.setAdmin(false);
+    deltas.userChanged(alice);
+    assertEquals(0, identityService.createUserQuery().memberOfGroup(CAMUNDA_ADMIN_GROUP).count());
+  }
+
+  private IdentityDeltas deltas(AdminMode adminMode) {
+    return new IdentityDeltas(
+        new IdentitySyncConfiguration() {
+          @Override
+          public GroupMode getGroupMode() {
+            return GroupMode.GROUPS;
+          }
+
+          @Override
+          public Duration getSyncInterval() {
+            return Duration.ofHours(1);
+          }
+
+          @Override
+          public AdminMode getAdminMode() {
+            return adminMode;
+          }
+
+          @Override
+          public String getAdminGroupId() {
+            return "S1";
+          }
+        },
+        identityService);
+  }
+
+  private static User user(String id, String realName, String email) {
+    User user = new User();
+    user.setId(id);
+    user.setName(realName.toLowerCase());
+    user.setRealName(realName);
+    User.Profile profile = new User.Profile();
+    profile.setEmail(email);
+    user.setProfile(profile);
+    return user;
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda.identitysync;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class MembershipDiffTest {
+
+  @Test
+  void appliesOnlyChangedMemberships() {
+    MembershipDiff diff = new MembershipDiff();
+    diff.addExisting("g1", "alice");
+    diff.addExisting("g1", "bob");
+    diff.addExisting("g2", "carol");
+    diff.addExisting("unsynced", "alice");
+    diff.addDesired("g1", Arrays.asList("bob", "carol"));
+    diff.addDesired("g2", Collections.singletonList("carol"));
+    diff.addDesired("g3", Collections.singletonList("alice"));
+
+    List<String> created = new ArrayList<>();
+    List<String> deleted = new ArrayList<>();
+    diff.apply(
+        Arrays.asList("g1", "g2", "g3"),
+        (user, group) -> created.add(user + "@" + group),
+        (user, group) -> deleted.add(user + "@" + group));
+
+    assertEquals(Arrays.asList("carol@g1", "alice@g3"), created);
+    assertEquals(Collections.singletonList("alice@g1"), deleted);
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A map with a maximum size, that evicts the least recently used entries when full. Values are
+ * computed outside the lock, so concurrent misses for the same key may compute it more than once.
+ */
+public class BoundedCache<K, V> {
+
+  private final Map<K, V> entries;
+
+  public BoundedCache(int maxSize) {
+    this.entries =
+        new LinkedHashMap<K, V>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxSize;
+          }
+        };
+  }
+
+  public synchronized Optional<V> get(K key) {
+    return Optional.ofNullable(entries.get(key));
+  }
+
+  public synchronized void put(K key, V value) {
+    entries.put(key, value);
+  }
+
+  public V computeIfAbsent(K key, Function<K, V> compute) {
+    return get(key)
+        .orElseGet(
+            () -> {
+              V value = compute.apply(key);
+              put(key, value);
+              return value;
+            });
+  }
+
+  /**
+   * Atomically replaces the value with the result of {@code remap}, which gets null when there is
+   * none. It runs under the lock, so it should be cheap. A null result removes the entry.
+   */
+  public synchronized V compute(K key, BiFunction<K, V, V> remap) {
+    return entries.compute(key, remap);
+  }
+
+  public synchronized void invalidate(K key) {
+    entries.remove(key);
+  }
+
+  /** Removes the entry only if it still has this value. */
+  public synchronized void invalidate(K key, V value) {
+    entries.remove(key, value);
+  }
+
+  public synchronized void invalidateIf(Predicate<K> predicate) {
+    entries.keySet().removeIf(predicate);
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+}
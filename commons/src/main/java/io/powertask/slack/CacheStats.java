@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack;
+
+/** A snapshot of the counters of a {@link LoadingCache}. */
+public class CacheStats {
+
+  private final long hits;
+  private final long misses;
+  private final long negativeHits;
+  private final long loadFailures;
+  private final long refreshes;
+  private final long evictions;
+
+  public CacheStats(
+      long hits,
+      long misses,
+      long negativeHits,
+      long loadFailures,
+      long refreshes,
+      long evictions) {
+    this.hits = hits;
+    this.misses = misses;
+    this.negativeHits = negativeHits;
+    this.loadFailures = loadFailures;
+    this.refreshes = refreshes;
+    this.evictions = evictions;
+  }
+
+  // Reads answered with a cached value, including the ones that triggered a refresh.
+  public long hits() {
+    return hits;
+  }
+
+  // Reads that had to wait for a load, either their own or one that was already running.
+  public long misses() {
+    return misses;
+  }
+
+  // Reads answered with a remembered failure.
+  public long negativeHits() {
+    return negativeHits;
+  }
+
+  public long loadFailures() {
+    return loadFailures;
+  }
+
+  public long refreshes() {
+    return refreshes;
+  }
+
+  public long evictions() {
+    return evictions;
+  }
+
+  public double hitRate() {
+    long requests = hits + misses + negativeHits;
+    return requests == 0 ? 1.0 : (double) (hits + negativeHits) / requests;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStats{hits="
+        + hits
+        + ", misses="
+        + misses
+        + ", negativeHits="
+        + negativeHits
+        + ", loadFailures="
+        + loadFailures
+        + ", refreshes="
+        + refreshes
+        + ", evictions="
+        + evictions
+        + "}";
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack;
+
+import java.time.Duration;
+
+/**
+ * Counts consecutive failures, and once there are too many, rejects requests for a while. After
+ * that, a single trial request is let through; if it fails the circuit opens again, if it succeeds
+ * the circuit closes. A trial that never reports back is given up on after another open period.
+ *
+ * <p>Times are in nanoseconds, as returned by {@link System#nanoTime()}.
+ */
+public class CircuitBreaker {
+
+  private final int failureThreshold;
+  private final long openNanos;
+
+  private int consecutiveFailures = 0;
+  private long openUntil = 0;
+  private boolean probing = false;
+  private long probeStartedAt = 0;
+
+  public CircuitBreaker(int failureThreshold, Duration openDuration) {
+    this.failureThreshold = failureThreshold;
+    this.openNanos = openDuration.toNanos();
+  }
+
+  public synchronized boolean allowRequest(long now) {
+    if (consecutiveFailures < failureThreshold) {
+      return true;
+    } else if (now - openUntil < 0 || (probing && now - probeStartedAt < openNanos)) {
+      return false;
+    }
+    probing = true;
+    probeStartedAt = now;
+    return true;
+  }
+
+  public synchronized void recordSuccess() {
+    consecutiveFailures = 0;
+    probing = false;
+  }
+
+  /** @return whether this failure opened the circuit. */
+  public synchronized boolean recordFailure(long now) {
+    consecutiveFailures++;
+    probing = false;
+    if (consecutiveFailures >= failureThreshold) {
+      openUntil = now + openNanos;
+      return true;
+    }
+    return false;
+  }
+
+  public synchronized boolean isOpen(long now) {
+    return consecutiveFailures >= failureThreshold && now - openUntil < 0;
+  }
+}
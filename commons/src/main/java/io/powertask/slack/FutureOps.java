@@ -13,25 +13,282 @@
  */
 package io.powertask.slack;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
 import java.util.stream.Collector;
 
 public class FutureOps {
 
-  public static <T> CompletionStage<List<T>> sequence(List<CompletionStage<T>> list) {
-    return traverse(list, Function.identity());
+  // Java 8 has no CompletableFuture.orTimeout, so timeouts are scheduled on a shared daemon thread.
+  // The tasks scheduled here only complete futures, they never run user code.
+  private static final ScheduledExecutorService TIMEOUT_SCHEDULER =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "powertask-future-timeouts");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  /**
+   * Turns a list of stages into a stage of a list, preserving order. Uses a single {@link
+   * CompletableFuture#allOf} instead of chaining a stage per element, so the cost stays linear in
+   * the number of stages. If any of the stages fails, the result fails once all stages completed.
+   */
+  public static <T> CompletionStage<List<T>> sequence(List<? extends CompletionStage<T>> list) {
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[list.size()];
+    for (int i = 0; i < futures.length; i++) {
+      futures[i] = list.get(i).toCompletableFuture();
+    }
+    return CompletableFuture.allOf(futures)
+        .thenApply(
+            v -> {
+              List<T> ts = new ArrayList<>(futures.length);
+              for (CompletableFuture<?> future : futures) {
+                @SuppressWarnings("unchecked")
+                T t = (T) future.join();
+                ts.add(t);
+              }
+              return ts;
+            });
+  }
+
+  public static <T, U> CompletionStage<List<U>> traverse(
+      List<T> list, Function<T, CompletionStage<U>> fn) {
+    List<CompletionStage<U>> stages = new ArrayList<>(list.size());
+    for (T t : list) {
+      stages.add(fn.apply(t));
+    }
+    return sequence(stages);
+  }
+
+  /**
+   * Like {@link #traverse(List, Function)}, but with at most `maxInFlight` stages running at the
+   * same time. The result fails with the first failure, after which no new stages are started.
+   */
+  public static <T, U> CompletionStage<List<U>> traverse(
+      List<T> list, int maxInFlight, Function<T, CompletionStage<U>> fn) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be at least 1, was " + maxInFlight);
+    }
+    CompletableFuture<List<U>> result = new CompletableFuture<>();
+    AtomicReferenceArray<U> results = new AtomicReferenceArray<>(list.size());
+    AtomicInteger remaining = new AtomicInteger(list.size());
+    // Free slots, and the number of drain requests. Stages that complete right away call drain
+    // again from within the loop; the loop picks that up instead of recursing, so the stack doesn't
+    // grow with the number of stages.
+    AtomicInteger slots = new AtomicInteger(maxInFlight);
+    AtomicInteger drainRequests = new AtomicInteger();
+    int[] next = new int[1];
+
+    Runnable drain =
+        new Runnable() {
+          @Override
+          public void run() {
+            if (drainRequests.getAndIncrement() != 0) {
+              return;
+            }
+            do {
+              // Only the thread that owns the loop touches next.
+              while (next[0] < list.size() && !result.isDone() && slots.get() > 0) {
+                slots.decrementAndGet();
+                start(next[0]++);
+              }
+            } while (drainRequests.decrementAndGet() != 0);
+          }
+
+          private void start(int i) {
+            CompletionStage<U> stage;
+            try {
+              stage = fn.apply(list.get(i));
+            } catch (RuntimeException e) {
+              result.completeExceptionally(e);
+              return;
+            }
+            stage.whenComplete(
+                (u, throwable) -> {
+                  if (throwable != null) {
+                    result.completeExceptionally(unwrap(throwable));
+                    return;
+                  }
+                  results.set(i, u);
+                  if (remaining.decrementAndGet() == 0) {
+                    List<U> us = new ArrayList<>(list.size());
+                    for (int j = 0; j < list.size(); j++) {
+                      us.add(results.get(j));
+                    }
+                    result.complete(us);
+                  } else {
+                    slots.incrementAndGet();
+                    run();
+                  }
+                });
+          }
+        };
+
+    if (list.isEmpty()) {
+      result.complete(new ArrayList<>());
+    } else {
+      drain.run();
+    }
+    return result;
   }
 
+  /**
+   * Like {@link #traverse(List, int, Function)}, but every stage that hasn't completed within
+   * `timeout` after it was started fails with a {@link TimeoutException}.
+   */
   public static <T, U> CompletionStage<List<U>> traverse(
+      List<T> list, int maxInFlight, Duration timeout, Function<T, CompletionStage<U>> fn) {
+    return traverse(list, maxInFlight, t -> withTimeout(fn.apply(t), timeout));
+  }
+
+  /**
+   * Returns a stage that completes like the given one, or fails with a {@link TimeoutException} if
+   * it hasn't completed within the timeout. The original stage is not cancelled.
+   */
+  public static <T> CompletionStage<T> withTimeout(CompletionStage<T> stage, Duration timeout) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    ScheduledFuture<?> timer =
+        TIMEOUT_SCHEDULER.schedule(
+            () ->
+                result.completeExceptionally(
+                    new TimeoutException("Timed out after " + timeout.toMillis() + "ms")),
+            timeout.toNanos(),
+            TimeUnit.NANOSECONDS);
+    stage.whenComplete(
+        (t, throwable) -> {
+          timer.cancel(false);
+          if (throwable != null) {
+            result.completeExceptionally(unwrap(throwable));
+          } else {
+            result.complete(t);
+          }
+        });
+    return result;
+  }
+
+  /**
+   * Waits for all stages to complete, successfully or not, and returns the successes and failures
+   * separately. The returned stage never fails.
+   */
+  public static <T> CompletionStage<Settled<T>> settleAll(List<? extends CompletionStage<T>> list) {
+    int size = list.size();
+    CompletableFuture<?>[] futures = new CompletableFuture<?>[size];
+    for (int i = 0; i < size; i++) {
+      // Swallow the failure here, so allOf waits for every stage instead of the first failure.
+      futures[i] = list.get(i).toCompletableFuture().handle((t, throwable) -> null);
+    }
+    return CompletableFuture.allOf(futures)
+        .thenApply(
+            v -> {
+              List<T> successes = new ArrayList<>();
+              List<Throwable> failures = new ArrayList<>();
+              for (CompletionStage<T> stage : list) {
+                CompletableFuture<T> future = stage.toCompletableFuture();
+                try {
+                  successes.add(future.join());
+                } catch (CompletionException | CancellationException e) {
+                  failures.add(unwrap(e));
+                }
+              }
+              return new Settled<>(successes, failures);
+            });
+  }
+
+  public static <T, U> CompletionStage<Settled<U>> settleAll(
       List<T> list, Function<T, CompletionStage<U>> fn) {
-    return list.stream().map(fn).collect(completionStageListCollector());
+    List<CompletionStage<U>> stages = new ArrayList<>(list.size());
+    for (T t : list) {
+      try {
+        stages.add(fn.apply(t));
+      } catch (RuntimeException e) {
+        CompletableFuture<U> failed = new CompletableFuture<>();
+        failed.completeExceptionally(e);
+        stages.add(failed);
+      }
+    }
+    return settleAll(stages);
+  }
+
+  /**
+   * Like {@link #settleAll(List, Function)}, but with at most `maxInFlight` stages running at the
+   * same time. A failure doesn't stop the remaining stages from being started.
+   */
+  public static <T, U> CompletionStage<Settled<U>> settleAll(
+      List<T> list, int maxInFlight, Function<T, CompletionStage<U>> fn) {
+    // Every stage is turned into one that succeeds with the original, once that has completed.
+    return traverse(
+            list,
+            maxInFlight,
+            t -> {
+              CompletableFuture<U> future;
+              try {
+                future = fn.apply(t).toCompletableFuture();
+              } catch (RuntimeException e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+              }
+              CompletableFuture<U> completed = future;
+              return completed.handle((u, throwable) -> completed);
+            })
+        .thenCompose(FutureOps::settleAll);
+  }
+
+  private static Throwable unwrap(Throwable throwable) {
+    if (throwable instanceof CompletionException && throwable.getCause() != null) {
+      return throwable.getCause();
+    }
+    return throwable;
+  }
+
+  /** The outcome of {@link #settleAll(List)}. Both lists keep the order of the input. */
+  public static final class Settled<T> {
+    private final List<T> successes;
+    private final List<Throwable> failures;
+
+    Settled(List<T> successes, List<Throwable> failures) {
+      this.successes = Collections.unmodifiableList(successes);
+      this.failures = Collections.unmodifiableList(failures);
+    }
+
+    public List<T> successes() {
+      return successes;
+    }
+
+    public List<Throwable> failures() {
+      return failures;
+    }
+
+    public boolean allSucceeded() {
+      return failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+      return "Settled{successes=" + successes.size() + ", failures=" + failures.size() + "}";
+    }
   }
 
+  /**
+   * @deprecated Builds a chain of n nested {@code thenCombine} stages, which gets slow and deep for
+   *     large inputs. Collect the stages into a list and use {@link #sequence(List)} instead.
+   */
+  @Deprecated
   public static <X>
       Collector<
               CompletionStage<X>,
@@ -0,0 +1,259 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache that loads missing values itself, for lookups that are slow or rate limited.
+ *
+ * <ul>
+ *   <li>Holds at most maxSize entries, evicting the least recently used.
+ *   <li>Values expire after expireAfterWrite. Once a value is older than refreshAfterWrite, the
+ *       next read returns it and reloads it in the background, so popular keys don't expire.
+ *   <li>Concurrent misses for the same key share a single load.
+ *   <li>A failed load is remembered for negativeTtl, and rethrown to readers in that time, so a key
+ *       that can't be resolved isn't looked up on every read.
+ * </ul>
+ */
+public class LoadingCache<K, V> {
+
+  private static final Logger logger = LoggerFactory.getLogger(LoadingCache.class);
+
+  private final Function<K, V> loader;
+  private final long expireNanos;
+  private final long refreshNanos;
+  private final long negativeNanos;
+  private final Executor refreshExecutor;
+  private final LongSupplier ticker;
+
+  private final Map<K, Entry<V>> entries;
+  private final ConcurrentMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+  // Incremented on every invalidation. A value that was loaded while an invalidation happened may
+  // already be outdated, so it isn't stored.
+  private final AtomicLong generation = new AtomicLong();
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong negativeHits = new AtomicLong();
+  private final AtomicLong loadFailures = new AtomicLong();
+  private final AtomicLong refreshes = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+
+  private static final class Entry<V> {
+    private final V value;
+    private final RuntimeException failure;
+    private final long loadedAt;
+    private boolean refreshing;
+
+    private Entry(V value, RuntimeException failure, long loadedAt) {
+      this.value = value;
+      this.failure = failure;
+      this.loadedAt = loadedAt;
+    }
+  }
+
+  /**
+   * @param refreshAfterWrite when not shorter than expireAfterWrite, values are never refreshed
+   *     ahead of expiry.
+   * @param negativeTtl zero to not remember failures.
+   */
+  public LoadingCache(
+      Function<K, V> loader,
+      int maxSize,
+      Duration expireAfterWrite,
+      Duration refreshAfterWrite,
+      Duration negativeTtl,
+      Executor refreshExecutor) {
+    this(
+        loader,
+        maxSize,
+        expireAfterWrite,
+        refreshAfterWrite,
+        negativeTtl,
+        refreshExecutor,
+        System::nanoTime);
+  }
+
+  LoadingCache(
+      Function<K, V> loader,
+      int maxSize,
+      Duration expireAfterWrite,
+      Duration refreshAfterWrite,
+      Duration negativeTtl,
+      Executor refreshExecutor,
+      LongSupplier ticker) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be at least 1");
+    }
+    this.loader = loader;
+    this.expireNanos = expireAfterWrite.toNanos();
+    this.refreshNanos = refreshAfterWrite.toNanos();
+    this.negativeNanos = negativeTtl.toNanos();
+    this.refreshExecutor = refreshExecutor;
+    this.ticker = ticker;
+    this.entries =
+        new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            if (size() > maxSize) {
+              evictions.incrementAndGet();
+              return true;
+            }
+            return false;
+          }
+        };
+  }
+
+  /** Returns the value for the key, loading it if needed. Load failures are rethrown. */
+  public V get(K key) {
+    long now = ticker.getAsLong();
+    boolean refresh = false;
+    V current = null;
+    synchronized (this) {
+      Entry<V> entry = entries.get(key);
+      if (entry != null && entry.failure != null && now - entry.loadedAt < negativeNanos) {
+        negativeHits.incrementAndGet();
+        throw entry.failure;
+      }
+      if (entry != null && entry.failure == null && now - entry.loadedAt < expireNanos) {
+        hits.incrementAndGet();
+        if (now - entry.loadedAt >= refreshNanos && !entry.refreshing) {
+          entry.refreshing = true;
+          refresh = true;
+          // The entry may be invalidated before the refresh starts.
+          current = entry.value;
+        }
+        if (!refresh) {
+          return entry.value;
+        }
+      }
+    }
+    if (refresh) {
+      refresh(key);
+      return current;
+    }
+    misses.incrementAndGet();
+    return load(key, false);
+  }
+
+  public synchronized void invalidate(K key) {
+    generation.incrementAndGet();
+    entries.remove(key);
+  }
+
+  public synchronized void invalidateAll() {
+    generation.incrementAndGet();
+    entries.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public CacheStats stats() {
+    return new CacheStats(
+        hits.get(),
+        misses.get(),
+        negativeHits.get(),
+        loadFailures.get(),
+        refreshes.get(),
+        evictions.get());
+  }
+
+  // Reloads the value in the background.
+  private void refresh(K key) {
+    refreshes.incrementAndGet();
+    try {
+      refreshExecutor.execute(
+          () -> {
+            try {
+              load(key, true);
+            } catch (RuntimeException e) {
+              // The current value stays until it expires; the next read after that retries.
+              logger.debug("Refreshing {} failed", key, e);
+              clearRefreshing(key);
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      logger.debug("Refreshing {} was rejected", key);
+      clearRefreshing(key);
+    }
+  }
+
+  private synchronized void clearRefreshing(K key) {
+    Entry<V> entry = entries.get(key);
+    if (entry != null) {
+      entry.refreshing = false;
+    }
+  }
+
+  private V load(K key, boolean refresh) {
+    CompletableFuture<V> ours = new CompletableFuture<>();
+    CompletableFuture<V> inFlight = loading.putIfAbsent(key, ours);
+    if (inFlight != null) {
+      return join(inFlight);
+    }
+    long loadGeneration = generation.get();
+    try {
+      V value = loader.apply(key);
+      if (value == null) {
+        throw new IllegalStateException("No value found for " + key);
+      }
+      store(key, new Entry<>(value, null, ticker.getAsLong()), loadGeneration);
+      ours.complete(value);
+      return value;
+    } catch (RuntimeException e) {
+      loadFailures.incrementAndGet();
+      // A failed refresh keeps the value that's still there.
+      if (negativeNanos > 0 && !refresh) {
+        store(key, new Entry<>(null, e, ticker.getAsLong()), loadGeneration);
+      }
+      ours.completeExceptionally(e);
+      throw e;
+    } finally {
+      loading.remove(key, ours);
+    }
+  }
+
+  private synchronized void store(K key, Entry<V> entry, long loadGeneration) {
+    if (generation.get() == loadGeneration) {
+      entries.put(key, entry);
+    }
+  }
+
+  private static <V> V join(CompletableFuture<V> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+}
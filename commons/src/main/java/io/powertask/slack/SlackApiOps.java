@@ -13,10 +13,15 @@
  */
 package io.powertask.slack;
 
+import com.slack.api.methods.MethodsCompletionException;
 import com.slack.api.methods.SlackApiException;
 import com.slack.api.methods.SlackApiTextResponse;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import okhttp3.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -24,6 +29,10 @@ public class SlackApiOps {
 
   private static final Logger logger = LoggerFactory.getLogger(SlackApiOps.class);
 
+  static final int HTTP_TOO_MANY_REQUESTS = 429;
+  private static final String HEADER_RETRY_AFTER = "Retry-After";
+  private static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(1);
+
   @FunctionalInterface
   public interface SlackApiCall<T> {
     T get() throws IOException, SlackApiException;
@@ -46,4 +55,49 @@ public class SlackApiOps {
       throw new RuntimeException("Slack API call failure", e);
     }
   }
+
+  /**
+   * If the throwable, or one of its wrappers, indicates that Slack rate limited the call, returns
+   * how long Slack asked us to wait.
+   */
+  public static Optional<Duration> retryAfter(Throwable throwable) {
+    return slackApiException(throwable)
+        .filter(e -> e.getResponse().code() == HTTP_TOO_MANY_REQUESTS)
+        .map(e -> retryAfter(e.getResponse()));
+  }
+
+  /** How long a rate limited response asks us to wait. */
+  static Duration retryAfter(Response response) {
+    return Optional.ofNullable(response.header(HEADER_RETRY_AFTER))
+        .flatMap(SlackApiOps::parseSeconds)
+        .orElse(DEFAULT_RETRY_AFTER);
+  }
+
+  /** Unwraps the exceptions that the blocking and async Slack clients wrap API errors in. */
+  public static Optional<SlackApiException> slackApiException(Throwable throwable) {
+    Throwable t = throwable;
+    while (t != null) {
+      if (t instanceof SlackApiException) {
+        return Optional.of((SlackApiException) t);
+      } else if (t instanceof MethodsCompletionException) {
+        return Optional.ofNullable(((MethodsCompletionException) t).getSlackApiException());
+      } else if (t instanceof CompletionException
+          || t instanceof ExecutionException
+          || t.getClass() == RuntimeException.class) {
+        t = t.getCause();
+      } else {
+        return Optional.empty();
+      }
+    }
+    return Optional.empty();
+  }
+
+  private static Optional<Duration> parseSeconds(String value) {
+    try {
+      return Optional.of(Duration.ofSeconds(Long.parseLong(value.trim())));
+    } catch (NumberFormatException e) {
+      logger.warn("Ignoring unparseable " + HEADER_RETRY_AFTER + " header: " + value);
+      return Optional.empty();
+    }
+  }
 }
@@ -0,0 +1,269 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Makes calls to the Slack API resilient against transient failures. As an OkHttp interceptor it
+ * sits below both the blocking and the async Slack clients.
+ *
+ * <ul>
+ *   <li>Server errors and I/O errors are retried with jittered exponential backoff, but only for
+ *       methods that are safe to repeat, or when the request never reached Slack.
+ *   <li>Rate limited calls (HTTP 429) are retried after the `Retry-After` period. Slack did not
+ *       process them, so this is safe for every method.
+ *   <li>Every Slack method has a circuit breaker that opens after repeated failures, so calls fail
+ *       fast with a {@link CircuitOpenException} while Slack is degraded.
+ * </ul>
+ *
+ * <p>The interceptor runs on the calling thread, which may be a Bolt request thread that has to
+ * acknowledge within three seconds. All waiting for one call therefore comes out of a single retry
+ * budget; once a wait doesn't fit in it, the last response or error is passed on as is. Calls that
+ * are sent through the {@code NotificationScheduler} then have their rate limits handled there.
+ */
+public class SlackResilienceInterceptor implements Interceptor {
+
+  private static final Logger logger = LoggerFactory.getLogger(SlackResilienceInterceptor.class);
+
+  public static final int DEFAULT_MAX_RETRIES = 3;
+  public static final Duration DEFAULT_BASE_BACKOFF = Duration.ofMillis(500);
+  public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(1);
+  public static final Duration DEFAULT_RETRY_BUDGET = Duration.ofSeconds(2);
+  public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+  public static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
+
+  private final int maxRetries;
+  private final Duration baseBackoff;
+  private final Duration maxBackoff;
+  private final Duration retryBudget;
+  private final int failureThreshold;
+  private final Duration openDuration;
+  private final Predicate<String> isIdempotent;
+
+  // The read methods that powertask calls, and views.publish, which replaces the whole view.
+  private static final Set<String> RETRYABLE_METHODS =
+      new HashSet<>(
+          Arrays.asList(
+              "conversations.list",
+              "conversations.members",
+              "usergroups.list",
+              "usergroups.users.list",
+              "users.info",
+              "users.list",
+              "users.lookupByEmail",
+              "views.publish"));
+
+  private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+  private final LongAdder retries = new LongAdder();
+  private final LongAdder rateLimited = new LongAdder();
+  private final LongAdder serverErrors = new LongAdder();
+  private final LongAdder ioErrors = new LongAdder();
+  private final LongAdder circuitsOpened = new LongAdder();
+  private final LongAdder shortCircuited = new LongAdder();
+
+  public SlackResilienceInterceptor() {
+    this(
+        DEFAULT_MAX_RETRIES,
+        DEFAULT_BASE_BACKOFF,
+        DEFAULT_MAX_BACKOFF,
+        DEFAULT_RETRY_BUDGET,
+        DEFAULT_FAILURE_THRESHOLD,
+        DEFAULT_OPEN_DURATION,
+        SlackResilienceInterceptor::isRetryableMethod);
+  }
+
+  public SlackResilienceInterceptor(
+      int maxRetries,
+      Duration baseBackoff,
+      Duration maxBackoff,
+      Duration retryBudget,
+      int failureThreshold,
+      Duration openDuration,
+      Predicate<String> isIdempotent) {
+    this.maxRetries = maxRetries;
+    this.baseBackoff = baseBackoff;
+    this.maxBackoff = maxBackoff;
+    this.retryBudget = retryBudget;
+    this.failureThreshold = failureThreshold;
+    this.openDuration = openDuration;
+    this.isIdempotent = isIdempotent;
+  }
+
+  /** Whether a Slack method can safely be repeated after a server or I/O error. */
+  public static boolean isRetryableMethod(String slackMethod) {
+    return RETRYABLE_METHODS.contains(slackMethod);
+  }
+
+  @Override
+  public Response intercept(Chain chain) throws IOException {
+    Request request = chain.request();
+    String method = slackMethod(request);
+    CircuitBreaker circuitBreaker =
+        circuitBreakers.computeIfAbsent(
+            method, m -> new CircuitBreaker(failureThreshold, openDuration));
+
+    if (!circuitBreaker.allowRequest(System.nanoTime())) {
+      shortCircuited.increment();
+      throw new CircuitOpenException(method);
+    }
+
+    boolean idempotent = isIdempotent.test(method);
+    int retryLimit = isInteractive(method) ? 0 : maxRetries;
+    long deadline = System.nanoTime() + retryBudget.toNanos();
+    for (int attempt = 0; ; attempt++) {
+      boolean canRetry = attempt < retryLimit;
+
+      Response response;
+      try {
+        response = chain.proceed(request);
+      } catch (IOException e) {
+        ioErrors.increment();
+        Duration delay = backoff(attempt);
+        if (canRetry && (idempotent || neverSent(e)) && fits(delay, deadline)) {
+          retry(method, attempt, delay, e.toString());
+          continue;
+        }
+        failed(method, circuitBreaker);
+        throw e;
+      }
+
+      if (response.code() == SlackApiOps.HTTP_TOO_MANY_REQUESTS) {
+        // Being rate limited says nothing about Slack's health, so the circuit breaker ignores it.
+        rateLimited.increment();
+        Duration delay = SlackApiOps.retryAfter(response);
+        if (canRetry && fits(delay, deadline)) {
+          response.close();
+          retry(method, attempt, delay, "HTTP 429");
+          continue;
+        }
+        return response;
+      } else if (response.code() >= 500) {
+        serverErrors.increment();
+        Duration delay = backoff(attempt);
+        if (canRetry && idempotent && fits(delay, deadline)) {
+          response.close();
+          retry(method, attempt, delay, "HTTP " + response.code());
+          continue;
+        }
+        failed(method, circuitBreaker);
+        return response;
+      } else {
+        circuitBreaker.recordSuccess();
+        return response;
+      }
+    }
+  }
+
+  /** Snapshot of how often each of the behaviors kicked in. */
+  public Map<String, Long> counters() {
+    Map<String, Long> counters = new LinkedHashMap<>();
+    counters.put("retries", retries.sum());
+    counters.put("rate-limited", rateLimited.sum());
+    counters.put("server-errors", serverErrors.sum());
+    counters.put("io-errors", ioErrors.sum());
+    counters.put("circuits-opened", circuitsOpened.sum());
+    counters.put("short-circuited", shortCircuited.sum());
+    return counters;
+  }
+
+  /** The Slack methods whose circuit breaker is currently open. */
+  public Set<String> openCircuits() {
+    long now = System.nanoTime();
+    return circuitBreakers.entrySet().stream()
+        .filter(entry -> entry.getValue().isOpen(now))
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toSet());
+  }
+
+  private void retry(String method, int attempt, Duration delay, String reason)
+      throws InterruptedIOException {
+    retries.increment();
+    logger.info(
+        "Retrying Slack method "
+            + method
+            + " in "
+            + delay
+            + " after "
+            + reason
+            + " (attempt "
+            + (attempt + 1)
+            + " of "
+            + maxRetries
+            + ")");
+    try {
+      Thread.sleep(delay.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to retry " + method);
+    }
+  }
+
+  private void failed(String method, CircuitBreaker circuitBreaker) {
+    if (circuitBreaker.recordFailure(System.nanoTime())) {
+      circuitsOpened.increment();
+      logger.warn(
+          "Circuit breaker for Slack method " + method + " opened for " + openDuration + ".");
+    }
+  }
+
+  private static boolean fits(Duration delay, long deadline) {
+    return System.nanoTime() + delay.toNanos() - deadline <= 0;
+  }
+
+  // Full jitter: a random delay up to the exponential backoff.
+  private Duration backoff(int attempt) {
+    long ceiling = Math.min(maxBackoff.toMillis(), baseBackoff.toMillis() << Math.min(attempt, 20));
+    return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+  }
+
+  // Their trigger id expires after three seconds, so waiting to retry them is pointless.
+  private static boolean isInteractive(String method) {
+    return method.equals("views.open") || method.equals("views.push");
+  }
+
+  // Failures that happen before the request is sent, so even non-idempotent calls can be retried.
+  private static boolean neverSent(IOException e) {
+    return e instanceof ConnectException
+        || e instanceof UnknownHostException
+        || e instanceof NoRouteToHostException;
+  }
+
+  private static String slackMethod(Request request) {
+    List<String> segments = request.url().pathSegments();
+    return segments.isEmpty() ? "" : segments.get(segments.size() - 1);
+  }
+}
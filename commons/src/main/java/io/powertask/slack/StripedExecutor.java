@@ -0,0 +1,66 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs work with the same key one after another, in the order it was submitted, while work with
+ * different keys runs in parallel. Every key maps to one of a fixed number of single threaded
+ * stripes, each with a bounded queue; work that doesn't fit is rejected.
+ */
+public class StripedExecutor {
+
+  private final ThreadPoolExecutor[] stripes;
+
+  public StripedExecutor(int stripes, int queueCapacity, String threadNamePrefix) {
+    if (stripes < 1) {
+      throw new IllegalArgumentException("stripes must be at least 1, was " + stripes);
+    }
+    // The capacity is shared out over the stripes.
+    int stripeCapacity = Math.max(1, queueCapacity / stripes);
+    this.stripes = new ThreadPoolExecutor[stripes];
+    for (int i = 0; i < stripes; i++) {
+      String threadName = threadNamePrefix + (i + 1);
+      this.stripes[i] =
+          new ThreadPoolExecutor(
+              1,
+              1,
+              0,
+              TimeUnit.SECONDS,
+              new ArrayBlockingQueue<>(stripeCapacity),
+              runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+              },
+              new ThreadPoolExecutor.AbortPolicy());
+    }
+  }
+
+  /** @throws RejectedExecutionException if the key's stripe is full, or shutting down. */
+  public void execute(Object key, Runnable work) {
+    stripes[Math.floorMod(key.hashCode(), stripes.length)].execute(work);
+  }
+
+  /** Lets queued work finish, but doesn't accept new work. */
+  public void shutdown() {
+    for (ThreadPoolExecutor stripe : stripes) {
+      stripe.shutdown();
+    }
+  }
+}
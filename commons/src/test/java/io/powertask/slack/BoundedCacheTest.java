@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack;
+
+import java.util.Optional;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class BoundedCacheTest {
+
+  @Test
+  public void evictsLeastRecentlyUsed() {
+    BoundedCache<String, Integer> cache = new BoundedCache<>(2);
+    cache.put("foo", 1);
+    cache.put("bar", 2);
+    cache.get("foo");
+    cache.put("baz", 3);
+
+    Assertions.assertEquals(Optional.of(1), cache.get("foo"));
+    Assertions.assertEquals(Optional.empty(), cache.get("bar"));
+    Assertions.assertEquals(Optional.of(3), cache.get("baz"));
+  }
+
+  @Test
+  public void computesOnlyWhenAbsent() {
+    BoundedCache<String, Integer> cache = new BoundedCache<>(2);
+
+    Assertions.assertEquals(3, cache.computeIfAbsent("foo", String::length));
+    Assertions.assertEquals(3, cache.computeIfAbsent("foo", key -> 42));
+  }
+
+  @Test
+  public void computesAtomically() {
+    BoundedCache<String, Integer> cache = new BoundedCache<>(2);
+    cache.put("foo", 1);
+
+    Assertions.assertEquals(2, cache.compute("foo", (key, value) -> value + 1));
+    Assertions.assertEquals(5, cache.compute("bar", (key, value) -> value == null ? 5 : 0));
+    cache.invalidate("foo", 1);
+    Assertions.assertEquals(Optional.of(2), cache.get("foo"));
+    cache.invalidate("foo", 2);
+    Assertions.assertEquals(Optional.empty(), cache.get("foo"));
+  }
+
+  @Test
+  public void invalidates() {
+    BoundedCache<String, Integer> cache = new BoundedCache<>(10);
+    cache.put("foo", 1);
+    cache.put("bar", 2);
+    cache.put("baz", 3);
+
+    cache.invalidate("foo");
+    cache.invalidateIf(key -> key.startsWith("ba"));
+
+    Assertions.assertEquals(0, cache.size());
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class CircuitBreakerTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  public void opensAfterThresholdAndRecovers() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(2, Duration.ofSeconds(10));
+
+    Assertions.assertFalse(circuitBreaker.recordFailure(0));
+    Assertions.assertTrue(circuitBreaker.allowRequest(0));
+    Assertions.assertTrue(circuitBreaker.recordFailure(0));
+    Assertions.assertFalse(circuitBreaker.allowRequest(5 * SECOND));
+
+    // After the open period, a single trial request is let through; failing it reopens the circuit.
+    Assertions.assertTrue(circuitBreaker.allowRequest(10 * SECOND));
+    Assertions.assertFalse(circuitBreaker.allowRequest(10 * SECOND));
+    Assertions.assertTrue(circuitBreaker.recordFailure(10 * SECOND));
+    Assertions.assertFalse(circuitBreaker.allowRequest(15 * SECOND));
+
+    Assertions.assertTrue(circuitBreaker.allowRequest(20 * SECOND));
+    circuitBreaker.recordSuccess();
+    Assertions.assertTrue(circuitBreaker.allowRequest(20 * SECOND));
+    Assertions.assertTrue(circuitBreaker.allowRequest(20 * SECOND));
+  }
+
+  @Test
+  public void givesUpOnTrialsThatNeverReportBack() {
+    CircuitBreaker circuitBreaker = new CircuitBreaker(1, Duration.ofSeconds(10));
+    circuitBreaker.recordFailure(0);
+
+    Assertions.assertTrue(circuitBreaker.allowRequest(10 * SECOND));
+    Assertions.assertFalse(circuitBreaker.allowRequest(15 * SECOND));
+    Assertions.assertTrue(circuitBreaker.allowRequest(20 * SECOND));
+  }
+}
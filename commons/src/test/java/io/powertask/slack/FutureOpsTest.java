@@ -15,10 +15,16 @@ package io.powertask.slack;
 
 import static io.powertask.slack.FunctionOps.wrapExceptionsSupplier;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -101,6 +107,164 @@ class FutureOpsTest {
   }
 
   @Test
+  public void boundedTraverseSuccessful() throws ExecutionException, InterruptedException {
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    List<String> out =
+        FutureOps.traverse(
+                Arrays.asList("foo", "bar", "baz", "qux"),
+                2,
+                in -> {
+                  maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                  return CompletableFuture.supplyAsync(
+                      wrapExceptionsSupplier(
+                          () -> {
+                            Thread.sleep(10);
+                            inFlight.decrementAndGet();
+                            return in.toUpperCase();
+                          }));
+                })
+            .toCompletableFuture()
+            .get();
+
+    Assertions.assertEquals(Arrays.asList("FOO", "BAR", "BAZ", "QUX"), out);
+    Assertions.assertEquals(2, maxInFlight.get());
+  }
+
+  @Test
+  public void boundedTraverseFailing() {
+    ExecutionException e =
+        Assertions.assertThrows(
+            ExecutionException.class,
+            () ->
+                FutureOps.traverse(
+                        Arrays.asList("foo", "bar", "baz"),
+                        2,
+                        in ->
+                            CompletableFuture.supplyAsync(
+                                () -> {
+                                  if (in.equals("bar")) {
+                                    throw new RuntimeException("BOOM!");
+                                  } else {
+                                    return in.toUpperCase();
+                                  }
+                                }))
+                    .toCompletableFuture()
+                    .get());
+
+    Assertions.assertEquals("BOOM!", e.getCause().getMessage());
+  }
+
+  @Test
+  public void boundedTraverseLargeCompleted() throws Exception {
+    List<Integer> in = IntStream.range(0, 100_000).boxed().collect(Collectors.toList());
+    List<Integer> out =
+        FutureOps.traverse(in, 4, i -> CompletableFuture.completedFuture(i))
+            .toCompletableFuture()
+            .get(10, TimeUnit.SECONDS);
+
+    Assertions.assertEquals(in, out);
+  }
+
+  @Test
+  public void boundedSettleAllLargeCompleted() throws Exception {
+    FutureOps.Settled<Integer> settled =
+        FutureOps.settleAll(
+                IntStream.range(0, 100_000).boxed().collect(Collectors.toList()),
+                4,
+                i -> CompletableFuture.completedFuture(i))
+            .toCompletableFuture()
+            .get(10, TimeUnit.SECONDS);
+
+    Assertions.assertEquals(100_000, settled.successes().size());
+    Assertions.assertTrue(settled.allSucceeded());
+  }
+
+  @Test
+  public void sequenceLarge() throws ExecutionException, InterruptedException {
+    List<CompletableFuture<Integer>> pending =
+        IntStream.range(0, 100_000)
+            .mapToObj(i -> new CompletableFuture<Integer>())
+            .collect(Collectors.toList());
+    CompletableFuture<List<Integer>> out = FutureOps.sequence(pending).toCompletableFuture();
+    for (int i = 0; i < pending.size(); i++) {
+      pending.get(i).complete(i);
+    }
+
+    Assertions.assertEquals(100_000, out.get().size());
+    Assertions.assertEquals(99_999, out.get().get(99_999));
+  }
+
+  @Test
+  public void timeoutTraverse() {
+    ExecutionException e =
+        Assertions.assertThrows(
+            ExecutionException.class,
+            () ->
+                FutureOps.traverse(
+                        Arrays.asList("foo", "bar"),
+                        2,
+                        Duration.ofMillis(20),
+                        in ->
+                            in.equals("bar")
+                                ? new CompletableFuture<String>()
+                                : CompletableFuture.completedFuture(in))
+                    .toCompletableFuture()
+                    .get());
+
+    Assertions.assertTrue(e.getCause() instanceof TimeoutException);
+  }
+
+  @Test
+  public void settleAll() throws ExecutionException, InterruptedException {
+    FutureOps.Settled<String> settled =
+        FutureOps.settleAll(
+                Arrays.asList("foo", "bar", "baz"),
+                in -> {
+                  if (in.equals("bar")) {
+                    throw new RuntimeException("BOOM!");
+                  }
+                  return CompletableFuture.supplyAsync(() -> in.toUpperCase());
+                })
+            .toCompletableFuture()
+            .get();
+
+    Assertions.assertEquals(Arrays.asList("FOO", "BAZ"), settled.successes());
+    Assertions.assertEquals(1, settled.failures().size());
+    Assertions.assertEquals("BOOM!", settled.failures().get(0).getMessage());
+  }
+
+  @Test
+  public void boundedSettleAll() throws ExecutionException, InterruptedException {
+    AtomicInteger inFlight = new AtomicInteger();
+    AtomicInteger maxInFlight = new AtomicInteger();
+    FutureOps.Settled<String> settled =
+        FutureOps.settleAll(
+                Arrays.asList("foo", "bar", "baz", "qux"),
+                2,
+                in -> {
+                  maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                  return CompletableFuture.supplyAsync(
+                      wrapExceptionsSupplier(
+                          () -> {
+                            Thread.sleep(10);
+                            inFlight.decrementAndGet();
+                            if (in.equals("foo")) {
+                              throw new RuntimeException("BOOM!");
+                            }
+                            return in.toUpperCase();
+                          }));
+                })
+            .toCompletableFuture()
+            .get();
+
+    Assertions.assertEquals(Arrays.asList("BAR", "BAZ", "QUX"), settled.successes());
+    Assertions.assertEquals(1, settled.failures().size());
+    Assertions.assertEquals(2, maxInFlight.get());
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
   public void collectorSuccessful() throws ExecutionException, InterruptedException {
     List<Integer> out =
         Stream.of(1, 2, 3)
@@ -113,6 +277,7 @@ class FutureOpsTest {
   }
 
   @Test
+  @SuppressWarnings("deprecation")
   public void collectorFailing() {
     ExecutionException e =
         Assertions.assertThrows(
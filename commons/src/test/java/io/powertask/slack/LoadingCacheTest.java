@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+
+class LoadingCacheTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  private final AtomicLong now = new AtomicLong();
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private LoadingCache<String, String> cache(Function<String, String> loader) {
+    return new LoadingCache<>(
+        key -> {
+          loads.incrementAndGet();
+          return loader.apply(key);
+        },
+        2,
+        Duration.ofSeconds(60),
+        Duration.ofSeconds(30),
+        Duration.ofSeconds(5),
+        Runnable::run,
+        now::get);
+  }
+
+  @Test
+  void expiresAfterTtl() {
+    LoadingCache<String, String> cache = cache(key -> key + loads.get());
+
+    assertEquals("a1", cache.get("a"));
+    assertEquals("a1", cache.get("a"));
+    now.set(61 * SECOND);
+    assertEquals("a2", cache.get("a"));
+    assertEquals(1, cache.stats().hits());
+    assertEquals(2, cache.stats().misses());
+  }
+
+  @Test
+  void refreshesAheadOfExpiry() {
+    LoadingCache<String, String> cache = cache(key -> key + loads.get());
+
+    assertEquals("a1", cache.get("a"));
+    now.set(31 * SECOND);
+    // The read that triggers the refresh still gets the old value.
+    assertEquals("a1", cache.get("a"));
+    assertEquals("a2", cache.get("a"));
+    now.set(50 * SECOND);
+    assertEquals("a2", cache.get("a"));
+    assertEquals(1, cache.stats().refreshes());
+  }
+
+  @Test
+  void retriesRejectedRefreshes() {
+    AtomicInteger executions = new AtomicInteger();
+    LoadingCache<String, String> cache =
+        new LoadingCache<>(
+            key -> key + loads.incrementAndGet(),
+            2,
+            Duration.ofSeconds(60),
+            Duration.ofSeconds(30),
+            Duration.ofSeconds(5),
+            runnable -> {
+              if (executions.incrementAndGet() == 1) {
+                throw new RejectedExecutionException("Full");
+              }
+              runnable.run();
+            },
+            now::get);
+
+    assertEquals("a1", cache.get("a"));
+    now.set(31 * SECOND);
+    assertEquals("a1", cache.get("a"));
+    assertEquals("a1", cache.get("a"));
+    assertEquals("a2", cache.get("a"));
+    assertEquals(2, executions.get());
+  }
+
+  @Test
+  void remembersFailuresForNegativeTtl() {
+    LoadingCache<String, String> cache =
+        cache(
+            key -> {
+              throw new IllegalArgumentException("unknown " + key);
+            });
+
+    assertThrows(IllegalArgumentException.class, () -> cache.get("a"));
+    assertThrows(IllegalArgumentException.class, () -> cache.get("a"));
+    assertEquals(1, loads.get());
+    now.set(6 * SECOND);
+    assertThrows(IllegalArgumentException.class, () -> cache.get("a"));
+    assertEquals(2, loads.get());
+    assertEquals(1, cache.stats().negativeHits());
+  }
+
+  @Test
+  void evictsLeastRecentlyUsed() {
+    LoadingCache<String, String> cache = cache(Function.identity());
+
+    cache.get("a");
+    cache.get("b");
+    cache.get("a");
+    cache.get("c");
+    cache.get("a");
+    cache.get("b");
+
+    assertEquals(4, loads.get());
+    assertEquals(2, cache.stats().evictions());
+  }
+
+  @Test
+  void concurrentMissesShareOneLoad() throws Exception {
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    LoadingCache<String, String> cache =
+        cache(
+            key -> {
+              loading.countDown();
+              try {
+                release.await();
+              } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+              }
+              return key;
+            });
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      results.add(executor.submit(() -> cache.get("a")));
+      loading.await();
+      for (int i = 0; i < 3; i++) {
+        results.add(executor.submit(() -> cache.get("a")));
+      }
+      Thread.sleep(50);
+      release.countDown();
+      for (Future<String> result : results) {
+        assertEquals("a", result.get());
+      }
+      assertEquals(1, loads.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
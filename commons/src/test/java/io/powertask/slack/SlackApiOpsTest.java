@@ -13,9 +13,17 @@
  */
 package io.powertask.slack;
 
+import com.slack.api.methods.MethodsCompletionException;
+import com.slack.api.methods.SlackApiException;
 import com.slack.api.methods.SlackApiTextResponse;
 import com.slack.api.methods.response.chat.ChatPostMessageResponse;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -55,4 +63,38 @@ class SlackApiOpsTest {
     Assertions.assertEquals("Slack API call failure", e.getMessage());
     Assertions.assertEquals("BOOM!", e.getCause().getMessage());
   }
+
+  @Test
+  public void retryAfterFromWrappedRateLimitedException() {
+    SlackApiException e = slackApiException(429, "30");
+    CompletionException wrapped =
+        new CompletionException(new MethodsCompletionException(null, e, null));
+
+    Assertions.assertEquals(Optional.of(Duration.ofSeconds(30)), SlackApiOps.retryAfter(wrapped));
+  }
+
+  @Test
+  public void retryAfterDefaultsWithoutHeader() {
+    Assertions.assertEquals(
+        Optional.of(Duration.ofSeconds(1)), SlackApiOps.retryAfter(slackApiException(429, null)));
+  }
+
+  @Test
+  public void retryAfterEmptyForOtherErrors() {
+    Assertions.assertEquals(Optional.empty(), SlackApiOps.retryAfter(slackApiException(500, null)));
+    Assertions.assertEquals(Optional.empty(), SlackApiOps.retryAfter(new IOException("BOOM!")));
+  }
+
+  static SlackApiException slackApiException(int code, String retryAfter) {
+    Response.Builder builder =
+        new Response.Builder()
+            .request(new Request.Builder().url("https://slack.com/api/chat.postMessage").build())
+            .protocol(Protocol.HTTP_1_1)
+            .code(code)
+            .message("Error");
+    if (retryAfter != null) {
+      builder.header("Retry-After", retryAfter);
+    }
+    return new SlackApiException(builder.build(), "");
+  }
 }
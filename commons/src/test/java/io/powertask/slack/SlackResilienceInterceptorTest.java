@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class SlackResilienceInterceptorTest {
+
+  private final SlackResilienceInterceptor interceptor =
+      new SlackResilienceInterceptor(
+          2,
+          Duration.ofMillis(1),
+          Duration.ofMillis(5),
+          Duration.ofMillis(1500),
+          2,
+          Duration.ofMinutes(1),
+          SlackResilienceInterceptor::isRetryableMethod);
+
+  @Test
+  public void retriesRateLimitedCallsWithinBudget() throws IOException {
+    Response response =
+        interceptor.intercept(
+            chain("chat.postMessage", () -> response(429, "1"), () -> response(200, null)));
+
+    Assertions.assertEquals(200, response.code());
+    Assertions.assertEquals(1L, interceptor.counters().get("retries"));
+    Assertions.assertEquals(1L, interceptor.counters().get("rate-limited"));
+  }
+
+  @Test
+  public void passesRateLimitedCallsOnBeyondBudget() throws IOException {
+    Response response =
+        interceptor.intercept(
+            chain("chat.postMessage", () -> response(429, "30"), () -> response(200, null)));
+
+    Assertions.assertEquals(429, response.code());
+    Assertions.assertEquals("30", response.header("Retry-After"));
+    Assertions.assertEquals(0L, interceptor.counters().get("retries"));
+    Assertions.assertEquals(1L, interceptor.counters().get("rate-limited"));
+    Assertions.assertTrue(interceptor.openCircuits().isEmpty());
+  }
+
+  @Test
+  public void retriesServerErrorsOnlyForReadMethods() throws IOException {
+    Assertions.assertEquals(
+        200,
+        interceptor
+            .intercept(chain("users.info", () -> response(503, null), () -> response(200, null)))
+            .code());
+    Assertions.assertEquals(
+        503,
+        interceptor
+            .intercept(
+                chain("chat.postMessage", () -> response(503, null), () -> response(200, null)))
+            .code());
+  }
+
+  @Test
+  public void retriesConnectFailuresForAllMethods() throws IOException {
+    Response response =
+        interceptor.intercept(
+            chain(
+                "chat.postMessage",
+                () -> {
+                  throw new ConnectException("BOOM!");
+                },
+                () -> response(200, null)));
+
+    Assertions.assertEquals(200, response.code());
+  }
+
+  @Test
+  public void doesNotRetryInteractiveMethods() {
+    Assertions.assertThrows(
+        ConnectException.class,
+        () ->
+            interceptor.intercept(
+                chain(
+                    "views.open",
+                    () -> {
+                      throw new ConnectException("BOOM!");
+                    },
+                    () -> response(200, null))));
+    Assertions.assertEquals(0L, interceptor.counters().get("retries"));
+  }
+
+  @Test
+  public void failsFastWhenCircuitIsOpen() {
+    for (int i = 0; i < 2; i++) {
+      Assertions.assertThrows(
+          SocketTimeoutException.class,
+          () ->
+              interceptor.intercept(
+                  chain(
+                      "chat.update",
+                      () -> {
+                        throw new SocketTimeoutException("BOOM!");
+                      })));
+    }
+
+    Assertions.assertThrows(
+        CircuitOpenException.class,
+        () -> interceptor.intercept(chain("chat.update", () -> response(200, null))));
+    Assertions.assertEquals(1L, interceptor.counters().get("short-circuited"));
+    Assertions.assertTrue(interceptor.openCircuits().contains("chat.update"));
+  }
+
+  private static Request request(String method) {
+    return new Request.Builder().url("https://slack.com/api/" + method).build();
+  }
+
+  private static Response response(int code, String retryAfter) {
+    Response.Builder builder =
+        new Response.Builder()
+            .request(request("test"))
+            .protocol(Protocol.HTTP_1_1)
+            .code(code)
+            .message("Test")
+            .body(ResponseBody.create("{}", MediaType.get("application/json")));
+    if (retryAfter != null) {
+      builder.header("Retry-After", retryAfter);
+    }
+    return builder.build();
+  }
+
+  @SafeVarargs
+  private static Interceptor.Chain chain(String method, Callable<Response>... responses) {
+    Iterator<Callable<Response>> remaining = Arrays.asList(responses).iterator();
+    return (Interceptor.Chain)
+        Proxy.newProxyInstance(
+            Interceptor.Chain.class.getClassLoader(),
+            new Class<?>[] {Interceptor.Chain.class},
+            (proxy, m, args) -> {
+              switch (m.getName()) {
+                case "request":
+                  return request(method);
+                case "proceed":
+                  return remaining.next().call();
+                default:
+                  throw new UnsupportedOperationException(m.getName());
+              }
+            });
+  }
+}
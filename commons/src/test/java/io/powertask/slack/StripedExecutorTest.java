@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class StripedExecutorTest {
+
+  @Test
+  public void runsWorkOfOneKeyInOrder() throws InterruptedException {
+    StripedExecutor executor = new StripedExecutor(4, 1000, "test-");
+    Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+    CountDownLatch done = new CountDownLatch(400);
+    try {
+      for (int i = 0; i < 100; i++) {
+        int n = i;
+        for (String key : new String[] {"a", "b", "c", "d"}) {
+          executor.execute(
+              key,
+              () -> {
+                seen.computeIfAbsent(key, k -> new ArrayList<>()).add(n);
+                done.countDown();
+              });
+        }
+      }
+      Assertions.assertTrue(done.await(10, TimeUnit.SECONDS));
+    } finally {
+      executor.shutdown();
+    }
+
+    List<Integer> expected = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+    seen.values().forEach(values -> Assertions.assertEquals(expected, values));
+  }
+
+  @Test
+  public void rejectsWorkWhenTheStripeIsFull() throws InterruptedException {
+    StripedExecutor executor = new StripedExecutor(1, 1, "test-");
+    CountDownLatch release = new CountDownLatch(1);
+    try {
+      executor.execute("a", () -> awaitQuietly(release));
+      executor.execute("a", () -> {});
+      Assertions.assertThrows(
+          RejectedExecutionException.class, () -> executor.execute("a", () -> {}));
+    } finally {
+      release.countDown();
+      executor.shutdown();
+    }
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -131,7 +131,7 @@ public abstract class AbstractIntegrationTest {
     PropertiesResolver propertiesResolver =
         new PropertiesResolver(processEngine.getRepositoryService());
     TaskMapper taskMapper = new TaskMapper(propertiesResolver, processEngine.getRuntimeService());
-    TaskService taskService = new CamundaTaskService(processEngine.getTaskService(), taskMapper);
+    TaskService taskService = new CamundaTaskService(processEngine, taskMapper);
     FormService formService = new CamundaFormService(processEngine.getFormService());
 
     userTaskDispatcher =
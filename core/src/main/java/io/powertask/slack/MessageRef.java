@@ -13,6 +13,7 @@
  */
 package io.powertask.slack;
 
+import java.util.Optional;
 import org.immutables.gson.Gson;
 import org.immutables.value.Value;
 
@@ -22,4 +23,7 @@ public interface MessageRef {
   String channel();
 
   String ts();
+
+  // The user the message was sent to, if it was sent as a DM.
+  Optional<String> slackUserId();
 }
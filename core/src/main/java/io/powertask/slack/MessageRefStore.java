@@ -0,0 +1,57 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps track of the Slack messages that announced a task, so they can be updated when the task is
+ * done.
+ */
+public interface MessageRefStore {
+
+  void add(String taskId, List<MessageRef> messageRefs);
+
+  List<MessageRef> get(String taskId);
+
+  void remove(String taskId);
+
+  /**
+   * Replaces the message refs of a task, or removes them if the list is empty. Implementations
+   * should make this atomic, so readers never see the task without refs in between.
+   */
+  default void replace(String taskId, List<MessageRef> messageRefs) {
+    remove(taskId);
+    add(taskId, messageRefs);
+  }
+
+  /** Message refs of all given tasks that have any. */
+  default Map<String, List<MessageRef>> getAll(Collection<String> taskIds) {
+    Map<String, List<MessageRef>> messageRefs = new HashMap<>();
+    for (String taskId : taskIds) {
+      List<MessageRef> refs = get(taskId);
+      if (!refs.isEmpty()) {
+        messageRefs.put(taskId, refs);
+      }
+    }
+    return messageRefs;
+  }
+
+  default void removeAll(Collection<String> taskIds) {
+    taskIds.forEach(this::remove);
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack;
+
+import com.slack.api.bolt.App;
+import com.slack.api.model.event.Event;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lets several components listen to the same kind of Slack event.
+ *
+ * <p>Bolt keeps a single handler per event type, so subscribing directly with {@link App#event}
+ * twice would silently drop the first subscriber. This registers one handler per type and passes
+ * each event on to all listeners. Listeners run before the event is acknowledged, so they should be
+ * quick.
+ */
+public class SlackEvents {
+
+  private static final Logger logger = LoggerFactory.getLogger(SlackEvents.class);
+
+  private final App app;
+  private final Map<Class<?>, List<Consumer<?>>> listeners = new ConcurrentHashMap<>();
+
+  public SlackEvents(App app) {
+    this.app = app;
+  }
+
+  public synchronized <E extends Event> void subscribe(Class<E> eventType, Consumer<E> listener) {
+    List<Consumer<?>> eventListeners = listeners.get(eventType);
+    if (eventListeners == null) {
+      List<Consumer<?>> newListeners = new CopyOnWriteArrayList<>();
+      app.event(
+          eventType,
+          (payload, ctx) -> {
+            dispatch(newListeners, payload.getEvent());
+            return ctx.ack();
+          });
+      listeners.put(eventType, newListeners);
+      eventListeners = newListeners;
+    }
+    eventListeners.add(listener);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E extends Event> void dispatch(List<Consumer<?>> eventListeners, E event) {
+    for (Consumer<?> listener : eventListeners) {
+      try {
+        ((Consumer<E>) listener).accept(event);
+      } catch (RuntimeException e) {
+        logger.error("Failed to handle Slack event " + event.getType(), e);
+      }
+    }
+  }
+}
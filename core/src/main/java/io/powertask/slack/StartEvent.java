@@ -14,9 +14,16 @@
 package io.powertask.slack;
 
 import java.util.Optional;
+import org.immutables.value.Value.Default;
 import org.immutables.value.Value.Immutable;
 
 @Immutable
 public interface StartEvent extends TaskLike {
   Optional<String> initiatorVariableName();
+
+  // Whether there's a form to fill in before the process is started.
+  @Default
+  default boolean hasForm() {
+    return true;
+  }
 }
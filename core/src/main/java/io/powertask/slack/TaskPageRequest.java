@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack;
+
+import org.immutables.value.Value;
+import org.immutables.value.Value.Check;
+import org.immutables.value.Value.Immutable;
+
+@Immutable
+public interface TaskPageRequest {
+
+  enum Sort {
+    CREATED,
+    DUE_DATE,
+    PRIORITY,
+    NAME
+  }
+
+  @Value.Default
+  default int offset() {
+    return 0;
+  }
+
+  @Value.Default
+  default int limit() {
+    return 20;
+  }
+
+  @Value.Default
+  default Sort sort() {
+    return Sort.CREATED;
+  }
+
+  @Value.Default
+  default boolean ascending() {
+    return false;
+  }
+
+  @Check
+  default void check() {
+    if (offset() < 0) {
+      throw new IllegalArgumentException("Offset must not be negative.");
+    }
+    if (limit() < 1) {
+      throw new IllegalArgumentException("Limit must be at least 1.");
+    }
+  }
+
+  static TaskPageRequest first(int limit) {
+    return ImmutableTaskPageRequest.builder().limit(limit).build();
+  }
+}
@@ -24,14 +24,29 @@ public interface TaskService {
 
   List<Task> tasksByAssignee(String assignee);
 
+  // Only fetches the requested slice, plus a count of all matching tasks.
+  TaskPage tasksByAssignee(String assignee, TaskPageRequest pageRequest);
+
+  void claim(String taskId, String userId);
+
   Optional<Task> followUpTask(String processInstanceId, String assignee);
 
+  // Whether jobs, such as async continuations, are due in the process instance or in the ones it
+  // called. Once a call into the engine has returned, only those can still create new tasks.
+  boolean hasPendingJobs(String rootProcessInstanceId);
+
   Map<String, Object> getVariables(String taskId);
 
   Map<String, Object> getVariables(String taskId, Set<String> names);
 
   Optional<Object> getVariable(String taskId, String name);
 
+  // Variables as display text, without deserializing them, cut off after maxLength characters.
+  Map<String, VariableSummary> getVariableSummaries(String taskId, int maxLength);
+
+  Map<String, VariableSummary> getVariableSummaries(
+      String taskId, Set<String> names, int maxLength);
+
   void setVariables(String taskId, Map<String, Object> variables);
 
   void setVariable(String taskId, String name, Object value);
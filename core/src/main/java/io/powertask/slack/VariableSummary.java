@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack;
+
+import org.immutables.value.Value.Immutable;
+
+/**
+ * A variable as text for display. Values aren't deserialized to produce it; values that have no
+ * readable text, like serialized Java objects and binary data, are described instead, and long text
+ * is cut off.
+ */
+@Immutable
+public interface VariableSummary {
+
+  // The engine's name of the variable type, like 'string' or 'object'.
+  String type();
+
+  String text();
+
+  // Whether the text was cut off.
+  boolean truncated();
+
+  default String displayText() {
+    return truncated() ? text() + "…" : text();
+  }
+}
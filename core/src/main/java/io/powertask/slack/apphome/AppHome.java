@@ -14,10 +14,12 @@
 package io.powertask.slack.apphome;
 
 import static com.slack.api.model.block.Blocks.actions;
+import static com.slack.api.model.block.Blocks.context;
 import static com.slack.api.model.block.Blocks.divider;
 import static com.slack.api.model.block.Blocks.section;
 import static com.slack.api.model.block.composition.BlockCompositions.markdownText;
 import static com.slack.api.model.block.composition.BlockCompositions.plainText;
+import static com.slack.api.model.block.element.BlockElements.asContextElements;
 import static com.slack.api.model.block.element.BlockElements.asElements;
 import static com.slack.api.model.block.element.BlockElements.button;
 import static com.slack.api.model.view.Views.view;
@@ -30,6 +32,8 @@ import com.slack.api.model.event.AppHomeOpenedEvent;
 import com.slack.api.model.view.View;
 import io.powertask.slack.Process;
 import io.powertask.slack.ProcessService;
+import io.powertask.slack.TaskPage;
+import io.powertask.slack.TaskPageRequest;
 import io.powertask.slack.TaskService;
 import io.powertask.slack.identity.UserResolver;
 import io.powertask.slack.usertasks.Task;
@@ -40,11 +44,15 @@ import java.util.List;
 
 public class AppHome {
 
+  // Each task takes three blocks, and a home tab holds at most 100 blocks in total.
+  public static final int DEFAULT_MAX_TASKS = 20;
+
   private final App app;
   private final ProcessService processService;
   private final TaskService taskService;
   private final MethodsClient methodsClient;
   private final UserResolver userResolver;
+  private final int maxTasks;
 
   public AppHome(
       App app,
@@ -52,6 +60,20 @@ public class AppHome {
       TaskService taskService,
       UserResolver userResolver,
       MethodsClient methodsClient) {
+    this(app, processService, taskService, userResolver, methodsClient, DEFAULT_MAX_TASKS);
+  }
+
+  public AppHome(
+      App app,
+      ProcessService processService,
+      TaskService taskService,
+      UserResolver userResolver,
+      MethodsClient methodsClient,
+      int maxTasks) {
+    if (maxTasks < 1) {
+      throw new IllegalArgumentException("maxTasks must be at least 1");
+    }
+    this.maxTasks = maxTasks;
     this.app = app;
     this.processService = processService;
     this.taskService = taskService;
@@ -91,16 +113,21 @@ public class AppHome {
   }
 
   public List<LayoutBlock> taskList(String engineUserId) {
-    List<Task> tasks = taskService.tasksByAssignee(engineUserId);
+    TaskPage page = taskService.tasksByAssignee(engineUserId, TaskPageRequest.first(maxTasks));
 
     List<LayoutBlock> blocks = new ArrayList<>();
     blocks.add(section(s -> s.text(markdownText("*Your tasks*"))));
     blocks.add(divider());
-    tasks.forEach(
-        p -> {
-          blocks.addAll(taskBlocks(p));
-          blocks.add(divider());
-        });
+    page.tasks()
+        .forEach(
+            p -> {
+              blocks.addAll(taskBlocks(p));
+              blocks.add(divider());
+            });
+    if (page.hasMore()) {
+      String text = "Showing the newest " + maxTasks + " of your " + page.total() + " tasks.";
+      blocks.add(context(c -> c.elements(asContextElements(markdownText(text)))));
+    }
     return blocks;
   }
 
@@ -144,11 +144,12 @@ public class ProcessDispatcher {
 
     StartEvent startEvent = processService.startEvent(processDefinitionId);
 
-    // TODO, we should probably do the following:
-    // - If there's a form on the process; show it in a modal
-    // - If there's no form, start the process here.
-    //     - If there's a follow-up task, show it.
-    //     - If there's no follow-up task, show some feedback in some way. Maybe add an icon to the
+    String engineUserId = userResolver.toEngineUserId(req.getPayload().getUser().getId());
+    if (!startEvent.hasForm()) {
+      return startProcess(ctx, startEvent, Collections.emptyMap(), engineUserId);
+    }
+
+    // TODO, if there's no follow-up task, show some feedback in some way. Maybe add an icon to the
     // button?
     return formService
         .startForm(processDefinitionId)
@@ -157,11 +158,7 @@ public class ProcessDispatcher {
               openModal(ctx, startEvent, form);
               return ctx.ack();
             })
-        .orElseGet(
-            () -> {
-              String engineUserId = userResolver.toEngineUserId(req.getPayload().getUser().getId());
-              return startProcess(ctx, startEvent, Collections.emptyMap(), engineUserId);
-            });
+        .orElseGet(() -> startProcess(ctx, startEvent, Collections.emptyMap(), engineUserId));
   }
 
   private String generateSubmitModalActionId(String processDefinitionId) {
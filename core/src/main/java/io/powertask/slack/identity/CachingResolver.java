@@ -13,39 +13,102 @@
  */
 package io.powertask.slack.identity;
 
-import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.function.Function;
+import io.powertask.slack.CacheStats;
+import io.powertask.slack.LoadingCache;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-// Extremely limited cache implementation.
+/**
+ * Caches the user lookups of another resolver, with a separate cache for each direction.
+ *
+ * <p>Users are looked up again after a while, so changed email addresses are picked up; this
+ * happens in the background while the old value is still served. Users that can't be resolved are
+ * remembered for a short time, so an unknown user doesn't cause a Slack call on every interaction.
+ */
 public class CachingResolver implements UserResolver {
 
-  private final UserResolver underlying;
+  public static final int DEFAULT_MAX_USERS = 10000;
+  public static final Duration DEFAULT_TTL = Duration.ofHours(1);
+  public static final Duration DEFAULT_REFRESH_AFTER = Duration.ofMinutes(30);
+  public static final Duration DEFAULT_NEGATIVE_TTL = Duration.ofMinutes(1);
+
+  // Refreshes are Slack calls; a single thread keeps them from competing with interactions for the
+  // rate limit.
+  private static final ExecutorService REFRESH_EXECUTOR =
+      new ThreadPoolExecutor(
+          1,
+          1,
+          0,
+          TimeUnit.MILLISECONDS,
+          new LinkedBlockingQueue<>(1000),
+          runnable -> {
+            Thread thread = new Thread(runnable, "powertask-user-refresh");
+            thread.setDaemon(true);
+            return thread;
+          },
+          // Rejected refreshes are retried by a later read.
+          new ThreadPoolExecutor.AbortPolicy());
 
-  // Used for lookups in both directions.
-  private final ConcurrentHashMap<String, String> cache = new ConcurrentHashMap<>();
+  private final LoadingCache<String, String> slackUserIds;
+  private final LoadingCache<String, String> engineUserIds;
 
   public CachingResolver(UserResolver underlying) {
-    this.underlying = underlying;
+    this(
+        underlying,
+        DEFAULT_MAX_USERS,
+        DEFAULT_TTL,
+        DEFAULT_REFRESH_AFTER,
+        DEFAULT_NEGATIVE_TTL,
+        REFRESH_EXECUTOR);
+  }
+
+  public CachingResolver(
+      UserResolver underlying,
+      int maxUsers,
+      Duration ttl,
+      Duration refreshAfter,
+      Duration negativeTtl,
+      Executor refreshExecutor) {
+    this.slackUserIds =
+        new LoadingCache<>(
+            underlying::toSlackUserId, maxUsers, ttl, refreshAfter, negativeTtl, refreshExecutor);
+    this.engineUserIds =
+        new LoadingCache<>(
+            underlying::toEngineUserId, maxUsers, ttl, refreshAfter, negativeTtl, refreshExecutor);
   }
 
   @Override
   public String toSlackUserId(String engineUserId) {
-    return cachedLookup(engineUserId, underlying::toSlackUserId);
+    return slackUserIds.get(engineUserId);
+  }
+
+  /** Each distinct user is looked up once, and users that failed recently aren't retried. */
+  @Override
+  public Map<String, String> toSlackUserIds(Collection<String> engineUserIds) {
+    return UserResolvers.toSlackUserIds(engineUserIds, slackUserIds::get);
   }
 
   @Override
   public String toEngineUserId(String slackUserId) {
-    return cachedLookup(slackUserId, underlying::toEngineUserId);
+    return engineUserIds.get(slackUserId);
+  }
+
+  public CacheStats slackUserIdStats() {
+    return slackUserIds.stats();
+  }
+
+  public CacheStats engineUserIdStats() {
+    return engineUserIds.stats();
   }
 
-  private String cachedLookup(String key, Function<String, String> lookup) {
-    return Optional.ofNullable(cache.get(key))
-        .orElseGet(
-            () -> {
-              String value = lookup.apply(key);
-              cache.put(key, value);
-              return value;
-            });
+  public void invalidateAll() {
+    slackUserIds.invalidateAll();
+    engineUserIds.invalidateAll();
   }
 }
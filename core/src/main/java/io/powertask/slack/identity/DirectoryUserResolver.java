@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.identity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Resolves email addresses from a preloaded {@link SlackDirectory}.
+ *
+ * <p>Users that aren't in the directory, for example because they joined while the event wasn't
+ * delivered, are looked up with the fallback resolver and added to the directory.
+ */
+public class DirectoryUserResolver implements UserResolver {
+
+  private final SlackDirectory directory;
+  private final UserResolver fallback;
+
+  public DirectoryUserResolver(SlackDirectory directory, UserResolver fallback) {
+    this.directory = directory;
+    this.fallback = fallback;
+  }
+
+  @Override
+  public String toSlackUserId(String engineUserId) {
+    return directory
+        .slackUserId(engineUserId)
+        .orElseGet(
+            () -> {
+              String slackUserId = fallback.toSlackUserId(engineUserId);
+              directory.put(slackUserId, engineUserId);
+              return slackUserId;
+            });
+  }
+
+  /**
+   * Users in the directory are resolved without any Slack calls; only the rest are passed to the
+   * fallback resolver, together.
+   */
+  @Override
+  public Map<String, String> toSlackUserIds(Collection<String> engineUserIds) {
+    Set<String> distinct = new LinkedHashSet<>(engineUserIds);
+    Map<String, String> found = new HashMap<>();
+    List<String> missing = new ArrayList<>();
+    for (String engineUserId : distinct) {
+      Optional<String> slackUserId = directory.slackUserId(engineUserId);
+      if (slackUserId.isPresent()) {
+        found.put(engineUserId, slackUserId.get());
+      } else {
+        missing.add(engineUserId);
+      }
+    }
+    if (!missing.isEmpty()) {
+      fallback
+          .toSlackUserIds(missing)
+          .forEach(
+              (engineUserId, slackUserId) -> {
+                directory.put(slackUserId, engineUserId);
+                found.put(engineUserId, slackUserId);
+              });
+    }
+
+    Map<String, String> slackUserIds = new LinkedHashMap<>();
+    distinct.stream()
+        .filter(found::containsKey)
+        .forEach(engineUserId -> slackUserIds.put(engineUserId, found.get(engineUserId)));
+    return slackUserIds;
+  }
+
+  @Override
+  public String toEngineUserId(String slackUserId) {
+    return directory
+        .email(slackUserId)
+        .orElseGet(
+            () -> {
+              String engineUserId = fallback.toEngineUserId(slackUserId);
+              directory.put(slackUserId, engineUserId);
+              return engineUserId;
+            });
+  }
+}
@@ -0,0 +1,25 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.identity;
+
+import java.util.Optional;
+
+/** Finds the Slack channel in which tasks for a group of engine users can be announced. */
+public interface GroupChannelResolver {
+
+  // For setups where groups don't correspond to channels.
+  GroupChannelResolver NONE = engineGroupId -> Optional.empty();
+
+  Optional<String> toSlackChannelId(String engineGroupId);
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.identity;
+
+import com.slack.api.model.User;
+import com.slack.api.model.event.TeamJoinEvent;
+import com.slack.api.model.event.UserChangeEvent;
+import io.powertask.slack.SlackEvents;
+import io.powertask.slack.scheduling.SlackPager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory index of the email addresses of all users in the Slack workspace.
+ *
+ * <p>The index is filled by paging through {@code users.list} once, and kept up to date with the
+ * {@code team_join} and {@code user_change} events, so lookups don't need any Slack calls. Email
+ * addresses are looked up case-insensitively, but returned as they are in the Slack profile.
+ */
+public class SlackDirectory {
+
+  private static final Logger logger = LoggerFactory.getLogger(SlackDirectory.class);
+
+  private final SlackPager pager;
+  private final Map<String, String> slackUserIdsByEmail = new ConcurrentHashMap<>();
+  private final Map<String, String> emailsBySlackUserId = new ConcurrentHashMap<>();
+  // Users that changed while a load is running; what was loaded for them may be older.
+  private Set<String> changedWhileLoading;
+
+  public SlackDirectory(SlackPager pager) {
+    this.pager = pager;
+  }
+
+  /** Keeps the directory up to date with users joining and changing their profile. */
+  public void subscribe(SlackEvents events) {
+    events.subscribe(TeamJoinEvent.class, event -> update(event.getUser()));
+    events.subscribe(UserChangeEvent.class, event -> update(event.getUser()));
+  }
+
+  /**
+   * Loads all users of the workspace in the background. Users that are no longer present are
+   * removed, and users that changed while loading keep their newer state.
+   */
+  public CompletableFuture<Void> load() {
+    synchronized (this) {
+      changedWhileLoading = new HashSet<>();
+    }
+    return pager
+        .users()
+        .thenAccept(
+            users -> {
+              Map<String, String> loaded = new HashMap<>();
+              for (User user : users) {
+                email(user).ifPresent(email -> loaded.put(user.getId(), email));
+              }
+              replaceAll(loaded);
+              logger.info(
+                  "Loaded " + emailsBySlackUserId.size() + " Slack users into the directory.");
+            })
+        .whenComplete(
+            (result, throwable) -> {
+              synchronized (this) {
+                changedWhileLoading = null;
+              }
+            });
+  }
+
+  private synchronized void replaceAll(Map<String, String> loaded) {
+    Set<String> changed =
+        changedWhileLoading != null ? changedWhileLoading : Collections.emptySet();
+    for (String slackUserId : new ArrayList<>(emailsBySlackUserId.keySet())) {
+      if (!loaded.containsKey(slackUserId) && !changed.contains(slackUserId)) {
+        delete(slackUserId);
+      }
+    }
+    loaded.forEach(
+        (slackUserId, email) -> {
+          if (!changed.contains(slackUserId)) {
+            store(slackUserId, email);
+          }
+        });
+  }
+
+  public Optional<String> slackUserId(String email) {
+    return Optional.ofNullable(slackUserIdsByEmail.get(normalize(email)));
+  }
+
+  public Optional<String> email(String slackUserId) {
+    return Optional.ofNullable(emailsBySlackUserId.get(slackUserId));
+  }
+
+  public int size() {
+    return emailsBySlackUserId.size();
+  }
+
+  /** Adds, updates or (for deactivated users) removes a single user. */
+  public void update(User user) {
+    Optional<String> email = email(user);
+    if (email.isPresent()) {
+      put(user.getId(), email.get());
+    } else {
+      remove(user.getId());
+    }
+  }
+
+  /** Records a mapping that was found some other way, e.g. through a direct Slack lookup. */
+  public synchronized void put(String slackUserId, String email) {
+    changed(slackUserId);
+    store(slackUserId, email);
+  }
+
+  public synchronized void remove(String slackUserId) {
+    changed(slackUserId);
+    delete(slackUserId);
+  }
+
+  private void changed(String slackUserId) {
+    if (changedWhileLoading != null) {
+      changedWhileLoading.add(slackUserId);
+    }
+  }
+
+  private void store(String slackUserId, String email) {
+    String previous = emailsBySlackUserId.put(slackUserId, email);
+    if (previous != null && !normalize(previous).equals(normalize(email))) {
+      slackUserIdsByEmail.remove(normalize(previous), slackUserId);
+    }
+    slackUserIdsByEmail.put(normalize(email), slackUserId);
+  }
+
+  private void delete(String slackUserId) {
+    String previous = emailsBySlackUserId.remove(slackUserId);
+    if (previous != null) {
+      slackUserIdsByEmail.remove(normalize(previous), slackUserId);
+    }
+  }
+
+  private static Optional<String> email(User user) {
+    // Slackbot doesn't have the bot flag set, and has no email anyway.
+    if (user.isBot() || user.isDeleted() || user.getProfile() == null) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(user.getProfile().getEmail()).filter(email -> !email.isEmpty());
+  }
+
+  private static String normalize(String email) {
+    return email.toLowerCase(Locale.ROOT);
+  }
+}
@@ -13,9 +13,20 @@
  */
 package io.powertask.slack.identity;
 
+import java.util.Collection;
+import java.util.Map;
+
 /** Translate between the userIds that Camunda uses and Slack users. */
 public interface UserResolver {
   String toSlackUserId(String engineUserId);
 
   String toEngineUserId(String slackUserId);
+
+  /**
+   * Slack user ids for a number of engine users, keyed by engine user id. Users that can't be
+   * resolved are left out.
+   */
+  default Map<String, String> toSlackUserIds(Collection<String> engineUserIds) {
+    return UserResolvers.toSlackUserIds(engineUserIds, this::toSlackUserId);
+  }
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.identity;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+final class UserResolvers {
+
+  private static final Logger logger = LoggerFactory.getLogger(UserResolvers.class);
+
+  private UserResolvers() {}
+
+  /**
+   * Resolves each distinct engine user once. Users that can't be resolved are logged and left out;
+   * one unknown user shouldn't prevent notifying the others.
+   */
+  static Map<String, String> toSlackUserIds(
+      Collection<String> engineUserIds, Function<String, String> toSlackUserId) {
+    Map<String, String> slackUserIds = new LinkedHashMap<>();
+    List<String> skipped = new ArrayList<>();
+    for (String engineUserId : new LinkedHashSet<>(engineUserIds)) {
+      try {
+        slackUserIds.put(engineUserId, toSlackUserId.apply(engineUserId));
+      } catch (RuntimeException e) {
+        logger.debug("Failed to resolve user " + engineUserId, e);
+        skipped.add(engineUserId);
+      }
+    }
+    if (!skipped.isEmpty()) {
+      logger.warn("No Slack user found for " + skipped + ", leaving them out");
+    }
+    return slackUserIds;
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.messagerefs;
+
+import io.powertask.slack.MessageRef;
+import io.powertask.slack.MessageRefStore;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps message refs in memory. They're lost on restart and not shared between nodes, so this is
+ * only suitable for a single instance, or when it's acceptable that some messages are never
+ * updated.
+ */
+public class InMemoryMessageRefStore implements MessageRefStore {
+
+  private final Map<String, List<MessageRef>> messageRefs = new ConcurrentHashMap<>();
+
+  @Override
+  public void add(String taskId, List<MessageRef> refs) {
+    messageRefs.merge(
+        taskId,
+        Collections.unmodifiableList(new ArrayList<>(refs)),
+        (existing, added) -> {
+          List<MessageRef> merged = new ArrayList<>(existing);
+          merged.addAll(added);
+          return Collections.unmodifiableList(merged);
+        });
+  }
+
+  @Override
+  public List<MessageRef> get(String taskId) {
+    return messageRefs.getOrDefault(taskId, Collections.emptyList());
+  }
+
+  @Override
+  public void remove(String taskId) {
+    messageRefs.remove(taskId);
+  }
+
+  @Override
+  public void replace(String taskId, List<MessageRef> refs) {
+    if (refs.isEmpty()) {
+      messageRefs.remove(taskId);
+    } else {
+      messageRefs.put(taskId, Collections.unmodifiableList(new ArrayList<>(refs)));
+    }
+  }
+}
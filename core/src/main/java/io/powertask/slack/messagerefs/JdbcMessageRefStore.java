@@ -0,0 +1,245 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.messagerefs;
+
+import io.powertask.slack.ImmutableMessageRef;
+import io.powertask.slack.MessageRef;
+import io.powertask.slack.MessageRefStore;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps message refs in a table of their own, so they survive restarts and are shared between
+ * nodes, without going through the process engine.
+ */
+public class JdbcMessageRefStore implements MessageRefStore {
+
+  private static final Logger logger = LoggerFactory.getLogger(JdbcMessageRefStore.class);
+
+  public static final String TABLE_NAME = "POWERTASK_MESSAGE_REF";
+
+  // The primary key doubles as the index for lookups by task id.
+  private static final String CREATE_TABLE =
+      "CREATE TABLE "
+          + TABLE_NAME
+          + " (TASK_ID_ VARCHAR(64) NOT NULL, CHANNEL_ VARCHAR(64) NOT NULL,"
+          + " TS_ VARCHAR(32) NOT NULL, USER_ID_ VARCHAR(64),"
+          + " PRIMARY KEY (TASK_ID_, CHANNEL_, TS_))";
+  private static final String INSERT =
+      "INSERT INTO " + TABLE_NAME + " (TASK_ID_, CHANNEL_, TS_, USER_ID_) VALUES (?, ?, ?, ?)";
+  private static final String SELECT =
+      "SELECT CHANNEL_, TS_, USER_ID_ FROM " + TABLE_NAME + " WHERE TASK_ID_ = ?";
+  private static final String DELETE = "DELETE FROM " + TABLE_NAME + " WHERE TASK_ID_ = ?";
+
+  // Bulk statements use IN lists of at most this many ids, which all databases accept.
+  private static final int MAX_IN_LIST_SIZE = 500;
+
+  private final DataSource dataSource;
+
+  public JdbcMessageRefStore(DataSource dataSource) {
+    this.dataSource = dataSource;
+  }
+
+  /** Creates the table, unless it already exists. */
+  public void createTableIfMissing() {
+    try (Connection connection = dataSource.getConnection()) {
+      if (!tableExists(connection.getMetaData())) {
+        logger.info("Creating table " + TABLE_NAME);
+        try (Statement statement = connection.createStatement()) {
+          statement.execute(CREATE_TABLE);
+        }
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to create table " + TABLE_NAME, e);
+    }
+  }
+
+  @Override
+  public void add(String taskId, List<MessageRef> messageRefs) {
+    if (messageRefs.isEmpty()) {
+      return;
+    }
+    try (Connection connection = dataSource.getConnection()) {
+      insert(connection, taskId, messageRefs);
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to store message refs for task " + taskId, e);
+    }
+  }
+
+  private static void insert(Connection connection, String taskId, List<MessageRef> messageRefs)
+      throws SQLException {
+    try (PreparedStatement statement = connection.prepareStatement(INSERT)) {
+      for (MessageRef messageRef : messageRefs) {
+        statement.setString(1, taskId);
+        statement.setString(2, messageRef.channel());
+        statement.setString(3, messageRef.ts());
+        statement.setString(4, messageRef.slackUserId().orElse(null));
+        statement.addBatch();
+      }
+      statement.executeBatch();
+    }
+  }
+
+  @Override
+  public List<MessageRef> get(String taskId) {
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement statement = connection.prepareStatement(SELECT)) {
+      statement.setString(1, taskId);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        List<MessageRef> messageRefs = new ArrayList<>();
+        while (resultSet.next()) {
+          messageRefs.add(
+              ImmutableMessageRef.builder()
+                  .channel(resultSet.getString(1))
+                  .ts(resultSet.getString(2))
+                  .slackUserId(Optional.ofNullable(resultSet.getString(3)))
+                  .build());
+        }
+        return messageRefs;
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to read message refs for task " + taskId, e);
+    }
+  }
+
+  @Override
+  public void remove(String taskId) {
+    try (Connection connection = dataSource.getConnection();
+        PreparedStatement statement = connection.prepareStatement(DELETE)) {
+      statement.setString(1, taskId);
+      statement.executeUpdate();
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to remove message refs for task " + taskId, e);
+    }
+  }
+
+  @Override
+  public void replace(String taskId, List<MessageRef> messageRefs) {
+    try (Connection connection = dataSource.getConnection()) {
+      boolean autoCommit = connection.getAutoCommit();
+      connection.setAutoCommit(false);
+      try (PreparedStatement statement = connection.prepareStatement(DELETE)) {
+        statement.setString(1, taskId);
+        statement.executeUpdate();
+        if (!messageRefs.isEmpty()) {
+          insert(connection, taskId, messageRefs);
+        }
+        connection.commit();
+      } catch (SQLException | RuntimeException e) {
+        connection.rollback();
+        throw e;
+      } finally {
+        connection.setAutoCommit(autoCommit);
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to replace message refs for task " + taskId, e);
+    }
+  }
+
+  @Override
+  public Map<String, List<MessageRef>> getAll(Collection<String> taskIds) {
+    Map<String, List<MessageRef>> messageRefs = new HashMap<>();
+    try (Connection connection = dataSource.getConnection()) {
+      for (List<String> chunk : chunks(taskIds)) {
+        try (PreparedStatement statement =
+            connection.prepareStatement(
+                "SELECT TASK_ID_, CHANNEL_, TS_, USER_ID_ FROM "
+                    + TABLE_NAME
+                    + " WHERE TASK_ID_ IN "
+                    + placeholders(chunk.size()))) {
+          setStrings(statement, chunk);
+          try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+              messageRefs
+                  .computeIfAbsent(resultSet.getString(1), taskId -> new ArrayList<>())
+                  .add(
+                      ImmutableMessageRef.builder()
+                          .channel(resultSet.getString(2))
+                          .ts(resultSet.getString(3))
+                          .slackUserId(Optional.ofNullable(resultSet.getString(4)))
+                          .build());
+            }
+          }
+        }
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException("Failed to read message refs for " + taskIds.size() + " tasks", e);
+    }
+    return messageRefs;
+  }
+
+  @Override
+  public void removeAll(Collection<String> taskIds) {
+    try (Connection connection = dataSource.getConnection()) {
+      for (List<String> chunk : chunks(taskIds)) {
+        try (PreparedStatement statement =
+            connection.prepareStatement(
+                "DELETE FROM " + TABLE_NAME + " WHERE TASK_ID_ IN " + placeholders(chunk.size()))) {
+          setStrings(statement, chunk);
+          statement.executeUpdate();
+        }
+      }
+    } catch (SQLException e) {
+      throw new RuntimeException(
+          "Failed to remove message refs for " + taskIds.size() + " tasks", e);
+    }
+  }
+
+  private static List<List<String>> chunks(Collection<String> ids) {
+    List<String> list = new ArrayList<>(ids);
+    List<List<String>> chunks = new ArrayList<>();
+    for (int i = 0; i < list.size(); i += MAX_IN_LIST_SIZE) {
+      chunks.add(list.subList(i, Math.min(list.size(), i + MAX_IN_LIST_SIZE)));
+    }
+    return chunks;
+  }
+
+  private static String placeholders(int count) {
+    return Collections.nCopies(count, "?").stream().collect(Collectors.joining(", ", "(", ")"));
+  }
+
+  private static void setStrings(PreparedStatement statement, List<String> values)
+      throws SQLException {
+    for (int i = 0; i < values.size(); i++) {
+      statement.setString(i + 1, values.get(i));
+    }
+  }
+
+  private static boolean tableExists(DatabaseMetaData metaData) throws SQLException {
+    // Databases differ in how they fold the case of unquoted identifiers.
+    for (String name : new String[] {TABLE_NAME, TABLE_NAME.toLowerCase()}) {
+      try (ResultSet tables = metaData.getTables(null, null, name, new String[] {"TABLE"})) {
+        if (tables.next()) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.scheduling;
+
+import com.slack.api.methods.Methods;
+import com.slack.api.methods.MethodsRateLimitTier;
+import com.slack.api.methods.MethodsRateLimits;
+import io.powertask.slack.SlackApiOps;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Paces outbound Slack API calls so they stay within Slack's rate limits.
+ *
+ * <p>Every call takes a token from the bucket of its method tier and, if a channel is given, from
+ * the bucket of that channel; it's started once both tokens are available. Calls that fail with
+ * HTTP 429 are retried after the `Retry-After` period, during which the buckets of the method and
+ * the channel are paused.
+ *
+ * <p>Calls waiting to be started count against a bounded queue; what happens when it's full is
+ * determined by the {@link OverflowPolicy}.
+ */
+public class NotificationScheduler implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(NotificationScheduler.class);
+
+  public enum OverflowPolicy {
+    // Fail the new call with a RejectedExecutionException.
+    REJECT,
+    // Block the caller until there's room in the queue. Callers may be engine threads, so use this
+    // with care.
+    BLOCK,
+    // Fail the oldest waiting call with a RejectedExecutionException, and accept the new one.
+    DROP_OLDEST
+  }
+
+  public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+  public static final int DEFAULT_MAX_RETRIES = 3;
+
+  // Slack allows about one message per second in a channel, with short bursts.
+  private static final int CHANNEL_REQUESTS_PER_MINUTE = 60;
+  private static final int CHANNEL_BURST = 3;
+  private static final int MAX_CHANNEL_BUCKETS = 10000;
+
+  // The chat.postMessage tier is per channel; across the workspace Slack allows "several hundred"
+  // messages per minute.
+  private static final int POST_MESSAGE_REQUESTS_PER_MINUTE = 300;
+  private static final int DEFAULT_REQUESTS_PER_MINUTE = 20;
+
+  private final ScheduledExecutorService executor;
+  private final int queueCapacity;
+  private final OverflowPolicy overflowPolicy;
+  private final int maxRetries;
+
+  private final Map<String, TokenBucket> methodBuckets = new ConcurrentHashMap<>();
+  private final Map<String, TokenBucket> channelBuckets =
+      Collections.synchronizedMap(
+          new LinkedHashMap<String, TokenBucket>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TokenBucket> eldest) {
+              return size() > MAX_CHANNEL_BUCKETS;
+            }
+          });
+
+  // Calls that have been accepted, but not started yet. Guarded by `this`.
+  private final Deque<ScheduledCall<?>> waiting = new ArrayDeque<>();
+
+  public NotificationScheduler() {
+    this(DEFAULT_QUEUE_CAPACITY, OverflowPolicy.REJECT, DEFAULT_MAX_RETRIES);
+  }
+
+  public NotificationScheduler(int queueCapacity, OverflowPolicy overflowPolicy, int maxRetries) {
+    this.queueCapacity = queueCapacity;
+    this.overflowPolicy = overflowPolicy;
+    this.maxRetries = maxRetries;
+    this.executor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "powertask-notification-scheduler");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /** Schedules a call that isn't subject to a per-channel limit. */
+  public <T> CompletionStage<T> schedule(String method, Supplier<CompletionStage<T>> call) {
+    return schedule(method, null, call);
+  }
+
+  /**
+   * Schedules a call to the given Slack method.
+   *
+   * @param method the Slack method name, like {@link Methods#CHAT_POST_MESSAGE}.
+   * @param channel the channel the call posts to, or null if there's no per-channel limit.
+   * @param call starts the actual API call.
+   * @return completes with the result of the call, after any retries.
+   */
+  public <T> CompletionStage<T> schedule(
+      String method, String channel, Supplier<CompletionStage<T>> call) {
+    ScheduledCall<T> scheduledCall = new ScheduledCall<>(method, channel, call);
+    if (enqueue(scheduledCall)) {
+      dispatch(scheduledCall);
+    }
+    return scheduledCall.result;
+  }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+
+  private synchronized boolean enqueue(ScheduledCall<?> call) {
+    while (waiting.size() >= queueCapacity) {
+      switch (overflowPolicy) {
+        case REJECT:
+          call.result.completeExceptionally(
+              new RejectedExecutionException(
+                  "Notification queue is full, rejecting call to " + call.method));
+          return false;
+        case DROP_OLDEST:
+          ScheduledCall<?> dropped = waiting.removeFirst();
+          logger.warn("Notification queue is full, dropping call to " + dropped.method);
+          dropped.result.completeExceptionally(
+              new RejectedExecutionException(
+                  "Notification queue is full, dropped call to " + dropped.method));
+          break;
+        case BLOCK:
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            call.result.completeExceptionally(e);
+            return false;
+          }
+          break;
+      }
+    }
+    waiting.addLast(call);
+    return true;
+  }
+
+  private synchronized void started(ScheduledCall<?> call) {
+    if (waiting.remove(call)) {
+      notifyAll();
+    }
+  }
+
+  private void dispatch(ScheduledCall<?> call) {
+    long now = System.nanoTime();
+    long delay = methodBucket(call.method, now).reserve(now);
+    if (call.channel != null) {
+      delay = Math.max(delay, channelBucket(call.channel, now).reserve(now));
+    }
+    schedule(call, delay);
+  }
+
+  private void schedule(ScheduledCall<?> call, long delay) {
+    try {
+      executor.schedule(() -> run(call), delay, TimeUnit.NANOSECONDS);
+    } catch (RejectedExecutionException e) {
+      started(call);
+      call.result.completeExceptionally(e);
+    }
+  }
+
+  private <T> void run(ScheduledCall<T> call) {
+    // The call may have been dropped from the queue in the meantime.
+    if (call.result.isDone()) {
+      return;
+    }
+
+    // A Retry-After may have come in after this call got its token.
+    long now = System.nanoTime();
+    long paused = methodBucket(call.method, now).pausedFor(now);
+    if (call.channel != null) {
+      paused = Math.max(paused, channelBucket(call.channel, now).pausedFor(now));
+    }
+    if (paused > 0) {
+      schedule(call, paused);
+      return;
+    }
+
+    started(call);
+
+    CompletionStage<T> stage;
+    try {
+      stage = call.call.get();
+    } catch (RuntimeException e) {
+      CompletableFuture<T> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      stage = failed;
+    }
+
+    stage.whenComplete(
+        (result, throwable) -> {
+          if (throwable == null) {
+            call.result.complete(result);
+          } else {
+            Optional<Duration> retryAfter = SlackApiOps.retryAfter(throwable);
+            if (retryAfter.isPresent() && call.attempts < maxRetries) {
+              call.attempts++;
+              logger.info(
+                  "Rate limited on "
+                      + call.method
+                      + ", retrying in "
+                      + retryAfter.get()
+                      + " (attempt "
+                      + call.attempts
+                      + " of "
+                      + maxRetries
+                      + ")");
+              // A 429 doesn't say whether the channel or the method limit was hit, so both wait.
+              long pausedAt = System.nanoTime();
+              methodBucket(call.method, pausedAt).pause(pausedAt, retryAfter.get());
+              if (call.channel != null) {
+                channelBucket(call.channel, pausedAt).pause(pausedAt, retryAfter.get());
+              }
+              dispatch(call);
+            } else {
+              call.result.completeExceptionally(throwable);
+            }
+          }
+        });
+  }
+
+  private TokenBucket methodBucket(String method, long now) {
+    return methodBuckets.computeIfAbsent(
+        method,
+        m -> {
+          int requestsPerMinute = requestsPerMinute(m);
+          return TokenBucket.perMinute(requestsPerMinute, Math.max(1, requestsPerMinute / 10), now);
+        });
+  }
+
+  private TokenBucket channelBucket(String channel, long now) {
+    synchronized (channelBuckets) {
+      return channelBuckets.computeIfAbsent(
+          channel, c -> TokenBucket.perMinute(CHANNEL_REQUESTS_PER_MINUTE, CHANNEL_BURST, now));
+    }
+  }
+
+  private static int requestsPerMinute(String method) {
+    if (Methods.CHAT_POST_MESSAGE.equals(method)) {
+      return POST_MESSAGE_REQUESTS_PER_MINUTE;
+    }
+    MethodsRateLimitTier tier = MethodsRateLimits.lookupRateLimitTier(method);
+    return Optional.ofNullable(tier)
+        .map(MethodsRateLimitTier::getAllowedRequestsPerMinute)
+        .orElse(DEFAULT_REQUESTS_PER_MINUTE);
+  }
+
+  private static class ScheduledCall<T> {
+    private final String method;
+    private final String channel;
+    private final Supplier<CompletionStage<T>> call;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private volatile int attempts = 0;
+
+    private ScheduledCall(String method, String channel, Supplier<CompletionStage<T>> call) {
+      this.method = method;
+      this.channel = channel;
+      this.call = call;
+    }
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.scheduling;
+
+import static io.powertask.slack.SlackApiOps.requireOk;
+
+import com.slack.api.methods.Methods;
+import com.slack.api.methods.MethodsClient;
+import com.slack.api.methods.SlackApiException;
+import com.slack.api.methods.SlackApiTextResponse;
+import com.slack.api.methods.response.users.UsersListResponse;
+import com.slack.api.model.ResponseMetadata;
+import com.slack.api.model.User;
+import io.powertask.slack.SlackApiOps.SlackApiCall;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Makes blocking Slack calls through the {@link NotificationScheduler}, so they're paced per method
+ * tier and retried when rate limited, and follows paginated listings through all their pages.
+ *
+ * <p>The calls run on the given executor, whose size bounds how many are in flight at once.
+ */
+public class SlackPager {
+
+  public static final int PAGE_SIZE = 200;
+
+  private final MethodsClient methodsClient;
+  private final NotificationScheduler scheduler;
+  private final Executor executor;
+
+  public SlackPager(
+      MethodsClient methodsClient, NotificationScheduler scheduler, Executor executor) {
+    this.methodsClient = methodsClient;
+    this.scheduler = scheduler;
+    this.executor = executor;
+  }
+
+  /** All members of the workspace, including bots and deactivated users. */
+  public CompletableFuture<List<User>> users() {
+    return pages(
+            Methods.USERS_LIST,
+            cursor -> methodsClient.usersList(req -> req.cursor(cursor).limit(PAGE_SIZE)),
+            UsersListResponse::getResponseMetadata)
+        .thenApply(
+            responses ->
+                responses.stream()
+                    .flatMap(response -> response.getMembers().stream())
+                    .collect(Collectors.toList()));
+  }
+
+  public <T extends SlackApiTextResponse> CompletableFuture<List<T>> pages(
+      String method, PageCall<T> call, Function<T, ResponseMetadata> metadata) {
+    return nextPages(method, call, metadata, null, new ArrayList<>());
+  }
+
+  public <T extends SlackApiTextResponse> CompletableFuture<T> call(
+      String method, SlackApiCall<T> call) {
+    return scheduler
+        .schedule(method, () -> CompletableFuture.supplyAsync(() -> requireOk(call), executor))
+        .toCompletableFuture();
+  }
+
+  private <T extends SlackApiTextResponse> CompletableFuture<List<T>> nextPages(
+      String method,
+      PageCall<T> call,
+      Function<T, ResponseMetadata> metadata,
+      String cursor,
+      List<T> pages) {
+    return call(method, () -> call.page(cursor))
+        .thenCompose(
+            response -> {
+              pages.add(response);
+              ResponseMetadata responseMetadata = metadata.apply(response);
+              String nextCursor =
+                  responseMetadata == null ? null : responseMetadata.getNextCursor();
+              if (nextCursor == null || nextCursor.isEmpty()) {
+                return CompletableFuture.completedFuture(pages);
+              }
+              return nextPages(method, call, metadata, nextCursor, pages);
+            });
+  }
+
+  @FunctionalInterface
+  public interface PageCall<T> {
+    T page(String cursor) throws IOException, SlackApiException;
+  }
+}
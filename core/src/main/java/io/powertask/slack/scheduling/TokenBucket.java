@@ -0,0 +1,94 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.scheduling;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token bucket that hands out reservations instead of rejecting callers.
+ *
+ * <p>Every call to {@link #reserve(long)} takes a token, even if none is available; the bucket then
+ * goes into debt and the returned delay tells the caller how long to wait before using it. This
+ * gives callers a FIFO ordering without any of them having to spin or poll.
+ *
+ * <p>Times are in nanoseconds, as returned by {@link System#nanoTime()}.
+ */
+public class TokenBucket {
+
+  private final double capacity;
+  private final double tokensPerNano;
+
+  // The number of tokens at time `asOf`. May be negative when permits were reserved ahead.
+  private double tokens;
+  private long asOf;
+  private long pausedUntil;
+
+  public TokenBucket(double capacity, double tokensPerSecond, long now) {
+    if (capacity < 1 || tokensPerSecond <= 0) {
+      throw new IllegalArgumentException(
+          "Invalid token bucket, capacity " + capacity + ", rate " + tokensPerSecond);
+    }
+    this.capacity = capacity;
+    this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+    this.tokens = capacity;
+    this.asOf = now;
+    this.pausedUntil = now;
+  }
+
+  public static TokenBucket perMinute(int requestsPerMinute, int burst, long now) {
+    return new TokenBucket(burst, requestsPerMinute / 60.0, now);
+  }
+
+  /**
+   * Takes a token from the bucket.
+   *
+   * @return the number of nanoseconds from `now` until the token may be used.
+   */
+  public synchronized long reserve(long now) {
+    refill(now);
+    tokens -= 1;
+    long availableAt = asOf + (tokens < 0 ? (long) Math.ceil(-tokens / tokensPerNano) : 0);
+    return Math.max(0, availableAt - now);
+  }
+
+  /**
+   * Stops handing out tokens until `duration` from `now` has passed, for example because the server
+   * told us to back off. Outstanding reservations are pushed back by the same amount.
+   */
+  public synchronized void pause(long now, Duration duration) {
+    refill(now);
+    long until = now + duration.toNanos();
+    pausedUntil = Math.max(pausedUntil, until);
+    if (until > asOf) {
+      asOf = until;
+      tokens = Math.min(tokens, 0);
+    }
+  }
+
+  /**
+   * How long the bucket is still paused for. Reservations handed out before a pause don't know
+   * about it, so holders should check this before using their token.
+   */
+  public synchronized long pausedFor(long now) {
+    return Math.max(0, pausedUntil - now);
+  }
+
+  private void refill(long now) {
+    if (now > asOf) {
+      tokens = Math.min(capacity, tokens + (now - asOf) * tokensPerNano);
+      asOf = now;
+    }
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.usertasks;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import org.immutables.value.Value;
+
+/**
+ * Waits for the next task of a user in a process, without polling the engine. A waiter is
+ * registered for a root process instance and assignee, and completed by the first task event for
+ * that pair. Because the key is the root process instance, tasks behind async continuations and in
+ * called processes are found as well.
+ *
+ * <p>Every caller gets a waiter of its own, so concurrent submissions for the same pair don't
+ * interfere. The window is only waited out while jobs are pending that may still create the task.
+ */
+public class FollowUpTaskWaiter {
+
+  // Slack wants a response to a view submission within three seconds.
+  public static final Duration DEFAULT_WINDOW = Duration.ofMillis(2000);
+
+  private final Duration window;
+  // The sets are only modified within compute calls on the map.
+  private final ConcurrentMap<WaiterKey, Set<CompletableFuture<Task>>> waiters =
+      new ConcurrentHashMap<>();
+
+  @Value.Immutable
+  interface WaiterKey {
+    @Value.Parameter
+    String rootProcessInstanceId();
+
+    @Value.Parameter
+    String assignee();
+  }
+
+  public FollowUpTaskWaiter() {
+    this(DEFAULT_WINDOW);
+  }
+
+  public FollowUpTaskWaiter(Duration window) {
+    if (window.isNegative()) {
+      throw new IllegalArgumentException("The window must not be negative");
+    }
+    this.window = window;
+  }
+
+  /**
+   * Registers interest in the next task for the assignee. This should happen before the action that
+   * may create the task, so that an event fired while performing it isn't missed.
+   */
+  public CompletableFuture<Task> expect(String rootProcessInstanceId, String assignee) {
+    CompletableFuture<Task> waiter = new CompletableFuture<>();
+    waiters.compute(
+        ImmutableWaiterKey.of(rootProcessInstanceId, assignee),
+        (key, keyWaiters) -> {
+          Set<CompletableFuture<Task>> updated = keyWaiters == null ? new HashSet<>() : keyWaiters;
+          updated.add(waiter);
+          return updated;
+        });
+    return waiter;
+  }
+
+  /** Completes the waiters for the assignee of this task, if there are any. */
+  public void offer(Task task) {
+    task.assignee()
+        .ifPresent(
+            assignee -> {
+              Set<CompletableFuture<Task>> keyWaiters =
+                  waiters.remove(ImmutableWaiterKey.of(task.rootProcessInstanceId(), assignee));
+              if (keyWaiters != null) {
+                keyWaiters.forEach(waiter -> waiter.complete(task));
+              }
+            });
+  }
+
+  /**
+   * Returns the expected task. If no event arrived yet, a task that already exists is looked up
+   * once, and otherwise the event is awaited for the rest of the window, but only if there are
+   * pending jobs that may still create it.
+   */
+  public Optional<Task> await(
+      String rootProcessInstanceId,
+      String assignee,
+      CompletableFuture<Task> waiter,
+      Supplier<Optional<Task>> existingTask,
+      BooleanSupplier hasPendingJobs) {
+    long deadline = System.nanoTime() + window.toNanos();
+    try {
+      if (waiter.isDone()) {
+        return Optional.of(waiter.get());
+      }
+      // Checked before the lookup: a job that finishes in between has committed its task by then.
+      boolean pending = hasPendingJobs.getAsBoolean();
+      Optional<Task> existing = existingTask.get();
+      if (existing.isPresent()) {
+        return existing;
+      } else if (!pending) {
+        return Optional.empty();
+      }
+      return Optional.of(waiter.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+    } catch (TimeoutException e) {
+      return Optional.empty();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return Optional.empty();
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    } finally {
+      cancel(rootProcessInstanceId, assignee, waiter);
+    }
+  }
+
+  /** Removes a waiter that's no longer needed, for example because the action failed. */
+  public void cancel(
+      String rootProcessInstanceId, String assignee, CompletableFuture<Task> waiter) {
+    waiters.computeIfPresent(
+        ImmutableWaiterKey.of(rootProcessInstanceId, assignee),
+        (key, keyWaiters) -> {
+          keyWaiters.remove(waiter);
+          return keyWaiters.isEmpty() ? null : keyWaiters;
+        });
+  }
+
+  int waiting() {
+    return waiters.values().stream().mapToInt(Set::size).sum();
+  }
+}
@@ -16,14 +16,32 @@ package io.powertask.slack.usertasks;
 import io.powertask.slack.TaskLike;
 import java.util.List;
 import java.util.Optional;
+import org.immutables.value.Value.Default;
+import org.immutables.value.Value.Immutable;
 
+@Immutable
 public interface Task extends TaskLike {
-  String assignee();
+  Optional<String> assignee();
+
+  // Engine ids of the users that may claim the task, besides the assignee.
+  List<String> candidateUsers();
+
+  // Engine ids of the groups whose members may claim the task.
+  List<String> candidateGroups();
 
   String id();
 
   String processInstanceId();
 
+  // The process instance at the top of the call activity hierarchy. The task's own process
+  // instance, unless it runs in a called process.
+  @Default
+  default String rootProcessInstanceId() {
+    return processInstanceId();
+  }
+
+  String taskDefinitionKey();
+
   Optional<String> errorMessage();
 
   Optional<Optional<List<String>>> showVariables();
@@ -0,0 +1,189 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.usertasks;
+
+import com.slack.api.methods.AsyncMethodsClient;
+import com.slack.api.methods.Methods;
+import com.slack.api.model.block.Blocks;
+import com.slack.api.model.block.composition.BlockCompositions;
+import io.powertask.slack.BoundedCache;
+import io.powertask.slack.MessageRef;
+import io.powertask.slack.MessageRefStore;
+import io.powertask.slack.scheduling.NotificationScheduler;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Updates the Slack messages of tasks that ended, in batches.
+ *
+ * <p>Cancelling a process instance or finishing a multi-instance activity ends many tasks at once.
+ * Ended tasks are collected per process instance for a short window, after which the message refs
+ * of all of them are looked up and removed in one go, and the updates are handed to the {@link
+ * NotificationScheduler}.
+ *
+ * <p>The message of a task can be posted while the task is ending, so its ref only comes in after
+ * the batch was flushed. Refs are therefore added through {@link #addMessageRefs}, which updates
+ * the messages of recently ended tasks right away instead of storing them.
+ */
+public class TaskEndBatcher implements AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(TaskEndBatcher.class);
+
+  public static final Duration DEFAULT_WINDOW = Duration.ofMillis(500);
+  private static final int MAX_ENDED_TASKS = 10000;
+
+  private final AsyncMethodsClient asyncMethodsClient;
+  private final NotificationScheduler notificationScheduler;
+  private final MessageRefStore messageRefStore;
+  private final Duration window;
+  private final ScheduledExecutorService executor;
+
+  // Per process instance, the context text for each ended task.
+  private final Map<String, Map<String, String>> batches = new ConcurrentHashMap<>();
+  // The context text of recently ended tasks, for refs that come in late.
+  private final BoundedCache<String, String> ended = new BoundedCache<>(MAX_ENDED_TASKS);
+
+  public TaskEndBatcher(
+      AsyncMethodsClient asyncMethodsClient,
+      NotificationScheduler notificationScheduler,
+      MessageRefStore messageRefStore,
+      Duration window) {
+    this.asyncMethodsClient = asyncMethodsClient;
+    this.notificationScheduler = notificationScheduler;
+    this.messageRefStore = messageRefStore;
+    this.window = window;
+    this.executor =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "powertask-task-end-batcher");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  /** Replaces the messages of the given task with the given context text, soon. */
+  public void add(String processInstanceId, String taskId, String contextText) {
+    ended.put(taskId, contextText);
+    batches.compute(
+        processInstanceId,
+        (id, batch) -> {
+          if (batch == null) {
+            batch = new HashMap<>();
+            scheduleFlush(id);
+          }
+          batch.put(taskId, contextText);
+          return batch;
+        });
+  }
+
+  /**
+   * Stores the refs of messages that were posted for a task. If the task has ended in the meantime,
+   * the messages are updated instead.
+   */
+  public void addMessageRefs(String taskId, List<MessageRef> messageRefs) {
+    Optional<String> contextText = ended.get(taskId);
+    if (contextText.isPresent()) {
+      messageRefs.forEach(ref -> updateMessage(taskId, ref, contextText.get()));
+      return;
+    }
+    messageRefStore.add(taskId, messageRefs);
+
+    // The task may have ended, and its batch flushed, while the refs were being stored.
+    Optional<String> endedWhileStoring = ended.get(taskId);
+    if (endedWhileStoring.isPresent()) {
+      List<MessageRef> late = messageRefStore.get(taskId);
+      messageRefStore.remove(taskId);
+      late.forEach(ref -> updateMessage(taskId, ref, endedWhileStoring.get()));
+    }
+  }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+    new ArrayList<>(batches.keySet()).forEach(this::flush);
+  }
+
+  private void scheduleFlush(String processInstanceId) {
+    try {
+      executor.schedule(() -> flush(processInstanceId), window.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      // We're shutting down; `close` flushes what's left.
+      logger.debug("Not scheduling flush for process instance " + processInstanceId, e);
+    }
+  }
+
+  private void flush(String processInstanceId) {
+    Map<String, String> batch = batches.remove(processInstanceId);
+    if (batch == null) {
+      return;
+    }
+
+    Map<String, List<MessageRef>> messageRefs;
+    try {
+      messageRefs = messageRefStore.getAll(batch.keySet());
+      messageRefStore.removeAll(batch.keySet());
+    } catch (RuntimeException e) {
+      logger.warn(
+          "Failed to look up messages of "
+              + batch.size()
+              + " ended tasks of process instance "
+              + processInstanceId,
+          e);
+      return;
+    }
+
+    logger.debug(
+        "Updating messages of "
+            + messageRefs.size()
+            + " ended tasks of process instance "
+            + processInstanceId);
+
+    messageRefs.forEach(
+        (taskId, refs) -> refs.forEach(ref -> updateMessage(taskId, ref, batch.get(taskId))));
+  }
+
+  /** Replaces a message with the given context text right away, without batching. */
+  void updateMessage(String taskId, MessageRef messageRef, String contextText) {
+    notificationScheduler
+        .schedule(
+            Methods.CHAT_UPDATE,
+            () ->
+                asyncMethodsClient.chatUpdate(
+                    req ->
+                        req.ts(messageRef.ts())
+                            .channel(messageRef.channel())
+                            .blocks(
+                                Collections.singletonList(
+                                    Blocks.context(
+                                        Collections.singletonList(
+                                            BlockCompositions.markdownText(contextText)))))))
+        .exceptionally(
+            throwable -> {
+              logger.warn("Failed to update message for task " + taskId, throwable);
+              return null;
+            });
+  }
+}
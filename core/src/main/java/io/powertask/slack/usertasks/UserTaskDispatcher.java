@@ -13,36 +13,52 @@
  */
 package io.powertask.slack.usertasks;
 
-import static io.powertask.slack.FunctionOps.wrapExceptions;
+import static com.slack.api.model.block.Blocks.section;
+import static com.slack.api.model.block.composition.BlockCompositions.markdownText;
+import static com.slack.api.model.block.composition.BlockCompositions.plainText;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
 import com.google.gson.reflect.TypeToken;
 import com.slack.api.RequestConfigurator;
 import com.slack.api.bolt.App;
 import com.slack.api.bolt.context.Context;
 import com.slack.api.bolt.context.builtin.ActionContext;
 import com.slack.api.bolt.context.builtin.ViewSubmissionContext;
+import com.slack.api.bolt.request.builtin.BlockActionRequest;
 import com.slack.api.bolt.response.Response;
 import com.slack.api.methods.AsyncMethodsClient;
+import com.slack.api.methods.Methods;
 import com.slack.api.methods.request.chat.ChatPostMessageRequest;
-import com.slack.api.methods.response.chat.ChatPostMessageResponse;
-import com.slack.api.model.block.Blocks;
-import com.slack.api.model.block.composition.BlockCompositions;
+import com.slack.api.model.block.ActionsBlock;
+import com.slack.api.model.block.element.ButtonElement;
+import io.powertask.slack.BoundedCache;
 import io.powertask.slack.Form;
 import io.powertask.slack.FormService;
 import io.powertask.slack.FutureOps;
+import io.powertask.slack.FutureOps.Settled;
+import io.powertask.slack.GsonAdaptersMessageRef;
 import io.powertask.slack.ImmutableMessageRef;
 import io.powertask.slack.MessageRef;
+import io.powertask.slack.MessageRefStore;
 import io.powertask.slack.TaskService;
+import io.powertask.slack.identity.GroupChannelResolver;
 import io.powertask.slack.identity.UserResolver;
+import io.powertask.slack.messagerefs.InMemoryMessageRefStore;
+import io.powertask.slack.scheduling.NotificationScheduler;
 import io.powertask.slack.usertasks.renderers.ModalTaskRenderer;
 import io.powertask.slack.usertasks.renderers.SingleMessageTaskRenderer;
 import io.powertask.slack.usertasks.renderers.TaskRenderer;
+import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import org.immutables.value.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -50,17 +66,56 @@ public class UserTaskDispatcher {
 
   private static final Logger logger = LoggerFactory.getLogger(UserTaskDispatcher.class);
 
-  // TODO, make some type-safe data access object for this, that also does the serialization. See
-  // the Camunda best practices.
-  private static final String VARIABLE_POWERTASK_MESSAGEREFS = "powertaskMessageRefs";
+  private static final int MAX_PARALLEL_POSTS = 10;
+  private static final int MAX_ROUTING_CACHE_SIZE = 1000;
+  private static final int MAX_LAST_NOTIFICATIONS = 10000;
+
+  // Message refs used to be stored as JSON in this variable. Tasks announced before the
+  // MessageRefStore was introduced still only have them there.
+  public static final String LEGACY_MESSAGE_REFS_VARIABLE = "powertaskMessageRefs";
+  private static final Gson legacyGson =
+      new GsonBuilder().registerTypeAdapterFactory(new GsonAdaptersMessageRef()).create();
+
+  private static final Pattern taskClaimPattern = Pattern.compile("^task-claim/([a-z0-9\\-]+)$");
 
   private final List<TaskRenderer> taskRenderers;
   private final ModalTaskRenderer modalTaskRenderer;
   private final AsyncMethodsClient asyncMethodsClient;
   private final UserResolver userResolver;
-  private final Gson gson; // TODO, or should we piggy-back on the shaded Camunda Gson class?
+  private final GroupChannelResolver groupChannelResolver;
   private final TaskService taskService;
   private final FormService formService;
+  private final NotificationScheduler notificationScheduler;
+  private final MessageRefStore messageRefStore;
+  private final TaskEndBatcher taskEndBatcher;
+  private final FollowUpTaskWaiter followUpTaskWaiter;
+
+  // The renderer for each task definition. The form of a task definition is fixed, so this only
+  // has to be determined once; a redeployment creates a new process definition id.
+  private final BoundedCache<RoutingKey, Optional<TaskRenderer>> routingCache =
+      new BoundedCache<>(MAX_ROUTING_CACHE_SIZE);
+
+  // The assignee that was last notified of each open task.
+  private final BoundedCache<String, LastNotification> lastNotifications =
+      new BoundedCache<>(MAX_LAST_NOTIFICATIONS);
+
+  @Value.Immutable
+  interface LastNotification {
+    @Value.Parameter
+    String assignee();
+
+    @Value.Parameter
+    Instant notifiedAt();
+  }
+
+  @Value.Immutable
+  interface RoutingKey {
+    @Value.Parameter
+    String processDefinitionId();
+
+    @Value.Parameter
+    String taskDefinitionKey();
+  }
 
   public UserTaskDispatcher(
       AsyncMethodsClient asyncMethodsClient,
@@ -68,12 +123,90 @@ public class UserTaskDispatcher {
       App app,
       TaskService taskService,
       FormService formService) {
+    this(
+        asyncMethodsClient,
+        userResolver,
+        app,
+        taskService,
+        formService,
+        new NotificationScheduler(),
+        new InMemoryMessageRefStore(),
+        GroupChannelResolver.NONE);
+  }
+
+  public UserTaskDispatcher(
+      AsyncMethodsClient asyncMethodsClient,
+      UserResolver userResolver,
+      App app,
+      TaskService taskService,
+      FormService formService,
+      NotificationScheduler notificationScheduler,
+      MessageRefStore messageRefStore,
+      GroupChannelResolver groupChannelResolver) {
+    this(
+        asyncMethodsClient,
+        userResolver,
+        app,
+        taskService,
+        formService,
+        notificationScheduler,
+        messageRefStore,
+        groupChannelResolver,
+        new FollowUpTaskWaiter());
+  }
+
+  public UserTaskDispatcher(
+      AsyncMethodsClient asyncMethodsClient,
+      UserResolver userResolver,
+      App app,
+      TaskService taskService,
+      FormService formService,
+      NotificationScheduler notificationScheduler,
+      MessageRefStore messageRefStore,
+      GroupChannelResolver groupChannelResolver,
+      FollowUpTaskWaiter followUpTaskWaiter) {
+    this(
+        asyncMethodsClient,
+        userResolver,
+        app,
+        taskService,
+        formService,
+        notificationScheduler,
+        messageRefStore,
+        groupChannelResolver,
+        followUpTaskWaiter,
+        new TaskEndBatcher(
+            asyncMethodsClient,
+            notificationScheduler,
+            messageRefStore,
+            TaskEndBatcher.DEFAULT_WINDOW));
+  }
+
+  /**
+   * @param taskEndBatcher is not closed by the dispatcher; the caller should close it on shutdown,
+   *     so pending updates are sent.
+   */
+  public UserTaskDispatcher(
+      AsyncMethodsClient asyncMethodsClient,
+      UserResolver userResolver,
+      App app,
+      TaskService taskService,
+      FormService formService,
+      NotificationScheduler notificationScheduler,
+      MessageRefStore messageRefStore,
+      GroupChannelResolver groupChannelResolver,
+      FollowUpTaskWaiter followUpTaskWaiter,
+      TaskEndBatcher taskEndBatcher) {
     logger.info("Initializing UserTaskDispatcher");
     this.asyncMethodsClient = asyncMethodsClient;
+    this.notificationScheduler = notificationScheduler;
+    this.messageRefStore = messageRefStore;
+    this.taskEndBatcher = taskEndBatcher;
     this.userResolver = userResolver;
+    this.groupChannelResolver = groupChannelResolver;
     this.taskService = taskService;
     this.formService = formService;
-    this.gson = new Gson();
+    this.followUpTaskWaiter = followUpTaskWaiter;
 
     SingleMessageTaskRenderer singleMessageTaskRenderer =
         new SingleMessageTaskRenderer(taskService, this::submitAndShowNextTask);
@@ -104,17 +237,79 @@ public class UserTaskDispatcher {
                         registration.pattern(), registration.viewSubmissionHandler());
                   });
         });
+
+    logger.info("Registering block action for " + taskClaimPattern);
+    app.blockAction(taskClaimPattern, this::claimHandler);
+  }
+
+  private Response claimHandler(BlockActionRequest req, ActionContext ctx) {
+    String actionId = req.getPayload().getActions().get(0).getActionId();
+    Matcher matcher = taskClaimPattern.matcher(actionId);
+    if (!matcher.find()) {
+      throw new IllegalArgumentException("Invalid action id.");
+    }
+    String taskId = matcher.group(1);
+    String slackUserId = req.getPayload().getUser().getId();
+
+    try {
+      taskService.claim(taskId, userResolver.toEngineUserId(slackUserId));
+    } catch (RuntimeException e) {
+      // Most likely someone else was faster.
+      logger.info("User " + slackUserId + " failed to claim task " + taskId, e);
+      String channelId = req.getPayload().getChannel().getId();
+      asyncMethodsClient.chatPostEphemeral(
+          r ->
+              r.channel(channelId)
+                  .user(slackUserId)
+                  .text("Sorry, this task can't be claimed anymore."));
+    }
+    // Claiming triggers an assignment, which sends the task to the claimant.
+    return ctx.ack();
   }
 
   private Response submitAndShowNextTask(TaskRenderer.TaskResult taskResult, Context ctx) {
     Task task = taskService.taskById(taskResult.taskId());
-    formService.submitTaskForm(taskResult.taskId(), taskResult.taskVariables());
-    return showFollowupTask(ctx, task.processInstanceId(), task.assignee());
+    // Candidates can complete a task without claiming it first.
+    String assignee =
+        task.assignee().orElseGet(() -> userResolver.toEngineUserId(ctx.getRequestUserId()));
+
+    // Registered before submitting, so a task created by the submission itself is caught as well.
+    CompletableFuture<Task> waiter =
+        followUpTaskWaiter.expect(task.rootProcessInstanceId(), assignee);
+    try {
+      formService.submitTaskForm(taskResult.taskId(), taskResult.taskVariables());
+    } catch (RuntimeException e) {
+      followUpTaskWaiter.cancel(task.rootProcessInstanceId(), assignee, waiter);
+      throw e;
+    }
+    return showFollowupTask(
+        ctx,
+        followUpTaskWaiter.await(
+            task.rootProcessInstanceId(),
+            assignee,
+            waiter,
+            () -> taskService.followUpTask(task.processInstanceId(), assignee),
+            () -> taskService.hasPendingJobs(task.rootProcessInstanceId())));
   }
 
+  /**
+   * Shows the next task of the user in a process instance that was just started. The instance is
+   * the root of its hierarchy, so tasks in called processes are shown as well.
+   */
   public Response showFollowupTask(Context ctx, String processInstanceId, String assignee) {
-    return taskService
-        .followUpTask(processInstanceId, assignee)
+    CompletableFuture<Task> waiter = followUpTaskWaiter.expect(processInstanceId, assignee);
+    return showFollowupTask(
+        ctx,
+        followUpTaskWaiter.await(
+            processInstanceId,
+            assignee,
+            waiter,
+            () -> taskService.followUpTask(processInstanceId, assignee),
+            () -> taskService.hasPendingJobs(processInstanceId)));
+  }
+
+  private Response showFollowupTask(Context ctx, Optional<Task> followUp) {
+    return followUp
         .map(
             followUpTask ->
                 formService
@@ -146,151 +341,302 @@ public class UserTaskDispatcher {
         .orElseGet(ctx::ack);
   }
 
+  /**
+   * Stores the message refs of a task that was announced before the MessageRefStore was introduced,
+   * so its messages are updated when it ends. Call this before notifying the end of the task. Refs
+   * in the store take precedence, as the variable may be shared with other tasks.
+   */
+  public void restoreLegacyMessageRefs(String taskId, String refsJson) {
+    if (!messageRefStore.get(taskId).isEmpty()) {
+      return;
+    }
+    List<MessageRef> legacyRefs;
+    try {
+      legacyRefs = legacyGson.fromJson(refsJson, new TypeToken<List<MessageRef>>() {}.getType());
+    } catch (JsonParseException e) {
+      logger.warn("Ignoring unreadable legacy message refs of task " + taskId, e);
+      return;
+    }
+    if (legacyRefs != null && !legacyRefs.isEmpty()) {
+      logger.debug("Restoring legacy message refs " + legacyRefs + " for task " + taskId);
+      messageRefStore.add(taskId, legacyRefs);
+    }
+  }
+
   // TODO, should this be delegated to the task renderers, for customized formatting?
   public void notifyTaskCompletion(Task task) {
-    String taskCompletedBy = userResolver.toSlackUserId(task.assignee());
-    String taskCompletedByString = " by <@" + taskCompletedBy + ">";
+    String taskCompletedByString =
+        task.assignee()
+            .map(assignee -> " by <@" + userResolver.toSlackUserId(assignee) + ">")
+            .orElse("");
 
+    String contextString =
+        "Task *" + task.name() + "* " + timestampString("completed") + taskCompletedByString;
+
+    lastNotifications.invalidate(task.id());
+    taskEndBatcher.add(task.processInstanceId(), task.id(), contextString);
+  }
+
+  public void notifyTaskDeletion(Task task) {
+    String contextString = "Task *" + task.name() + "* " + timestampString("cancelled");
+
+    lastNotifications.invalidate(task.id());
+    taskEndBatcher.add(task.processInstanceId(), task.id(), contextString);
+  }
+
+  private static String timestampString(String verb) {
     // TODO, can we get this from somewhere better, like the actual event?
     long unixTime = System.currentTimeMillis() / 1000L;
 
     // TODO, nicer fallback?
-    String timestampString =
-        "<!date^"
-            + unixTime
-            + "^completed {date_short_pretty} at {time}|"
-            + OffsetDateTime.now().toString()
-            + ">";
-
-    String contextString = "Task *" + task.name() + "* " + timestampString + taskCompletedByString;
-
-    Optional<String> optionalRefsJson =
-        taskService.getVariable(task.id(), VARIABLE_POWERTASK_MESSAGEREFS).map(o -> (String) o);
-
-    optionalRefsJson.ifPresent(
-        refsJson -> {
-          List<MessageRef> messageRefs =
-              wrapExceptions(
-                  () ->
-                      gson.fromJson(
-                          refsJson, new TypeToken<List<ImmutableMessageRef>>() {}.getType()));
-
-          messageRefs.forEach(
-              messageRef ->
-                  asyncMethodsClient.chatUpdate(
-                      req ->
-                          req.ts(messageRef.ts())
-                              .channel(messageRef.channel())
-                              .blocks(
-                                  Collections.singletonList(
-                                      Blocks.context(
-                                          Collections.singletonList(
-                                              BlockCompositions.markdownText(contextString)))))));
-        });
+    return "<!date^"
+        + unixTime
+        + "^"
+        + verb
+        + " {date_short_pretty} at {time}|"
+        + OffsetDateTime.now().toString()
+        + ">";
+  }
+
+  /** Announces a task that's created without assignee to its candidate users. */
+  public void notifyTaskCreation(Task task) {
+    if (task.assignee().isPresent()) {
+      return;
+    }
+
+    Set<String> channels =
+        task.candidateGroups().stream()
+            .map(groupChannelResolver::toSlackChannelId)
+            .filter(Optional::isPresent)
+            .map(Optional::get)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    channels.forEach(channel -> announceInChannel(task, channel));
 
-    if (!optionalRefsJson.isPresent()) {
-      logger.warn(
-          "Unexpectedly couldn't find a variable "
-              + VARIABLE_POWERTASK_MESSAGEREFS
-              + " for task "
-              + task.id());
+    if (!task.candidateUsers().isEmpty()) {
+      announce(task, userResolver.toSlackUserIds(task.candidateUsers()).values());
     }
   }
 
+  // Posts a task once to a channel, for one of its members to claim.
+  private void announceInChannel(Task task, String channel) {
+    notificationScheduler
+        .schedule(
+            Methods.CHAT_POST_MESSAGE,
+            channel,
+            () ->
+                asyncMethodsClient.chatPostMessage(
+                    req ->
+                        req.channel(channel)
+                            .text("Task: " + task.name())
+                            .blocks(
+                                Arrays.asList(
+                                    section(
+                                        section ->
+                                            section.text(
+                                                markdownText(
+                                                    "New task for this channel:\n*"
+                                                        + task.name()
+                                                        + "*"))),
+                                    ActionsBlock.builder()
+                                        .blockId("claim")
+                                        .elements(
+                                            Collections.singletonList(
+                                                ButtonElement.builder()
+                                                    .actionId("task-claim/" + task.id())
+                                                    .text(plainText("Claim"))
+                                                    .build()))
+                                        .build()))))
+        .handle(
+            (response, throwable) -> {
+              if (throwable != null) {
+                logger.warn(
+                    "Failed to announce task " + task.id() + " in channel " + channel, throwable);
+              } else {
+                taskEndBatcher.addMessageRefs(
+                    task.id(),
+                    Collections.singletonList(
+                        ImmutableMessageRef.builder()
+                            .channel(response.getChannel())
+                            .ts(response.getMessage().getTs())
+                            .build()));
+              }
+              return null;
+            });
+  }
+
+  /**
+   * Announces a task to its new assignee. If it was announced to other users before, for example
+   * the candidates, their messages are updated to say who took it.
+   */
   public void notifyTaskAssignment(Task task) {
+    if (!task.assignee().isPresent()) {
+      return;
+    }
+    // Tasks created with an assignee get an assignment event as well.
+    followUpTaskWaiter.offer(task);
+    String assignee = task.assignee().get();
+
+    // Setting the same assignee again, or an unclaim followed by a claim by the same user, leaves
+    // the message they have untouched.
+    LastNotification notification = ImmutableLastNotification.of(assignee, Instant.now());
+    LastNotification current =
+        lastNotifications.compute(
+            task.id(),
+            (taskId, last) ->
+                last != null && last.assignee().equals(assignee) ? last : notification);
+    if (current != notification) {
+      logger.debug(
+          "Assignee "
+              + assignee
+              + " of task "
+              + task.id()
+              + " was already notified at "
+              + current.notifiedAt());
+      return;
+    }
 
-    // TODO, probably we can optimize this at some point, predetermining this for all tasks in all
-    // deployments.
-    Optional<Form> formOptional = formService.taskForm(task.id());
-    formOptional.ifPresent(
-        form -> {
-          Optional<TaskRenderer> selectedRenderer = selectRenderer(form);
+    try {
+      notifyAssignee(task, assignee, notification);
+    } catch (RuntimeException e) {
+      lastNotifications.invalidate(task.id(), notification);
+      throw e;
+    }
+  }
 
-          selectedRenderer.ifPresent(renderer -> executeRenderer(renderer, task, form));
+  private void notifyAssignee(Task task, String assignee, LastNotification notification) {
+    String assigneeSlackId = userResolver.toSlackUserId(assignee);
 
-          if (!selectedRenderer.isPresent()) {
-            logger.info("No task renderer found for this type of task!");
-          }
-        });
+    List<MessageRef> existing = messageRefStore.get(task.id());
+    if (existing.isEmpty()) {
+      announceToAssignee(task, assigneeSlackId, notification);
+      return;
+    }
 
-    if (!formOptional.isPresent()) {
-      logger.warn("No form found for assigned task " + task.id() + ", not notifying the user.");
+    Map<Boolean, List<MessageRef>> byAssignee =
+        existing.stream()
+            .collect(
+                Collectors.partitioningBy(
+                    ref -> ref.slackUserId().equals(Optional.of(assigneeSlackId))));
+    List<MessageRef> others = byAssignee.get(false);
+    List<MessageRef> kept = byAssignee.get(true);
+
+    if (!others.isEmpty()) {
+      String contextString =
+          "Task *"
+              + task.name()
+              + "* "
+              + timestampString("claimed")
+              + " by <@"
+              + assigneeSlackId
+              + ">";
+      messageRefStore.replace(task.id(), kept);
+      others.forEach(ref -> taskEndBatcher.updateMessage(task.id(), ref, contextString));
     }
-  }
 
-  private Optional<TaskRenderer> selectRenderer(Form form) {
-    return taskRenderers.stream().filter(tr -> tr.canRender(form)).findFirst();
+    // The assignee keeps the message they already have.
+    if (kept.isEmpty()) {
+      announceToAssignee(task, assigneeSlackId, notification);
+    }
   }
 
-  // TODO, this method is overly complicated, because it was built with the idea of having multiple
-  // assignments for a task. Now, that's not the case, but we probably want to move towards
-  // announcing to
-  // all candidateUsers / candidateGroups and not just the assignee, so when we make that move, this
-  // becomes
-  // reasonable again (of course could still use cleanup :))
-  private void executeRenderer(TaskRenderer renderer, Task task, Form form) {
-    getAssigneeChannels(task)
+  // If the post fails, a later assignment to the same user tries again.
+  private void announceToAssignee(
+      Task task, String assigneeSlackId, LastNotification notification) {
+    announce(task, Collections.singleton(assigneeSlackId))
         .thenAccept(
-            slackChannels -> {
-              if (slackChannels.isEmpty()) {
-                logger.debug("No slack channels found for assignee " + task.assignee());
-              } else {
-                RequestConfigurator<ChatPostMessageRequest.ChatPostMessageRequestBuilder>
-                    configurator = renderer.initialMessage(task, form);
-
-                // TODO, handle failures of all the CompletionStage's here.
-                CompletionStage<List<ChatPostMessageResponse>> responsesCompletionStage =
-                    slackChannels.stream()
-                        .map(
-                            channel ->
-                                asyncMethodsClient.chatPostMessage(
-                                    req -> configurator.configure(req).channel(channel)))
-                        .collect(FutureOps.completionStageListCollector());
-
-                CompletionStage<List<MessageRef>> messageRefs =
-                    responsesCompletionStage.thenApply(
-                        responses ->
-                            responses.stream()
-                                .map(
-                                    response ->
-                                        ImmutableMessageRef.builder()
-                                            .channel(response.getChannel())
-                                            .ts(response.getMessage().getTs())
-                                            .build())
-                                .collect(Collectors.toList()));
-
-                // There's a race condition here; we store the variables only after submitting the
-                // message to slack,
-                // so in theory a user could very quickly open the modal and respond to it, before
-                // this is saved.
-                // But it seems unlikely that it will happen.
-                messageRefs.handle(
-                    (r, t) -> {
-                      Optional.ofNullable(r)
-                          .ifPresent(
-                              refs -> {
-                                String serialized = wrapExceptions(() -> gson.toJson(refs));
-                                logger.debug(
-                                    "Storing serialized message ref: "
-                                        + serialized
-                                        + " for task "
-                                        + task.id());
-
-                                taskService.setVariable(
-                                    task.id(), VARIABLE_POWERTASK_MESSAGEREFS, serialized);
-                              });
-                      Optional.ofNullable(t)
-                          .ifPresent(
-                              throwable ->
-                                  logger.warn("Failed to notify user of a task!", throwable));
-                      return null;
-                    });
+            allPosted -> {
+              if (!allPosted) {
+                lastNotifications.invalidate(task.id(), notification);
               }
             });
   }
 
-  private CompletionStage<Set<String>> getAssigneeChannels(Task task) {
-    return CompletableFuture.completedFuture(
-        Collections.singleton(userResolver.toSlackUserId(task.assignee())));
+  // Completes with whether every post succeeded; there may be nothing to post at all.
+  private CompletionStage<Boolean> announce(Task task, Collection<String> slackUserIds) {
+    RoutingKey routingKey =
+        ImmutableRoutingKey.of(task.processDefinitionId(), task.taskDefinitionKey());
+    Optional<Optional<TaskRenderer>> cachedRenderer = routingCache.get(routingKey);
+
+    // Tasks of a definition without renderer can be skipped without loading their form.
+    if (cachedRenderer.isPresent() && !cachedRenderer.get().isPresent()) {
+      logger.debug("No renderer for task " + task.id() + ", not notifying any users.");
+      return CompletableFuture.completedFuture(true);
+    }
+
+    // A missing form says nothing about the definition; the task may just be gone already. So only
+    // a loaded form without a matching renderer is remembered.
+    Optional<Form> formOptional = formService.taskForm(task.id());
+    if (!formOptional.isPresent()) {
+      logger.warn("No form found for task " + task.id() + ", not notifying any users.");
+      return CompletableFuture.completedFuture(true);
+    }
+    Form form = formOptional.get();
+
+    Optional<TaskRenderer> selectedRenderer =
+        cachedRenderer.orElseGet(
+            () -> {
+              Optional<TaskRenderer> renderer = selectRenderer(form);
+              routingCache.put(routingKey, renderer);
+              return renderer;
+            });
+    if (!selectedRenderer.isPresent()) {
+      logger.info("No task renderer found for this type of task!");
+      return CompletableFuture.completedFuture(true);
+    }
+    return executeRenderer(selectedRenderer.get(), task, form, slackUserIds);
+  }
+
+  private Optional<TaskRenderer> selectRenderer(Form form) {
+    return taskRenderers.stream().filter(tr -> tr.canRender(form)).findFirst();
+  }
+
+  private CompletionStage<Boolean> executeRenderer(
+      TaskRenderer renderer, Task task, Form form, Collection<String> slackUserIds) {
+    if (slackUserIds.isEmpty()) {
+      logger.debug("No Slack users found to notify of task " + task.id());
+      return CompletableFuture.completedFuture(true);
+    }
+
+    RequestConfigurator<ChatPostMessageRequest.ChatPostMessageRequestBuilder> configurator =
+        renderer.initialMessage(task, form);
+
+    // The scheduler keeps us within the rate limits; this bounds how many posts we have waiting on
+    // Slack at the same time. One failed post doesn't stop the others.
+    CompletionStage<Settled<MessageRef>> messageRefs =
+        FutureOps.settleAll(
+            new ArrayList<>(slackUserIds),
+            MAX_PARALLEL_POSTS,
+            slackUserId ->
+                notificationScheduler
+                    .schedule(
+                        Methods.CHAT_POST_MESSAGE,
+                        slackUserId,
+                        () ->
+                            asyncMethodsClient.chatPostMessage(
+                                req -> configurator.configure(req).channel(slackUserId)))
+                    .thenApply(
+                        response ->
+                            ImmutableMessageRef.builder()
+                                .channel(response.getChannel())
+                                .ts(response.getMessage().getTs())
+                                .slackUserId(slackUserId)
+                                .build()));
+
+    // There's a race condition here; we store the message refs only after submitting the message
+    // to Slack, so in theory a user could very quickly open the modal and respond to it, before
+    // this is saved. But it seems unlikely that it will happen.
+    return messageRefs.thenApply(
+        settled -> {
+          if (!settled.successes().isEmpty()) {
+            logger.debug("Storing message refs " + settled.successes() + " for task " + task.id());
+            taskEndBatcher.addMessageRefs(task.id(), settled.successes());
+          }
+          settled
+              .failures()
+              .forEach(
+                  throwable ->
+                      logger.warn("Failed to notify a user of task " + task.id(), throwable));
+          return settled.allSucceeded();
+        });
   }
 }
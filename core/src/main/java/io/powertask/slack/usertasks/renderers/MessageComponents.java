@@ -21,6 +21,7 @@ import com.slack.api.model.block.composition.MarkdownTextObject;
 import com.slack.api.model.block.composition.TextObject;
 import io.powertask.slack.TaskLike;
 import io.powertask.slack.TaskService;
+import io.powertask.slack.VariableSummary;
 import io.powertask.slack.usertasks.Task;
 import io.vavr.Tuple;
 import io.vavr.Tuple2;
@@ -34,6 +35,9 @@ import java.util.stream.Stream;
 
 public class MessageComponents {
 
+  // Slack allows 2000 characters per section field, which includes the variable name.
+  static final int MAX_VARIABLE_LENGTH = 1000;
+
   public static List<LayoutBlock> getErrorBlocks(Task task) {
     return task.errorMessage()
         .map(
@@ -58,12 +62,13 @@ public class MessageComponents {
     return task.showVariables()
         .map(
             variableNames -> {
-              Stream<Tuple2<String, Object>> variables =
+              Stream<Tuple2<String, VariableSummary>> variables =
                   variableNames
                       .map(
                           names -> {
-                            Map<String, Object> unsorted =
-                                taskService.getVariables(task.id(), new HashSet<>(names));
+                            Map<String, VariableSummary> unsorted =
+                                taskService.getVariableSummaries(
+                                    task.id(), new HashSet<>(names), MAX_VARIABLE_LENGTH);
 
                             return names.stream()
                                 .flatMap(
@@ -74,7 +79,8 @@ public class MessageComponents {
                           })
                       .orElseGet(
                           () ->
-                              taskService.getVariables(task.id()).entrySet().stream()
+                              taskService.getVariableSummaries(task.id(), MAX_VARIABLE_LENGTH)
+                                  .entrySet().stream()
                                   .map(e -> Tuple.of(e.getKey(), e.getValue())));
 
               List<TextObject> fields =
@@ -82,7 +88,7 @@ public class MessageComponents {
                       .map(
                           tuple ->
                               MarkdownTextObject.builder()
-                                  .text("*" + tuple._1() + ":*\n" + tuple._2())
+                                  .text("*" + tuple._1() + ":*\n" + tuple._2().displayText())
                                   .build())
                       .collect(Collectors.toList());
 
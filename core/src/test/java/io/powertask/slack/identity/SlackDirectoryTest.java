@@ -0,0 +1,95 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.identity;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.slack.api.model.User;
+import io.powertask.slack.scheduling.SlackPager;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+class SlackDirectoryTest {
+
+  private static User user(String id, String email, boolean deleted) {
+    User.Profile profile = new User.Profile();
+    profile.setEmail(email);
+    User user = new User();
+    user.setId(id);
+    user.setDeleted(deleted);
+    user.setProfile(profile);
+    return user;
+  }
+
+  @Test
+  void looksUpEmailsCaseInsensitively() {
+    SlackDirectory directory = new SlackDirectory(null);
+    directory.update(user("U1", "Alice@Example.com", false));
+
+    assertEquals(Optional.of("U1"), directory.slackUserId("alice@example.com"));
+    assertEquals(Optional.of("Alice@Example.com"), directory.email("U1"));
+  }
+
+  @Test
+  void changedEmailReplacesOldOne() {
+    SlackDirectory directory = new SlackDirectory(null);
+    directory.update(user("U1", "alice@example.com", false));
+    directory.update(user("U1", "alice@example.org", false));
+
+    assertFalse(directory.slackUserId("alice@example.com").isPresent());
+    assertEquals(Optional.of("U1"), directory.slackUserId("alice@example.org"));
+    assertEquals(1, directory.size());
+  }
+
+  @Test
+  void deactivatedUserIsRemoved() {
+    SlackDirectory directory = new SlackDirectory(null);
+    directory.update(user("U1", "alice@example.com", false));
+    directory.update(user("U1", "alice@example.com", true));
+
+    assertFalse(directory.slackUserId("alice@example.com").isPresent());
+    assertFalse(directory.email("U1").isPresent());
+  }
+
+  @Test
+  void loadKeepsChangesMadeWhileLoading() {
+    CompletableFuture<List<User>> users = new CompletableFuture<>();
+    SlackDirectory directory =
+        new SlackDirectory(
+            new SlackPager(null, null, null) {
+              @Override
+              public CompletableFuture<List<User>> users() {
+                return users;
+              }
+            });
+    directory.update(user("U1", "alice@example.com", false));
+    directory.update(user("U2", "bob@example.com", false));
+
+    CompletableFuture<Void> loaded = directory.load();
+    directory.update(user("U1", "alice@example.org", false));
+    users.complete(
+        Arrays.asList(
+            user("U1", "alice@example.com", false), user("U3", "carol@example.com", false)));
+
+    assertTrue(loaded.isDone());
+    assertEquals(Optional.of("alice@example.org"), directory.email("U1"));
+    assertFalse(directory.email("U2").isPresent());
+    assertEquals(Optional.of("U3"), directory.slackUserId("carol@example.com"));
+  }
+}
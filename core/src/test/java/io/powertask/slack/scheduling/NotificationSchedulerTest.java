@@ -0,0 +1,171 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.slack.api.methods.Methods;
+import com.slack.api.methods.SlackApiException;
+import io.powertask.slack.scheduling.NotificationScheduler.OverflowPolicy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class NotificationSchedulerTest {
+
+  private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private NotificationScheduler scheduler;
+
+  @AfterEach
+  void close() {
+    scheduler.close();
+  }
+
+  private static CompletionStage<Long> startedAt() {
+    return CompletableFuture.completedFuture(System.nanoTime());
+  }
+
+  private static <T> CompletionStage<T> rateLimited(String retryAfter) {
+    Response response =
+        new Response.Builder()
+            .request(new Request.Builder().url("https://slack.com/api/chat.postMessage").build())
+            .protocol(Protocol.HTTP_1_1)
+            .code(429)
+            .message("Too Many Requests")
+            .header("Retry-After", retryAfter)
+            .build();
+    CompletableFuture<T> failed = new CompletableFuture<>();
+    failed.completeExceptionally(new SlackApiException(response, ""));
+    return failed;
+  }
+
+  @Test
+  void pacesCallsToAChannel() throws Exception {
+    scheduler = new NotificationScheduler(10, OverflowPolicy.REJECT, 0);
+    long start = System.nanoTime();
+
+    // A channel allows a burst of 3, and then one call per second.
+    CompletableFuture<Long> third = null;
+    for (int i = 0; i < 3; i++) {
+      third =
+          scheduler
+              .schedule(Methods.CHAT_POST_MESSAGE, "C1", NotificationSchedulerTest::startedAt)
+              .toCompletableFuture();
+    }
+    CompletableFuture<Long> fourth =
+        scheduler
+            .schedule(Methods.CHAT_POST_MESSAGE, "C1", NotificationSchedulerTest::startedAt)
+            .toCompletableFuture();
+
+    assertTrue(third.get() - start < 500 * MILLI);
+    assertTrue(fourth.get() - start >= 900 * MILLI);
+  }
+
+  @Test
+  void retriesAfterRateLimitAndPausesTheMethod() throws Exception {
+    scheduler = new NotificationScheduler(10, OverflowPolicy.REJECT, 3);
+    AtomicInteger attempts = new AtomicInteger();
+    long start = System.nanoTime();
+
+    CompletableFuture<Long> retried =
+        scheduler
+            .schedule(
+                Methods.CHAT_POST_MESSAGE,
+                "C1",
+                () -> attempts.incrementAndGet() == 1 ? rateLimited("1") : startedAt())
+            .toCompletableFuture();
+    // Wait for the first attempt, so the pause is in place.
+    while (attempts.get() == 0) {
+      Thread.sleep(5);
+    }
+    Thread.sleep(50);
+    CompletableFuture<Long> otherChannel =
+        scheduler
+            .schedule(Methods.CHAT_POST_MESSAGE, "C2", NotificationSchedulerTest::startedAt)
+            .toCompletableFuture();
+
+    assertTrue(retried.get() - start >= 900 * MILLI);
+    assertEquals(2, attempts.get());
+    assertTrue(otherChannel.get() - start >= 900 * MILLI);
+  }
+
+  @Test
+  void givesUpAfterMaxRetries() {
+    scheduler = new NotificationScheduler(10, OverflowPolicy.REJECT, 0);
+
+    ExecutionException e =
+        assertThrows(
+            ExecutionException.class,
+            () ->
+                scheduler
+                    .schedule(Methods.CHAT_POST_MESSAGE, "C1", () -> rateLimited("1"))
+                    .toCompletableFuture()
+                    .get());
+    assertTrue(e.getCause() instanceof SlackApiException);
+  }
+
+  @Test
+  void rejectsNewCallsWhenFull() throws Exception {
+    scheduler = new NotificationScheduler(1, OverflowPolicy.REJECT, 0);
+    CompletableFuture<Long> waiting = fillQueue();
+
+    CompletableFuture<Long> rejected =
+        scheduler
+            .schedule(Methods.CHAT_POST_MESSAGE, "C1", NotificationSchedulerTest::startedAt)
+            .toCompletableFuture();
+
+    ExecutionException e = assertThrows(ExecutionException.class, rejected::get);
+    assertTrue(e.getCause() instanceof RejectedExecutionException);
+    waiting.get();
+  }
+
+  @Test
+  void dropsOldestCallWhenFull() throws Exception {
+    scheduler = new NotificationScheduler(1, OverflowPolicy.DROP_OLDEST, 0);
+    CompletableFuture<Long> dropped = fillQueue();
+
+    CompletableFuture<Long> accepted =
+        scheduler
+            .schedule(Methods.CHAT_POST_MESSAGE, "C1", NotificationSchedulerTest::startedAt)
+            .toCompletableFuture();
+
+    ExecutionException e = assertThrows(ExecutionException.class, dropped::get);
+    assertTrue(e.getCause() instanceof RejectedExecutionException);
+    accepted.get();
+  }
+
+  // Uses up the burst of a channel, and returns a call that's waiting for its token.
+  private CompletableFuture<Long> fillQueue() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      scheduler
+          .schedule(Methods.CHAT_POST_MESSAGE, "C1", NotificationSchedulerTest::startedAt)
+          .toCompletableFuture()
+          .get();
+    }
+    return scheduler
+        .schedule(Methods.CHAT_POST_MESSAGE, "C1", NotificationSchedulerTest::startedAt)
+        .toCompletableFuture();
+  }
+}
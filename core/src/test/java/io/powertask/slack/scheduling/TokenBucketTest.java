@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  void burstIsAvailableImmediately() {
+    TokenBucket bucket = new TokenBucket(2, 1, 0);
+
+    assertEquals(0, bucket.reserve(0));
+    assertEquals(0, bucket.reserve(0));
+    assertEquals(SECOND, bucket.reserve(0));
+    assertEquals(2 * SECOND, bucket.reserve(0));
+  }
+
+  @Test
+  void refillsOverTime() {
+    TokenBucket bucket = new TokenBucket(1, 1, 0);
+
+    assertEquals(0, bucket.reserve(0));
+    assertEquals(SECOND / 2, bucket.reserve(SECOND / 2));
+    assertEquals(0, bucket.reserve(10 * SECOND));
+  }
+
+  @Test
+  void pausePushesBackReservations() {
+    TokenBucket bucket = new TokenBucket(5, 1, 0);
+
+    bucket.pause(0, Duration.ofSeconds(30));
+
+    assertEquals(30 * SECOND, bucket.pausedFor(0));
+    assertEquals(31 * SECOND, bucket.reserve(0));
+    assertEquals(0, bucket.pausedFor(30 * SECOND));
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.usertasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class FollowUpTaskWaiterTest {
+
+  private static Task task(String id, String processInstanceId, String root, String assignee) {
+    return ImmutableTask.builder()
+        .id(id)
+        .name(id)
+        .title(id)
+        .processDefinitionId("definition")
+        .processInstanceId(processInstanceId)
+        .rootProcessInstanceId(root)
+        .taskDefinitionKey(id)
+        .assignee(assignee)
+        .showVariables(Optional.empty())
+        .build();
+  }
+
+  @Test
+  void eventBeforeAwaitSkipsLookup() {
+    FollowUpTaskWaiter waiter = new FollowUpTaskWaiter(Duration.ofSeconds(1));
+    CompletableFuture<Task> future = waiter.expect("root", "alice");
+
+    waiter.offer(task("other", "root", "root", "bob"));
+    waiter.offer(task("next", "called", "root", "alice"));
+
+    Optional<Task> next =
+        waiter.await(
+            "root",
+            "alice",
+            future,
+            () -> {
+              throw new AssertionError("Should not look up existing tasks");
+            },
+            () -> true);
+    assertEquals("next", next.get().id());
+    assertEquals(0, waiter.waiting());
+  }
+
+  @Test
+  void eventAfterAwaitCompletesWithinWindow() {
+    FollowUpTaskWaiter waiter = new FollowUpTaskWaiter(Duration.ofSeconds(5));
+    CompletableFuture<Task> future = waiter.expect("root", "alice");
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    try {
+      executor.schedule(
+          () -> waiter.offer(task("async", "root", "root", "alice")), 50, TimeUnit.MILLISECONDS);
+
+      assertEquals(
+          "async", waiter.await("root", "alice", future, Optional::empty, () -> true).get().id());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void givesUpAfterWindow() {
+    FollowUpTaskWaiter waiter = new FollowUpTaskWaiter(Duration.ofMillis(20));
+    CompletableFuture<Task> future = waiter.expect("root", "alice");
+
+    assertFalse(waiter.await("root", "alice", future, Optional::empty, () -> true).isPresent());
+    assertEquals(0, waiter.waiting());
+  }
+
+  @Test
+  void doesNotWaitWithoutPendingJobs() {
+    FollowUpTaskWaiter waiter = new FollowUpTaskWaiter(Duration.ofSeconds(30));
+    CompletableFuture<Task> future = waiter.expect("root", "alice");
+
+    long start = System.nanoTime();
+    assertFalse(waiter.await("root", "alice", future, Optional::empty, () -> false).isPresent());
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    assertEquals(0, waiter.waiting());
+  }
+
+  @Test
+  void concurrentSubmissionsHaveTheirOwnWaiters() {
+    FollowUpTaskWaiter waiter = new FollowUpTaskWaiter(Duration.ofSeconds(1));
+    CompletableFuture<Task> first = waiter.expect("root", "alice");
+    CompletableFuture<Task> second = waiter.expect("root", "alice");
+
+    waiter.cancel("root", "alice", first);
+    waiter.offer(task("next", "root", "root", "alice"));
+
+    assertFalse(first.isDone());
+    assertEquals("next", second.join().id());
+    assertEquals(0, waiter.waiting());
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.usertasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.slack.api.RequestConfigurator;
+import com.slack.api.methods.AsyncMethodsClient;
+import com.slack.api.methods.request.chat.ChatUpdateRequest;
+import com.slack.api.methods.response.chat.ChatUpdateResponse;
+import io.powertask.slack.ImmutableMessageRef;
+import io.powertask.slack.MessageRef;
+import io.powertask.slack.messagerefs.InMemoryMessageRefStore;
+import io.powertask.slack.scheduling.NotificationScheduler;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TaskEndBatcherTest {
+
+  private final List<String> updatedTs = new CopyOnWriteArrayList<>();
+  private final InMemoryMessageRefStore store = new InMemoryMessageRefStore();
+  private final NotificationScheduler scheduler = new NotificationScheduler();
+  private final TaskEndBatcher batcher =
+      new TaskEndBatcher(client(), scheduler, store, Duration.ofMillis(20));
+
+  @AfterEach
+  void close() {
+    batcher.close();
+    scheduler.close();
+  }
+
+  @SuppressWarnings("unchecked")
+  private AsyncMethodsClient client() {
+    return (AsyncMethodsClient)
+        Proxy.newProxyInstance(
+            getClass().getClassLoader(),
+            new Class<?>[] {AsyncMethodsClient.class},
+            (proxy, method, args) -> {
+              if (!method.getName().equals("chatUpdate")
+                  || !(args[0] instanceof RequestConfigurator)) {
+                throw new UnsupportedOperationException(method.getName());
+              }
+              ChatUpdateRequest request =
+                  ((RequestConfigurator<ChatUpdateRequest.ChatUpdateRequestBuilder>) args[0])
+                      .configure(ChatUpdateRequest.builder())
+                      .build();
+              updatedTs.add(request.getTs());
+              ChatUpdateResponse response = new ChatUpdateResponse();
+              response.setOk(true);
+              return CompletableFuture.completedFuture(response);
+            });
+  }
+
+  private static List<MessageRef> ref(String ts) {
+    return Collections.singletonList(ImmutableMessageRef.builder().channel("D1").ts(ts).build());
+  }
+
+  private void awaitUpdates(int count) throws InterruptedException {
+    for (int i = 0; i < 200 && updatedTs.size() < count; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(count, updatedTs.size());
+  }
+
+  @Test
+  void updatesStoredMessagesAfterTheWindow() throws InterruptedException {
+    store.add("t1", ref("1"));
+    batcher.add("p1", "t1", "done");
+
+    awaitUpdates(1);
+    assertTrue(store.get("t1").isEmpty());
+  }
+
+  @Test
+  void updatesRefsThatArriveAfterTheTaskEnded() throws InterruptedException {
+    batcher.add("p1", "t1", "done");
+    awaitUpdates(0);
+    Thread.sleep(100);
+
+    batcher.addMessageRefs("t1", ref("late"));
+
+    awaitUpdates(1);
+    assertEquals("late", updatedTs.get(0));
+    assertTrue(store.get("t1").isEmpty());
+  }
+
+  @Test
+  void storesRefsOfOpenTasks() {
+    batcher.addMessageRefs("t1", ref("1"));
+
+    assertEquals(ref("1"), store.get("t1"));
+    assertTrue(updatedTs.isEmpty());
+  }
+
+  @Test
+  void closeFlushesPendingBatches() throws InterruptedException {
+    TaskEndBatcher slow = new TaskEndBatcher(client(), scheduler, store, Duration.ofMinutes(1));
+    store.add("t1", ref("1"));
+    slow.add("p1", "t1", "done");
+
+    slow.close();
+
+    awaitUpdates(1);
+  }
+}
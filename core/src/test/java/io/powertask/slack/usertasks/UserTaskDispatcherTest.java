@@ -0,0 +1,266 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.usertasks;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.slack.api.RequestConfigurator;
+import com.slack.api.bolt.App;
+import com.slack.api.bolt.AppConfig;
+import com.slack.api.methods.AsyncMethodsClient;
+import com.slack.api.methods.request.chat.ChatPostMessageRequest;
+import com.slack.api.methods.request.chat.ChatUpdateRequest;
+import com.slack.api.methods.response.chat.ChatPostMessageResponse;
+import com.slack.api.methods.response.chat.ChatUpdateResponse;
+import com.slack.api.model.Message;
+import io.powertask.slack.Form;
+import io.powertask.slack.FormService;
+import io.powertask.slack.MessageRef;
+import io.powertask.slack.TaskService;
+import io.powertask.slack.identity.GroupChannelResolver;
+import io.powertask.slack.identity.UserResolver;
+import io.powertask.slack.messagerefs.InMemoryMessageRefStore;
+import io.powertask.slack.scheduling.NotificationScheduler;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class UserTaskDispatcherTest {
+
+  private static final Form FORM = Collections::emptyList;
+
+  // The channels that messages were posted to, and the ts of updated messages.
+  private final List<String> posted = new CopyOnWriteArrayList<>();
+  private final List<String> updated = new CopyOnWriteArrayList<>();
+  private final AtomicInteger messageCount = new AtomicInteger();
+  private final AtomicInteger failingPosts = new AtomicInteger();
+
+  private final Map<String, Form> forms = new ConcurrentHashMap<>();
+  private final NotificationScheduler scheduler = new NotificationScheduler();
+  private final InMemoryMessageRefStore messageRefStore = new InMemoryMessageRefStore();
+  private final TaskEndBatcher taskEndBatcher =
+      new TaskEndBatcher(client(), scheduler, messageRefStore, Duration.ofMillis(10));
+  private final UserTaskDispatcher dispatcher =
+      new UserTaskDispatcher(
+          client(),
+          new PrefixUserResolver(),
+          app(),
+          unsupported(TaskService.class),
+          formService(),
+          scheduler,
+          messageRefStore,
+          GroupChannelResolver.NONE,
+          new FollowUpTaskWaiter(),
+          taskEndBatcher);
+
+  @AfterEach
+  void close() {
+    taskEndBatcher.close();
+    scheduler.close();
+  }
+
+  private static class PrefixUserResolver implements UserResolver {
+    @Override
+    public String toSlackUserId(String engineUserId) {
+      return "S-" + engineUserId;
+    }
+
+    @Override
+    public String toEngineUserId(String slackUserId) {
+      return slackUserId.substring(2);
+    }
+  }
+
+  private static App app() {
+    AppConfig config = new AppConfig();
+    config.setSigningSecret("secret");
+    config.setSingleTeamBotToken("xoxb-test");
+    return new App(config);
+  }
+
+  private static <T> T unsupported(Class<T> type) {
+    return type.cast(
+        Proxy.newProxyInstance(
+            UserTaskDispatcherTest.class.getClassLoader(),
+            new Class<?>[] {type},
+            (proxy, method, args) -> {
+              throw new UnsupportedOperationException(method.getName());
+            }));
+  }
+
+  private FormService formService() {
+    return new FormService() {
+      @Override
+      public Optional<Form> taskForm(String taskId) {
+        return Optional.ofNullable(forms.get(taskId));
+      }
+
+      @Override
+      public Optional<Form> startForm(String processDefinitionId) {
+        return Optional.empty();
+      }
+
+      @Override
+      public void submitTaskForm(String taskId, Map<String, Object> variables) {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private AsyncMethodsClient client() {
+    return (AsyncMethodsClient)
+        Proxy.newProxyInstance(
+            getClass().getClassLoader(),
+            new Class<?>[] {AsyncMethodsClient.class},
+            (proxy, method, args) -> {
+              if (method.getName().equals("chatPostMessage")
+                  && args[0] instanceof RequestConfigurator) {
+                ChatPostMessageRequest request =
+                    ((RequestConfigurator<ChatPostMessageRequest.ChatPostMessageRequestBuilder>)
+                            args[0])
+                        .configure(ChatPostMessageRequest.builder())
+                        .build();
+                posted.add(request.getChannel());
+                if (failingPosts.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                  CompletableFuture<ChatPostMessageResponse> failed = new CompletableFuture<>();
+                  failed.completeExceptionally(new IOException("BOOM!"));
+                  return failed;
+                }
+                Message message = new Message();
+                message.setTs(String.valueOf(messageCount.incrementAndGet()));
+                ChatPostMessageResponse response = new ChatPostMessageResponse();
+                response.setOk(true);
+                response.setChannel(request.getChannel());
+                response.setMessage(message);
+                return CompletableFuture.completedFuture(response);
+              } else if (method.getName().equals("chatUpdate")
+                  && args[0] instanceof RequestConfigurator) {
+                ChatUpdateRequest request =
+                    ((RequestConfigurator<ChatUpdateRequest.ChatUpdateRequestBuilder>) args[0])
+                        .configure(ChatUpdateRequest.builder())
+                        .build();
+                updated.add(request.getTs());
+                ChatUpdateResponse response = new ChatUpdateResponse();
+                response.setOk(true);
+                return CompletableFuture.completedFuture(response);
+              }
+              throw new UnsupportedOperationException(method.getName());
+            });
+  }
+
+  private static Task task(String id, String assignee) {
+    return ImmutableTask.builder()
+        .id(id)
+        .name(id)
+        .title(id)
+        .processDefinitionId("definition")
+        .processInstanceId("instance")
+        .taskDefinitionKey("review")
+        .assignee(Optional.ofNullable(assignee))
+        .showVariables(Optional.empty())
+        .build();
+  }
+
+  private static void await(List<String> calls, int count) throws InterruptedException {
+    for (int i = 0; i < 200 && calls.size() < count; i++) {
+      Thread.sleep(10);
+    }
+    // Give calls that shouldn't happen a chance to show up.
+    Thread.sleep(50);
+    assertEquals(count, calls.size(), calls.toString());
+  }
+
+  @Test
+  void missingFormDoesNotSkipLaterTasksOfTheDefinition() throws InterruptedException {
+    // The first task is already gone when it's dispatched, so it has no form.
+    dispatcher.notifyTaskAssignment(task("gone", "alice"));
+    await(posted, 0);
+
+    forms.put("open", FORM);
+    dispatcher.notifyTaskAssignment(task("open", "alice"));
+    await(posted, 1);
+  }
+
+  @Test
+  void repeatedAssignmentIsAnnouncedOnce() throws InterruptedException {
+    forms.put("task", FORM);
+    dispatcher.notifyTaskAssignment(task("task", "alice"));
+    await(posted, 1);
+
+    dispatcher.notifyTaskAssignment(task("task", "alice"));
+    await(posted, 1);
+    assertEquals(0, updated.size());
+  }
+
+  @Test
+  void failedAnnouncementIsRetriedOnNextAssignment() throws InterruptedException {
+    forms.put("task", FORM);
+    failingPosts.set(1);
+    dispatcher.notifyTaskAssignment(task("task", "alice"));
+    await(posted, 1);
+
+    dispatcher.notifyTaskAssignment(task("task", "alice"));
+    await(posted, 2);
+    assertEquals(
+        Collections.singletonList("S-alice"),
+        messageRefStore.get("task").stream().map(MessageRef::channel).collect(Collectors.toList()));
+  }
+
+  @Test
+  void legacyMessageRefsAreUpdatedWhenTheTaskEnds() throws InterruptedException {
+    dispatcher.restoreLegacyMessageRefs("task", "[{\"channel\":\"D1\",\"ts\":\"42\"}]");
+    dispatcher.notifyTaskCompletion(task("task", "alice"));
+
+    await(updated, 1);
+    assertEquals(Collections.singletonList("42"), updated);
+  }
+
+  @Test
+  void reclaimBySameUserKeepsTheirMessage() throws InterruptedException {
+    forms.put("task", FORM);
+    dispatcher.notifyTaskAssignment(task("task", "alice"));
+    await(posted, 1);
+
+    dispatcher.notifyTaskAssignment(task("task", null));
+    dispatcher.notifyTaskAssignment(task("task", "alice"));
+    await(posted, 1);
+    assertEquals(0, updated.size());
+  }
+
+  @Test
+  void reassignmentUpdatesThePreviousAssigneesMessage() throws InterruptedException {
+    forms.put("task", FORM);
+    dispatcher.notifyTaskAssignment(task("task", "alice"));
+    await(posted, 1);
+
+    dispatcher.notifyTaskAssignment(task("task", "bob"));
+    await(posted, 2);
+    await(updated, 1);
+    assertEquals(Arrays.asList("S-alice", "S-bob"), posted);
+    assertEquals(Collections.singletonList("1"), updated);
+  }
+}
@@ -14,30 +14,47 @@
 package io.powertask.slack.camunda.spring;
 
 import com.slack.api.methods.MethodsClient;
+import io.powertask.slack.SlackEvents;
+import io.powertask.slack.StripedExecutor;
 import io.powertask.slack.camunda.CamundaFormService;
 import io.powertask.slack.camunda.CamundaProcessService;
 import io.powertask.slack.camunda.CamundaTaskService;
 import io.powertask.slack.camunda.PropertiesResolver;
+import io.powertask.slack.camunda.TaskCache;
 import io.powertask.slack.camunda.TaskMapper;
 import io.powertask.slack.camunda.identitysync.IdentitySync;
+import io.powertask.slack.camunda.identitysync.SyncedGroupChannelResolver;
+import io.powertask.slack.camunda.plugin.DefinitionChangePlugin;
+import io.powertask.slack.camunda.plugin.ListenerActivation;
 import io.powertask.slack.camunda.plugin.TaskListenerPlugin;
 import io.powertask.slack.camunda.plugin.UserTaskDispatcherListener;
+import io.powertask.slack.camunda.spring.config.ActivationProperties;
+import io.powertask.slack.camunda.spring.config.DispatcherProperties;
+import io.powertask.slack.camunda.spring.config.DispatcherProperties.DispatchMode;
 import io.powertask.slack.camunda.spring.config.IdentitySyncProperties;
+import io.powertask.slack.identity.GroupChannelResolver;
+import io.powertask.slack.scheduling.NotificationScheduler;
 import io.powertask.slack.usertasks.UserTaskDispatcher;
 import org.camunda.bpm.engine.FormService;
 import org.camunda.bpm.engine.IdentityService;
 import org.camunda.bpm.engine.ProcessEngine;
 import org.camunda.bpm.engine.RepositoryService;
 import org.camunda.bpm.engine.RuntimeService;
-import org.camunda.bpm.engine.TaskService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
 @Configuration
-@EnableConfigurationProperties(IdentitySyncProperties.class)
+@EnableConfigurationProperties({
+  IdentitySyncProperties.class,
+  DispatcherProperties.class,
+  ActivationProperties.class
+})
 public class CamundaAdapterAutoConfiguration {
 
   static final String POWERTASK_CAMUNDA_IDENTITY_SYNC_ENABLED =
@@ -45,19 +62,62 @@ public class CamundaAdapterAutoConfiguration {
 
   @Bean
   // TODO, should this be conditional / configurable?
-  TaskListenerPlugin taskListenerPlugin() {
-    return new TaskListenerPlugin();
+  TaskListenerPlugin taskListenerPlugin(ActivationProperties properties, TaskCache taskCache) {
+    return new TaskListenerPlugin(
+        new ListenerActivation(
+            properties.isEnabledByDefault(),
+            properties.getIncludeProcessKeys(),
+            properties.getExcludeProcessKeys()),
+        taskCache);
   }
 
   @Bean
-  PropertiesResolver propertiesResolver(RepositoryService repositoryService) {
-    return new PropertiesResolver(repositoryService);
+  TaskCache taskCache(DefinitionChangePlugin definitionChangePlugin) {
+    TaskCache taskCache = new TaskCache();
+    // Deleting a deployment may remove tasks without firing their listeners.
+    definitionChangePlugin.addRemovalListener(taskCache::invalidateAll);
+    return taskCache;
+  }
+
+  @Bean
+  DefinitionChangePlugin definitionChangePlugin() {
+    return new DefinitionChangePlugin();
+  }
+
+  @Bean
+  PropertiesResolver propertiesResolver(
+      RepositoryService repositoryService, DefinitionChangePlugin definitionChangePlugin) {
+    PropertiesResolver propertiesResolver = new PropertiesResolver(repositoryService);
+    definitionChangePlugin.addRemovalListener(propertiesResolver::evictAll);
+    return propertiesResolver;
   }
 
   @Bean(name = "powertaskListener")
   UserTaskDispatcherListener userTaskDispatcherListener(
-      UserTaskDispatcher userTaskDispatcher, TaskMapper taskMapper) {
-    return new UserTaskDispatcherListener(taskMapper, userTaskDispatcher);
+      UserTaskDispatcher userTaskDispatcher,
+      TaskMapper taskMapper,
+      DispatcherProperties properties,
+      @Qualifier("powertaskDispatchExecutor") ObjectProvider<StripedExecutor> executor,
+      TaskListenerPlugin taskListenerPlugin) {
+    UserTaskDispatcherListener listener;
+    if (properties.getMode() == DispatchMode.POST_COMMIT) {
+      listener =
+          new UserTaskDispatcherListener(taskMapper, userTaskDispatcher, executor.getObject());
+    } else {
+      listener = new UserTaskDispatcherListener(taskMapper, userTaskDispatcher);
+    }
+    taskListenerPlugin.setTaskListener(listener);
+    return listener;
+  }
+
+  // Only instantiated when the dispatcher runs in POST_COMMIT mode.
+  @Lazy
+  @Bean(destroyMethod = "shutdown")
+  StripedExecutor powertaskDispatchExecutor(DispatcherProperties properties) {
+    // When a queue is full, new events are rejected, and counted and logged by the listener; the
+    // committing engine thread never does the Slack work itself.
+    return new StripedExecutor(
+        properties.getThreads(), properties.getQueueCapacity(), "powertask-dispatch-");
   }
 
   @Bean
@@ -66,21 +126,31 @@ public class CamundaAdapterAutoConfiguration {
   }
 
   @Bean
-  CamundaTaskService camundaTaskService(TaskService taskService, TaskMapper taskMapper) {
-    return new CamundaTaskService(taskService, taskMapper);
+  CamundaTaskService camundaTaskService(
+      ProcessEngine processEngine, TaskMapper taskMapper, TaskCache taskCache) {
+    return new CamundaTaskService(processEngine, taskMapper, taskCache);
   }
 
   @Bean
   CamundaProcessService camundaProcessService(
       ProcessEngine processEngine,
       CamundaFormService formService,
-      PropertiesResolver propertiesResolver) {
-    return new CamundaProcessService(processEngine, formService, propertiesResolver);
+      PropertiesResolver propertiesResolver,
+      DefinitionChangePlugin definitionChangePlugin) {
+    CamundaProcessService processService =
+        new CamundaProcessService(processEngine, formService, propertiesResolver);
+    definitionChangePlugin.addRemovalListener(processService::evictAll);
+    definitionChangePlugin.addChangeListener(processService::evictStartableProcesses);
+    return processService;
   }
 
   @Bean
-  CamundaFormService camundaFormService(FormService formService) {
-    return new CamundaFormService(formService);
+  CamundaFormService camundaFormService(
+      FormService formService, DefinitionChangePlugin definitionChangePlugin, TaskCache taskCache) {
+    CamundaFormService camundaFormService =
+        new CamundaFormService(formService, CamundaFormService.DEFAULT_MAX_SCHEMAS, taskCache);
+    definitionChangePlugin.addRemovalListener(camundaFormService::evictAll);
+    return camundaFormService;
   }
 
   @Bean
@@ -91,7 +161,24 @@ public class CamundaAdapterAutoConfiguration {
   public IdentitySync identitySync(
       IdentitySyncProperties properties,
       MethodsClient methodsClient,
-      IdentityService identityService) {
-    return new IdentitySync(properties, methodsClient, identityService);
+      NotificationScheduler notificationScheduler,
+      IdentityService identityService,
+      SlackEvents slackEvents) {
+    IdentitySync identitySync =
+        new IdentitySync(properties, methodsClient, notificationScheduler, identityService);
+    if (properties.isIncremental()) {
+      identitySync.subscribe(slackEvents);
+    }
+    return identitySync;
+  }
+
+  @Bean
+  @ConditionalOnProperty(
+      value = POWERTASK_CAMUNDA_IDENTITY_SYNC_ENABLED,
+      havingValue = "true",
+      matchIfMissing = true)
+  GroupChannelResolver groupChannelResolver(
+      IdentitySyncProperties properties, IdentityService identityService) {
+    return new SyncedGroupChannelResolver(properties, identityService);
   }
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.camunda.spring.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Lazy;
+
+@Lazy
+@ConfigurationProperties(prefix = "powertask.slack.camunda.dispatcher")
+@Data
+public class DispatcherProperties {
+
+  public enum DispatchMode {
+    // Notify Slack from within the engine transaction that triggered the task event.
+    INLINE,
+    // Notify Slack from a separate thread pool, after the engine transaction committed. The events
+    // of one task are handled in order, by the same thread.
+    POST_COMMIT
+  }
+
+  public DispatchMode mode = DispatchMode.INLINE;
+  public int threads = 4;
+  // Shared out over the threads.
+  public int queueCapacity = 1000;
+}
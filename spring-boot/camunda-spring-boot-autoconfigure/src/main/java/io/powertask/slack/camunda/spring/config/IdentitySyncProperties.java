@@ -28,4 +28,7 @@ public class IdentitySyncProperties implements IdentitySyncConfiguration {
   public Duration syncInterval = Duration.ofHours(1);
   public AdminMode adminMode = AdminMode.SLACK_ADMIN;
   public String adminGroupId;
+  public boolean incremental = false;
+  public Duration reconciliationInterval = Duration.ofDays(1);
+  public int fetchConcurrency = 4;
 }
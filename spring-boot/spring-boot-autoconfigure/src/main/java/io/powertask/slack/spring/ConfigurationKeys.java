@@ -17,9 +17,15 @@ public class ConfigurationKeys {
   // TODO, rename this.
   public static final String POWERTASK_SERVICETASKS_SLACKSERVICE_ENABLED =
       "powertask.servicetasks.slackservice.enabled";
+  public static final String POWERTASK_ENGINE_USERRESOLVER = "powertask.engine.userresolver";
   public static final String POWERTASK_ENGINE_USERRESOLVER_USER_ID_TYPE =
-      "powertask.engine.userresolver.user-id-type";
-  public static final String POWERTASK_APP_HOME_ENABLED = "powertask.slack.app-home.enabled";
+      POWERTASK_ENGINE_USERRESOLVER + ".user-id-type";
+  public static final String POWERTASK_APP_HOME = "powertask.slack.app-home";
+  public static final String POWERTASK_APP_HOME_ENABLED = POWERTASK_APP_HOME + ".enabled";
+  public static final String POWERTASK_NOTIFICATIONS = "powertask.slack.notifications";
+  public static final String POWERTASK_USER_TASKS = "powertask.slack.user-tasks";
+  public static final String POWERTASK_RESILIENCE = "powertask.slack.resilience";
+  public static final String POWERTASK_MESSAGE_REFS = "powertask.slack.message-refs";
 
   public static final String SLACK_BOLT = "slack.bolt";
   public static final String SLACK = "slack";
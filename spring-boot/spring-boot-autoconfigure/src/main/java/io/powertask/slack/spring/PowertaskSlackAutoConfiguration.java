@@ -22,25 +22,55 @@ import com.slack.api.bolt.servlet.SlackAppServlet;
 import com.slack.api.methods.AsyncMethodsClient;
 import com.slack.api.methods.MethodsClient;
 import io.powertask.slack.FormService;
+import io.powertask.slack.MessageRefStore;
 import io.powertask.slack.ProcessService;
+import io.powertask.slack.SlackEvents;
 import io.powertask.slack.TaskService;
 import io.powertask.slack.apphome.AppHome;
 import io.powertask.slack.apphome.ProcessDispatcher;
 import io.powertask.slack.identity.CachingResolver;
+import io.powertask.slack.identity.DirectoryUserResolver;
 import io.powertask.slack.identity.EmailUserResolver;
+import io.powertask.slack.identity.GroupChannelResolver;
+import io.powertask.slack.identity.SlackDirectory;
 import io.powertask.slack.identity.SlackIdUserResolver;
 import io.powertask.slack.identity.UserResolver;
+import io.powertask.slack.messagerefs.InMemoryMessageRefStore;
+import io.powertask.slack.messagerefs.JdbcMessageRefStore;
+import io.powertask.slack.scheduling.NotificationScheduler;
+import io.powertask.slack.scheduling.SlackPager;
 import io.powertask.slack.servicetasks.SlackService;
+import io.powertask.slack.spring.config.AppHomeProperties;
+import io.powertask.slack.spring.config.MessageRefProperties;
+import io.powertask.slack.spring.config.NotificationProperties;
+import io.powertask.slack.spring.config.UserResolverProperties;
+import io.powertask.slack.spring.config.UserTaskProperties;
+import io.powertask.slack.usertasks.FollowUpTaskWaiter;
+import io.powertask.slack.usertasks.TaskEndBatcher;
 import io.powertask.slack.usertasks.UserTaskDispatcher;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.web.servlet.ServletRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 @Configuration
+@EnableConfigurationProperties({
+  NotificationProperties.class,
+  AppHomeProperties.class,
+  UserTaskProperties.class,
+  UserResolverProperties.class,
+  MessageRefProperties.class
+})
 @SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
 public class PowertaskSlackAutoConfiguration {
 
@@ -51,6 +81,12 @@ public class PowertaskSlackAutoConfiguration {
     logger.info("Auto-configuring Powertask Slack");
   }
 
+  @Bean
+  @ConditionalOnMissingBean(SlackEvents.class)
+  public SlackEvents slackEvents(App app) {
+    return new SlackEvents(app);
+  }
+
   @Bean
   @ConditionalOnMissingBean(UserTaskDispatcher.class)
   public UserTaskDispatcher userTaskDispatcher(
@@ -58,8 +94,64 @@ public class PowertaskSlackAutoConfiguration {
       UserResolver userResolver,
       App app,
       TaskService taskService,
-      FormService formService) {
-    return new UserTaskDispatcher(asyncMethodsClient, userResolver, app, taskService, formService);
+      FormService formService,
+      NotificationScheduler notificationScheduler,
+      MessageRefStore messageRefStore,
+      ObjectProvider<GroupChannelResolver> groupChannelResolver,
+      UserTaskProperties userTaskProperties,
+      TaskEndBatcher taskEndBatcher) {
+    return new UserTaskDispatcher(
+        asyncMethodsClient,
+        userResolver,
+        app,
+        taskService,
+        formService,
+        notificationScheduler,
+        messageRefStore,
+        groupChannelResolver.getIfAvailable(() -> GroupChannelResolver.NONE),
+        new FollowUpTaskWaiter(userTaskProperties.getFollowUpWindow()),
+        taskEndBatcher);
+  }
+
+  @Bean(destroyMethod = "close")
+  @ConditionalOnMissingBean(TaskEndBatcher.class)
+  public TaskEndBatcher taskEndBatcher(
+      AsyncMethodsClient asyncMethodsClient,
+      NotificationScheduler notificationScheduler,
+      MessageRefStore messageRefStore) {
+    return new TaskEndBatcher(
+        asyncMethodsClient, notificationScheduler, messageRefStore, TaskEndBatcher.DEFAULT_WINDOW);
+  }
+
+  @Bean
+  @ConditionalOnMissingBean(MessageRefStore.class)
+  public MessageRefStore messageRefStore(
+      MessageRefProperties messageRefProperties, ObjectProvider<DataSource> dataSource) {
+    if (messageRefProperties.getStore() == MessageRefProperties.Store.MEMORY) {
+      logger.info("Keeping Slack message refs in memory");
+      return new InMemoryMessageRefStore();
+    }
+    DataSource uniqueDataSource = dataSource.getIfUnique();
+    if (uniqueDataSource == null) {
+      throw new IllegalArgumentException(
+          ConfigurationKeys.POWERTASK_MESSAGE_REFS
+              + ".store is jdbc, but there is no unique DataSource");
+    }
+    JdbcMessageRefStore store = new JdbcMessageRefStore(uniqueDataSource);
+    if (messageRefProperties.isCreateTable()) {
+      store.createTableIfMissing();
+    }
+    return store;
+  }
+
+  @Bean(destroyMethod = "close")
+  @ConditionalOnMissingBean(NotificationScheduler.class)
+  public NotificationScheduler notificationScheduler(
+      NotificationProperties notificationProperties) {
+    return new NotificationScheduler(
+        notificationProperties.getQueueCapacity(),
+        notificationProperties.getOverflowPolicy(),
+        notificationProperties.getMaxRetries());
   }
 
   @Bean
@@ -82,8 +174,41 @@ public class PowertaskSlackAutoConfiguration {
   @Bean
   @ConditionalOnMissingBean(UserResolver.class)
   @ConditionalOnProperty(value = POWERTASK_ENGINE_USERRESOLVER_USER_ID_TYPE, havingValue = "email")
-  public UserResolver emailUserResolver(MethodsClient methodsClient) {
-    return new CachingResolver(new EmailUserResolver(methodsClient));
+  public UserResolver emailUserResolver(
+      MethodsClient methodsClient,
+      SlackEvents slackEvents,
+      NotificationScheduler notificationScheduler,
+      @Qualifier("powertaskDirectoryExecutor") ObjectProvider<ExecutorService> directoryExecutor,
+      UserResolverProperties userResolverProperties) {
+    UserResolver emailUserResolver = new CachingResolver(new EmailUserResolver(methodsClient));
+    if (!userResolverProperties.isPreloadDirectory()) {
+      return emailUserResolver;
+    }
+    SlackDirectory directory =
+        new SlackDirectory(
+            new SlackPager(methodsClient, notificationScheduler, directoryExecutor.getObject()));
+    directory.subscribe(slackEvents);
+    // Loading a large workspace can take minutes; users are looked up directly until then.
+    directory
+        .load()
+        .exceptionally(
+            e -> {
+              logger.warn("Failed to load the Slack directory, looking up users directly", e);
+              return null;
+            });
+    return new DirectoryUserResolver(directory, emailUserResolver);
+  }
+
+  // Runs the blocking users.list calls of the directory load, one at a time.
+  @Lazy
+  @Bean(destroyMethod = "shutdown")
+  ExecutorService powertaskDirectoryExecutor() {
+    return Executors.newSingleThreadExecutor(
+        runnable -> {
+          Thread thread = new Thread(runnable, "powertask-directory-load");
+          thread.setDaemon(true);
+          return thread;
+        });
   }
 
   @Bean
@@ -123,7 +248,14 @@ public class PowertaskSlackAutoConfiguration {
       ProcessService processService,
       TaskService taskService,
       UserResolver userResolver,
-      MethodsClient methodsClient) {
-    return new AppHome(app, processService, taskService, userResolver, methodsClient);
+      MethodsClient methodsClient,
+      AppHomeProperties appHomeProperties) {
+    return new AppHome(
+        app,
+        processService,
+        taskService,
+        userResolver,
+        methodsClient,
+        appHomeProperties.getMaxTasks());
   }
 }
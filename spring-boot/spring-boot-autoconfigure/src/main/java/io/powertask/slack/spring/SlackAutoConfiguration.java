@@ -18,14 +18,18 @@ import com.slack.api.SlackConfig;
 import com.slack.api.methods.AsyncMethodsClient;
 import com.slack.api.methods.MethodsClient;
 import com.slack.api.util.http.SlackHttpClient;
+import io.powertask.slack.SlackResilienceInterceptor;
+import io.powertask.slack.spring.config.ResilienceProperties;
 import io.powertask.slack.spring.config.SlackProperties;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 @Configuration
-@EnableConfigurationProperties(SlackProperties.class)
+@EnableConfigurationProperties({SlackProperties.class, ResilienceProperties.class})
 public class SlackAutoConfiguration {
 
   @Bean
@@ -47,8 +51,34 @@ public class SlackAutoConfiguration {
 
   @Bean
   @ConditionalOnMissingBean(SlackHttpClient.class)
-  public SlackHttpClient slackHttpClient() {
-    return new SlackHttpClient();
+  public SlackHttpClient slackHttpClient(
+      SlackConfig slackConfig,
+      ResilienceProperties resilienceProperties,
+      ObjectProvider<SlackResilienceInterceptor> resilienceInterceptor) {
+    if (!resilienceProperties.isEnabled()) {
+      return new SlackHttpClient();
+    }
+    return new SlackHttpClient(
+        SlackHttpClient.buildOkHttpClient(slackConfig)
+            .newBuilder()
+            .addInterceptor(resilienceInterceptor.getObject())
+            .build());
+  }
+
+  // Exposed as a bean, so its counters can be read.
+  @Lazy
+  @Bean
+  @ConditionalOnMissingBean(SlackResilienceInterceptor.class)
+  public SlackResilienceInterceptor slackResilienceInterceptor(
+      ResilienceProperties resilienceProperties) {
+    return new SlackResilienceInterceptor(
+        resilienceProperties.getMaxRetries(),
+        resilienceProperties.getBaseBackoff(),
+        resilienceProperties.getMaxBackoff(),
+        resilienceProperties.getRetryBudget(),
+        resilienceProperties.getFailureThreshold(),
+        resilienceProperties.getOpenDuration(),
+        SlackResilienceInterceptor::isRetryableMethod);
   }
 
   @Bean
@@ -0,0 +1,42 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.spring.config;
+
+import io.powertask.slack.spring.ConfigurationKeys;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Lazy;
+
+@Lazy
+@ConfigurationProperties(prefix = ConfigurationKeys.POWERTASK_MESSAGE_REFS)
+@Data
+public class MessageRefProperties {
+
+  public enum Store {
+    MEMORY,
+    JDBC
+  }
+
+  /**
+   * Where to keep the refs to the Slack messages that announced a task. The JDBC store uses the
+   * application's DataSource, which then has to be unique.
+   */
+  Store store = Store.MEMORY;
+
+  /**
+   * Whether the JDBC store creates its table when it's missing. Otherwise it has to exist; see
+   * {@code JdbcMessageRefStore} for its definition.
+   */
+  boolean createTable = false;
+}
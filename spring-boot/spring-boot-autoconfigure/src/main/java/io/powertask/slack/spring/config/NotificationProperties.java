@@ -0,0 +1,39 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.spring.config;
+
+import io.powertask.slack.scheduling.NotificationScheduler;
+import io.powertask.slack.scheduling.NotificationScheduler.OverflowPolicy;
+import io.powertask.slack.spring.ConfigurationKeys;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Lazy;
+
+@Lazy
+@ConfigurationProperties(prefix = ConfigurationKeys.POWERTASK_NOTIFICATIONS)
+@Data
+public class NotificationProperties {
+
+  /** Maximum number of Slack calls waiting for their rate limit slot. */
+  int queueCapacity = NotificationScheduler.DEFAULT_QUEUE_CAPACITY;
+
+  /**
+   * What to do with new calls when the queue is full. Calls are scheduled from engine threads, so
+   * blocking them stalls the engine.
+   */
+  OverflowPolicy overflowPolicy = OverflowPolicy.REJECT;
+
+  /** How often a call that was rate limited by Slack is retried. */
+  int maxRetries = NotificationScheduler.DEFAULT_MAX_RETRIES;
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright © 2020 Lunatech Labs B.V. and/or licensed to Lunatech Labs B.V. under
+ * one or more contributor license agreements. Lunatech licenses this file to you
+ * under the Apache License, Version 2.0; you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package io.powertask.slack.spring.config;
+
+import io.powertask.slack.SlackResilienceInterceptor;
+import io.powertask.slack.spring.ConfigurationKeys;
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Lazy;
+
+@Lazy
+@ConfigurationProperties(prefix = ConfigurationKeys.POWERTASK_RESILIENCE)
+@Data
+public class ResilienceProperties {
+
+  /** Whether to retry failed and rate limited Slack calls and guard them with circuit breakers. */
+  boolean enabled = true;
+
+  int maxRetries = SlackResilienceInterceptor.DEFAULT_MAX_RETRIES;
+
+  /** First delay of the exponential backoff for server and I/O errors. */
+  Duration baseBackoff = SlackResilienceInterceptor.DEFAULT_BASE_BACKOFF;
+
+  Duration maxBackoff = SlackResilienceInterceptor.DEFAULT_MAX_BACKOFF;
+
+  /**
+   * How long a single Slack call may spend waiting to be retried, in total. Keep it below the three
+   * seconds in which Slack expects interactions to be acknowledged.
+   */
+  Duration retryBudget = SlackResilienceInterceptor.DEFAULT_RETRY_BUDGET;
+
+  /** Consecutive failures of a Slack method after which its circuit breaker opens. */
+  int failureThreshold = SlackResilienceInterceptor.DEFAULT_FAILURE_THRESHOLD;
+
+  Duration openDuration = SlackResilienceInterceptor.DEFAULT_OPEN_DURATION;
+}